@@ -0,0 +1,176 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import java.io.IOException;
+
+import com.pureperfect.parseutils.CharacterStream;
+import com.pureperfect.parseutils.Match;
+import com.pureperfect.parseutils.Matches;
+
+/**
+ * Tokenizes Apache access logs in the common and combined formats, e.g.
+ * <code>127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] "GET / HTTP/1.0" 200 2326</code>.
+ * Fields separated by spaces are {@link #WORD} tokens, the time in brackets is
+ * a {@link #BRACKETED} token, quoted fields are {@link #QUOTED} tokens with
+ * their backslash escapes removed and every line ends with a {@link #RECORD}
+ * token.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+final class AccessLogTokenizer extends Tokenizer
+{
+	/**
+	 * A field in square brackets.
+	 */
+	static final int BRACKETED = 0;
+
+	/**
+	 * A field in double quotes.
+	 */
+	static final int QUOTED = 1;
+
+	/**
+	 * The end of a line.
+	 */
+	static final int RECORD = 2;
+
+	/**
+	 * A field delimited by spaces.
+	 */
+	static final int WORD = 3;
+
+	private static final Match BRACKETED_CHARS = Matches.negate(Matches.anyOf("]\n"));
+
+	private static final Match QUOTED_CHARS = Matches.negate(Matches.anyOf("\"\\\n"));
+
+	private static final Match SPACES = Matches.anyOf(" ");
+
+	private static final Match WORD_END = Matches.anyOf(" \r\n");
+
+	/* The text of the last bracketed or quoted field */
+	private final StringBuilder field = new StringBuilder();
+
+	/* Whether a field has been read and its line has not ended */
+	private boolean inRecord;
+
+	/**
+	 * Tokenize the given stream.
+	 * 
+	 * @param in
+	 *            the stream to tokenize
+	 */
+	AccessLogTokenizer(final CharacterStream in)
+	{
+		super(in);
+	}
+
+	@Override
+	int next() throws IOException
+	{
+		this.in.skip(AccessLogTokenizer.SPACES);
+		this.text = null;
+
+		if (this.in.isAtEOF())
+		{
+			if (this.inRecord)
+			{
+				this.inRecord = false;
+
+				return AccessLogTokenizer.RECORD;
+			}
+
+			return Tokenizer.EOF;
+		}
+
+		final char c = this.in.peek();
+
+		if (c == '\r' || c == '\n')
+		{
+			if (this.in.read() == '\r' && this.in.peek() == '\n')
+			{
+				this.in.read();
+			}
+
+			this.inRecord = false;
+
+			return AccessLogTokenizer.RECORD;
+		}
+
+		this.inRecord = true;
+
+		if (c == '[')
+		{
+			this.in.read();
+			this.field.setLength(0);
+			this.in.appendWhile(AccessLogTokenizer.BRACKETED_CHARS, this.field);
+
+			if (this.in.read() != ']')
+			{
+				throw this.error("Unterminated time");
+			}
+
+			this.text = this.field;
+
+			return AccessLogTokenizer.BRACKETED;
+		}
+
+		if (c == '"')
+		{
+			this.readQuoted();
+
+			return AccessLogTokenizer.QUOTED;
+		}
+
+		this.text = this.in.sliceUntil(AccessLogTokenizer.WORD_END);
+
+		return AccessLogTokenizer.WORD;
+	}
+
+	/*
+	 * Read a quoted field. Apache escapes quotes and backslashes in it with a
+	 * backslash and everything else as a hex escape, so removing the
+	 * backslashes is all that is needed here.
+	 */
+	private void readQuoted() throws IOException
+	{
+		this.in.read();
+		this.field.setLength(0);
+
+		for (;;)
+		{
+			this.in.appendWhile(AccessLogTokenizer.QUOTED_CHARS, this.field);
+
+			final char c = this.in.read();
+
+			if (c == '"')
+			{
+				break;
+			}
+
+			if (c != '\\' || this.in.isAtEOF())
+			{
+				throw this.error("Unterminated quoted field");
+			}
+
+			this.field.append(this.in.read());
+		}
+
+		this.text = this.field;
+	}
+}
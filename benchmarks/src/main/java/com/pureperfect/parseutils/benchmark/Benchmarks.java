@@ -0,0 +1,61 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the JMH command line and always adds the GC
+ * profiler, since allocation per operation matters as much as throughput for
+ * a parsing library.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public final class Benchmarks
+{
+	private Benchmarks()
+	{
+		// Hide constructor only static methods in this class
+	}
+
+	/**
+	 * Run the benchmarks.
+	 * 
+	 * @param args
+	 *            the JMH command line, e.g. a benchmark pattern and
+	 *            <code>-p size=1024</code>.
+	 * @throws Exception
+	 *             if the command line is invalid or a benchmark fails.
+	 */
+	public static void main(final String[] args) throws Exception
+	{
+		final CommandLineOptions cli = new CommandLineOptions(args);
+
+		if (cli.shouldHelp() || cli.shouldList() || cli.shouldListProfilers() || cli.shouldListResultFormats())
+		{
+			Main.main(args);
+			return;
+		}
+
+		new Runner(new OptionsBuilder().parent(cli).addProfiler(GCProfiler.class).build()).run();
+	}
+}
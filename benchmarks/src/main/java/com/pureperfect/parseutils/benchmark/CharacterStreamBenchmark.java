@@ -0,0 +1,327 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.pureperfect.parseutils.CharacterStream;
+import com.pureperfect.parseutils.Match;
+import com.pureperfect.parseutils.Matches;
+
+/**
+ * Measures the primitive {@link CharacterStream} operations across input sizes
+ * and source types. Every benchmark opens a new stream and consumes the whole
+ * input, so the score is the time for one pass and includes opening the
+ * source.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class CharacterStreamBenchmark
+{
+	/* Characters that end a field in the generated input */
+	private static final Match DELIMITERS = Matches.anyOf(",\n");
+
+	/* Characters that make up a field in the generated input */
+	private static final Match FIELD = Matches.negate(CharacterStreamBenchmark.DELIMITERS);
+
+	/* The generated input written to a temporary file */
+	private File file;
+
+	/* The generated input */
+	private String input;
+
+	/**
+	 * The number of characters in the input.
+	 */
+	@Param({ "1024", "65536", "1048576" })
+	public int size;
+
+	/**
+	 * Where the stream reads from: <code>memory</code> wraps the string
+	 * directly, <code>StringReader</code> and <code>FileReader</code> go through
+	 * a {@link java.io.Reader} and <code>mapped</code> memory maps the file.
+	 */
+	@Param({ "memory", "StringReader", "FileReader", "mapped" })
+	public String source;
+
+	/**
+	 * Mark, read ahead and reset, then move forward by half of what was read,
+	 * the way a backtracking parser tries an alternative.
+	 * 
+	 * @param bh
+	 *            consumes the characters read.
+	 * @throws IOException
+	 *             if the source cannot be read.
+	 */
+	@Benchmark
+	public void markReset(final Blackhole bh) throws IOException
+	{
+		final CharacterStream in = this.open();
+
+		try
+		{
+			while (!in.isAtEOF())
+			{
+				in.mark(32);
+				bh.consume(in.read());
+				in.skip(31);
+				in.reset();
+				in.skip(16);
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Open the stream for a benchmark.
+	 */
+	private CharacterStream open() throws IOException
+	{
+		switch (this.source)
+		{
+			case "memory":
+				return new CharacterStream(this.input);
+			case "StringReader":
+				return new CharacterStream(new StringReader(this.input));
+			case "FileReader":
+				return new CharacterStream(new FileReader(this.file));
+			case "mapped":
+				return CharacterStream.open(this.file.toPath(), Inputs.UTF8);
+			default:
+				throw new IllegalArgumentException("Unknown source: " + this.source);
+		}
+	}
+
+	/**
+	 * Peek at every character before reading it.
+	 * 
+	 * @param bh
+	 *            consumes the characters peeked at.
+	 * @throws IOException
+	 *             if the source cannot be read.
+	 */
+	@Benchmark
+	public void peek(final Blackhole bh) throws IOException
+	{
+		final CharacterStream in = this.open();
+
+		try
+		{
+			while (!in.isAtEOF())
+			{
+				bh.consume(in.peek());
+				in.read();
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Check for a two character token at every position.
+	 * 
+	 * @return the number of tokens found.
+	 * @throws IOException
+	 *             if the source cannot be read.
+	 */
+	@Benchmark
+	public int peekAndMatch() throws IOException
+	{
+		final CharacterStream in = this.open();
+
+		try
+		{
+			int results = 0;
+
+			while (!in.isAtEOF())
+			{
+				if (in.peekAndMatch(",\""))
+				{
+					++results;
+				}
+
+				in.read();
+			}
+
+			return results;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Peek at the input eight characters at a time.
+	 * 
+	 * @param bh
+	 *            consumes the arrays returned.
+	 * @throws IOException
+	 *             if the source cannot be read.
+	 */
+	@Benchmark
+	public void peekCount(final Blackhole bh) throws IOException
+	{
+		final CharacterStream in = this.open();
+
+		try
+		{
+			while (!in.isAtEOF())
+			{
+				bh.consume(in.peek(8));
+				in.skip(8);
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Read the input a character at a time.
+	 * 
+	 * @return the number of lines read.
+	 * @throws IOException
+	 *             if the source cannot be read.
+	 */
+	@Benchmark
+	public int read() throws IOException
+	{
+		final CharacterStream in = this.open();
+
+		try
+		{
+			int results = 0;
+
+			for (char c = in.read(); c != CharacterStream.EOF; c = in.read())
+			{
+				if (c == '\n')
+				{
+					++results;
+				}
+			}
+
+			return results;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Write the input to a file so that every source sees the same characters.
+	 * 
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	@Setup
+	public void setUp() throws IOException
+	{
+		this.input = Inputs.csv(this.size).substring(0, this.size);
+		this.file = Inputs.write(this.input);
+	}
+
+	/**
+	 * Skip through the input 64 characters at a time.
+	 * 
+	 * @return the offset reached.
+	 * @throws IOException
+	 *             if the source cannot be read.
+	 */
+	@Benchmark
+	public long skipCount() throws IOException
+	{
+		final CharacterStream in = this.open();
+
+		try
+		{
+			while (!in.isAtEOF())
+			{
+				in.skip(64);
+			}
+
+			return in.getOffset();
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Skip field by field with {@link CharacterStream#skip(Match)}.
+	 * 
+	 * @return the number of fields skipped.
+	 * @throws IOException
+	 *             if the source cannot be read.
+	 */
+	@Benchmark
+	public int skipMatch() throws IOException
+	{
+		final CharacterStream in = this.open();
+
+		try
+		{
+			int results = 0;
+
+			while (!in.isAtEOF())
+			{
+				in.skip(CharacterStreamBenchmark.FIELD);
+				in.read();
+
+				++results;
+			}
+
+			return results;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+}
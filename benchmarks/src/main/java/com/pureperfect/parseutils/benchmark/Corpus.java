@@ -0,0 +1,223 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Generates the corpora tokenized by {@link TokenizerBenchmark}. Each corpus
+ * is written to a temporary file, since the larger ones do not fit in a
+ * string, and is the same for the same format and size.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+final class Corpus
+{
+	private static final String[] AGENTS = { "Mozilla/5.0 (X11; Linux x86_64; rv:109.0) Gecko/20100101 Firefox/115.0",
+			"curl/7.88.1", "Googlebot/2.1 (+http://www.google.com/bot.html)",
+			"Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) \\\"Chrome\\\"" };
+
+	private static final String[] MONTHS = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct",
+			"Nov", "Dec" };
+
+	private static final String[] PATHS = { "/", "/index.html", "/images/logo.png", "/api/v1/users?page=2",
+			"/static/app.js", "/search?q=parse+utils" };
+
+	private static final String[] WORDS = { "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel",
+			"caf\u00e9", "na\u00efve", "\u00fcber", "quote\"d", "comma,ed" };
+
+	private Corpus()
+	{
+		// Hide constructor only static methods in this class
+	}
+
+	/*
+	 * Write access log lines in the combined format.
+	 */
+	private static void accessLog(final Writer out, final long size, final Random random) throws IOException
+	{
+		final StringBuilder line = new StringBuilder(256);
+
+		for (long written = 0; written < size; written += line.length())
+		{
+			line.setLength(0);
+			line.append("10.").append(random.nextInt(256)).append('.').append(random.nextInt(256)).append('.')
+					.append(random.nextInt(256));
+			line.append(random.nextInt(4) == 0 ? " - frank [" : " - - [");
+			line.append(1 + random.nextInt(28)).append('/').append(Corpus.MONTHS[random.nextInt(12)]).append("/2014:");
+			line.append(10 + random.nextInt(14)).append(':').append(10 + random.nextInt(50)).append(':')
+					.append(10 + random.nextInt(50)).append(" -0500] \"");
+			line.append(random.nextInt(5) == 0 ? "POST " : "GET ").append(Corpus.PATHS[random.nextInt(Corpus.PATHS.length)]);
+			line.append(" HTTP/1.1\" ").append(random.nextInt(10) == 0 ? 404 : 200).append(' ').append(random.nextInt(100000));
+			line.append(" \"http://www.pureperfect.com").append(Corpus.PATHS[random.nextInt(Corpus.PATHS.length)]);
+			line.append("\" \"").append(Corpus.AGENTS[random.nextInt(Corpus.AGENTS.length)]).append("\"\n");
+
+			out.append(line);
+		}
+	}
+
+	/*
+	 * Write records of comma separated values with some quoted fields.
+	 */
+	private static void csv(final Writer out, final long size, final Random random) throws IOException
+	{
+		final StringBuilder record = new StringBuilder(256);
+
+		out.append("id,name,score,date,comment\r\n");
+
+		for (long written = 0; written < size; written += record.length())
+		{
+			record.setLength(0);
+			record.append(written).append(',');
+			Corpus.csvField(record, Corpus.WORDS[random.nextInt(Corpus.WORDS.length)] + ' '
+					+ Corpus.WORDS[random.nextInt(Corpus.WORDS.length)]);
+			record.append(',').append(random.nextInt(100000) / 100.0).append(',');
+			record.append("2014-").append(10 + random.nextInt(3)).append('-').append(10 + random.nextInt(19)).append(',');
+
+			final int words = random.nextInt(12);
+
+			final StringBuilder comment = new StringBuilder();
+
+			for (int i = 0; i < words; ++i)
+			{
+				comment.append(i == 0 ? "" : " ").append(Corpus.WORDS[random.nextInt(Corpus.WORDS.length)]);
+			}
+
+			Corpus.csvField(record, comment.toString());
+			record.append("\r\n");
+
+			out.append(record);
+		}
+	}
+
+	/*
+	 * Append a field, quoting it if it needs to be.
+	 */
+	private static void csvField(final StringBuilder dst, final String field)
+	{
+		if (field.indexOf('"') < 0 && field.indexOf(',') < 0)
+		{
+			dst.append(field);
+			return;
+		}
+
+		dst.append('"').append(field.replace("\"", "\"\"")).append('"');
+	}
+
+	/**
+	 * Generate a corpus.
+	 * 
+	 * @param format
+	 *            <code>csv</code>, <code>json</code> or <code>log</code>
+	 * @param size
+	 *            the approximate size of the corpus in characters.
+	 * @return a temporary file containing the corpus encoded as UTF-8.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	static File generate(final String format, final long size) throws IOException
+	{
+		final File results = File.createTempFile("parseutils-" + format, ".txt");
+
+		results.deleteOnExit();
+
+		final Random random = new Random(size);
+		final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(results), Inputs.UTF8), 1 << 16);
+
+		try
+		{
+			switch (format)
+			{
+				case "csv":
+					Corpus.csv(out, size, random);
+					break;
+				case "json":
+					Corpus.json(out, size, random);
+					break;
+				case "log":
+					Corpus.accessLog(out, size, random);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown format: " + format);
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+
+		return results;
+	}
+
+	/*
+	 * Write an array of objects, one per line.
+	 */
+	private static void json(final Writer out, final long size, final Random random) throws IOException
+	{
+		final StringBuilder object = new StringBuilder(512);
+
+		out.append("[\n");
+
+		for (long written = 0; written < size; written += object.length())
+		{
+			object.setLength(0);
+
+			if (written > 0)
+			{
+				object.append(",\n");
+			}
+
+			object.append("  {\"id\": ").append(written);
+			object.append(", \"name\": ");
+			Corpus.jsonString(object, Corpus.WORDS[random.nextInt(Corpus.WORDS.length)]);
+			object.append(", \"score\": ").append(random.nextInt(2000000) - 1000000).append('.')
+					.append(random.nextInt(100));
+			object.append(", \"ratio\": ").append(1 + random.nextInt(9)).append("e-").append(random.nextInt(10));
+			object.append(", \"active\": ").append(random.nextBoolean());
+			object.append(", \"parent\": null, \"tags\": [");
+
+			final int tags = random.nextInt(5);
+
+			for (int i = 0; i < tags; ++i)
+			{
+				object.append(i == 0 ? "" : ", ");
+				Corpus.jsonString(object, Corpus.WORDS[random.nextInt(Corpus.WORDS.length)]);
+			}
+
+			object.append("], \"note\": \"caf\\u00e9 \\t ").append(random.nextLong()).append("\"}");
+
+			out.append(object);
+		}
+
+		out.append("\n]\n");
+	}
+
+	/*
+	 * Append a string, escaping quotes and backslashes.
+	 */
+	private static void jsonString(final StringBuilder dst, final String value)
+	{
+		dst.append('"').append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import java.io.IOException;
+
+import com.pureperfect.parseutils.CharacterStream;
+import com.pureperfect.parseutils.Match;
+import com.pureperfect.parseutils.Matches;
+
+/**
+ * Tokenizes comma separated values as described by RFC 4180. Every field is a
+ * {@link #FIELD} token, quoted or not, and every line ends with a
+ * {@link #RECORD} token. Unquoted fields are returned as slices of the stream
+ * buffer; quoted fields are unescaped into a builder that is reused.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+final class CsvTokenizer extends Tokenizer
+{
+	/**
+	 * A field.
+	 */
+	static final int FIELD = 0;
+
+	/**
+	 * The end of a record.
+	 */
+	static final int RECORD = 1;
+
+	private static final Match DELIMITERS = Matches.anyOf(",\r\n");
+
+	private static final Match QUOTED = Matches.negate(Matches.anyOf("\""));
+
+	/* Whether a field has been read and its record has not ended */
+	private boolean inRecord;
+
+	/* The unescaped text of the last quoted field */
+	private final StringBuilder quoted = new StringBuilder();
+
+	/**
+	 * Tokenize the given stream.
+	 * 
+	 * @param in
+	 *            the stream to tokenize
+	 */
+	CsvTokenizer(final CharacterStream in)
+	{
+		super(in);
+	}
+
+	@Override
+	int next() throws IOException
+	{
+		boolean separated = false;
+
+		if (this.inRecord)
+		{
+			final char c = this.in.peek();
+
+			if (c == ',')
+			{
+				this.in.read();
+
+				separated = true;
+			}
+			else
+			{
+				if (c == '\r')
+				{
+					this.in.read();
+				}
+
+				if (this.in.peek() == '\n')
+				{
+					this.in.read();
+				}
+
+				this.inRecord = false;
+				this.text = null;
+
+				return CsvTokenizer.RECORD;
+			}
+		}
+
+		if (!separated && this.in.isAtEOF())
+		{
+			this.text = null;
+
+			return Tokenizer.EOF;
+		}
+
+		this.inRecord = true;
+
+		if (this.in.peek() == '"')
+		{
+			this.readQuoted();
+		}
+		else
+		{
+			this.text = this.in.sliceUntil(CsvTokenizer.DELIMITERS);
+		}
+
+		return CsvTokenizer.FIELD;
+	}
+
+	/*
+	 * Read a quoted field, replacing each pair of quotes with one.
+	 */
+	private void readQuoted() throws IOException
+	{
+		this.in.read();
+		this.quoted.setLength(0);
+
+		for (;;)
+		{
+			this.in.appendWhile(CsvTokenizer.QUOTED, this.quoted);
+
+			if (this.in.read() != '"')
+			{
+				throw this.error("Unterminated quoted field");
+			}
+
+			if (this.in.peek() != '"')
+			{
+				break;
+			}
+
+			this.quoted.append(this.in.read());
+		}
+
+		this.text = this.quoted;
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Generated inputs shared by the benchmarks so that every source type and
+ * matcher sees exactly the same characters.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+final class Inputs
+{
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private Inputs()
+	{
+		// Hide constructor only static methods in this class
+	}
+
+	/**
+	 * Build comma separated records with quoted fields of varying length.
+	 * 
+	 * @param length
+	 *            the minimum number of characters to generate.
+	 * @return the records.
+	 */
+	static String csv(final int length)
+	{
+		final StringBuilder results = new StringBuilder(length + 64);
+
+		int field = 0;
+
+		while (results.length() < length)
+		{
+			final int width = 4 + (field * 7) % 29;
+
+			if (field % 5 == 0)
+			{
+				results.append('"');
+			}
+
+			for (int i = 0; i < width; ++i)
+			{
+				results.append((char) ('a' + (field + i) % 26));
+			}
+
+			if (field % 5 == 0)
+			{
+				results.append('"');
+			}
+
+			results.append(++field % 8 == 0 ? '\n' : ',');
+		}
+
+		return results.toString();
+	}
+
+	/**
+	 * Build a string of the given length with the given amount of whitespace
+	 * on both ends.
+	 * 
+	 * @param length
+	 *            the number of characters between the whitespace.
+	 * @param padding
+	 *            the number of whitespace characters on each end.
+	 * @return the padded string.
+	 */
+	static String padded(final int length, final int padding)
+	{
+		final StringBuilder results = new StringBuilder(length + 2 * padding);
+
+		for (int i = 0; i < padding; ++i)
+		{
+			results.append(i % 4 == 0 ? '\t' : ' ');
+		}
+
+		for (int i = 0; i < length; ++i)
+		{
+			results.append(i % 7 == 3 ? ' ' : (char) ('a' + i % 26));
+		}
+
+		for (int i = 0; i < padding; ++i)
+		{
+			results.append(i % 4 == 0 ? '\n' : ' ');
+		}
+
+		return results.toString();
+	}
+
+	/**
+	 * Write the input to a temporary file that is deleted when the JVM exits.
+	 * 
+	 * @param input
+	 *            the characters to write.
+	 * @return the file.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	static File write(final String input) throws IOException
+	{
+		final File results = File.createTempFile("parseutils-benchmark", ".txt");
+
+		results.deleteOnExit();
+
+		final Writer out = new OutputStreamWriter(new FileOutputStream(results), Inputs.UTF8);
+
+		try
+		{
+			out.write(input);
+		}
+		finally
+		{
+			out.close();
+		}
+
+		return results;
+	}
+}
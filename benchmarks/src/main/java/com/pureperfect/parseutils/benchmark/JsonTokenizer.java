@@ -0,0 +1,265 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import java.io.IOException;
+
+import com.pureperfect.parseutils.CharacterStream;
+import com.pureperfect.parseutils.Match;
+import com.pureperfect.parseutils.Matches;
+import com.pureperfect.parseutils.PatternMatch;
+import com.pureperfect.parseutils.StringMatch;
+
+/**
+ * Tokenizes JSON as described by RFC 8259. Strings are unescaped into a
+ * builder that is reused, numbers are matched with a {@link PatternMatch} and
+ * the literals with a {@link StringMatch}. Structure is not checked, only the
+ * tokens themselves.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+final class JsonTokenizer extends Tokenizer
+{
+	/**
+	 * <code>[</code>
+	 */
+	static final int BEGIN_ARRAY = 0;
+
+	/**
+	 * <code>{</code>
+	 */
+	static final int BEGIN_OBJECT = 1;
+
+	/**
+	 * <code>:</code>
+	 */
+	static final int COLON = 2;
+
+	/**
+	 * <code>,</code>
+	 */
+	static final int COMMA = 3;
+
+	/**
+	 * <code>]</code>
+	 */
+	static final int END_ARRAY = 4;
+
+	/**
+	 * <code>}</code>
+	 */
+	static final int END_OBJECT = 5;
+
+	/**
+	 * <code>false</code>
+	 */
+	static final int FALSE = 6;
+
+	/**
+	 * <code>null</code>
+	 */
+	static final int NULL = 7;
+
+	/**
+	 * A number.
+	 */
+	static final int NUMBER = 8;
+
+	/**
+	 * A string.
+	 */
+	static final int STRING = 9;
+
+	/**
+	 * <code>true</code>
+	 */
+	static final int TRUE = 10;
+
+	private static final StringMatch LITERALS = new StringMatch("false", "null", "true");
+
+	private static final PatternMatch NUMBER_PATTERN = new PatternMatch("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+
+	/*
+	 * Characters that can appear in a string without being escaped. Control
+	 * characters are let through since only the tokens are of interest.
+	 */
+	private static final Match PLAIN = Matches.negate(Matches.anyOf("\"\\"));
+
+	private static final Match WHITESPACE = Matches.anyOf(" \t\r\n");
+
+	/* The unescaped text of the last string */
+	private final StringBuilder string = new StringBuilder();
+
+	/**
+	 * Tokenize the given stream.
+	 * 
+	 * @param in
+	 *            the stream to tokenize
+	 */
+	JsonTokenizer(final CharacterStream in)
+	{
+		super(in);
+	}
+
+	/*
+	 * Read the four hex digits of a unicode escape.
+	 */
+	private char hex() throws IOException
+	{
+		int results = 0;
+
+		for (int i = 0; i < 4; ++i)
+		{
+			final int digit = Character.digit(this.in.read(), 16);
+
+			if (digit < 0)
+			{
+				throw this.error("Invalid unicode escape");
+			}
+
+			results = results << 4 | digit;
+		}
+
+		return (char) results;
+	}
+
+	@Override
+	int next() throws IOException
+	{
+		this.in.skip(JsonTokenizer.WHITESPACE);
+		this.text = null;
+
+		if (this.in.isAtEOF())
+		{
+			return Tokenizer.EOF;
+		}
+
+		final char c = this.in.peek();
+
+		switch (c)
+		{
+			case '[':
+				this.in.read();
+				return JsonTokenizer.BEGIN_ARRAY;
+			case '{':
+				this.in.read();
+				return JsonTokenizer.BEGIN_OBJECT;
+			case ':':
+				this.in.read();
+				return JsonTokenizer.COLON;
+			case ',':
+				this.in.read();
+				return JsonTokenizer.COMMA;
+			case ']':
+				this.in.read();
+				return JsonTokenizer.END_ARRAY;
+			case '}':
+				this.in.read();
+				return JsonTokenizer.END_OBJECT;
+			case '"':
+				this.readString();
+				return JsonTokenizer.STRING;
+			default:
+				break;
+		}
+
+		if (c == '-' || c >= '0' && c <= '9')
+		{
+			this.text = this.in.read(JsonTokenizer.NUMBER_PATTERN);
+
+			if (this.text == null)
+			{
+				throw this.error("Invalid number");
+			}
+
+			return JsonTokenizer.NUMBER;
+		}
+
+		switch (this.in.matchLongest(JsonTokenizer.LITERALS, true))
+		{
+			case 0:
+				return JsonTokenizer.FALSE;
+			case 1:
+				return JsonTokenizer.NULL;
+			case 2:
+				return JsonTokenizer.TRUE;
+			default:
+				throw this.error("Unexpected character '" + c + "'");
+		}
+	}
+
+	/*
+	 * Read a string, replacing escape sequences with the characters they
+	 * stand for.
+	 */
+	private void readString() throws IOException
+	{
+		this.in.read();
+		this.string.setLength(0);
+
+		for (;;)
+		{
+			this.in.appendWhile(JsonTokenizer.PLAIN, this.string);
+
+			final char c = this.in.read();
+
+			if (c == '"')
+			{
+				break;
+			}
+
+			if (c != '\\')
+			{
+				throw this.error("Unterminated string");
+			}
+
+			final char escaped = this.in.read();
+
+			switch (escaped)
+			{
+				case '"':
+				case '\\':
+				case '/':
+					this.string.append(escaped);
+					break;
+				case 'b':
+					this.string.append('\b');
+					break;
+				case 'f':
+					this.string.append('\f');
+					break;
+				case 'n':
+					this.string.append('\n');
+					break;
+				case 'r':
+					this.string.append('\r');
+					break;
+				case 't':
+					this.string.append('\t');
+					break;
+				case 'u':
+					this.string.append(this.hex());
+					break;
+				default:
+					throw this.error("Invalid escape '\\" + escaped + "'");
+			}
+		}
+
+		this.text = this.string;
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.pureperfect.parseutils.CharacterStream;
+import com.pureperfect.parseutils.Match;
+import com.pureperfect.parseutils.Matches;
+
+/**
+ * Compares the kinds of {@link Match} when scanning for delimiters in an in
+ * memory stream: a plain anonymous match called once per character, the
+ * direct comparison returned by {@link Matches#anyOf(String)} and the lookup
+ * table returned by {@link Matches#compile(Match)}. The benchmarks run with
+ * the Vector API module added, so <code>anyOf</code> scans with vectors and
+ * <code>anyOfScalar</code> turns them off to scan a character at a time.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class MatchBenchmark
+{
+	/* The delimiters being scanned for */
+	private Match delimiters;
+
+	/* The generated input */
+	private String input;
+
+	/**
+	 * The kind of matcher: <code>anonymous</code>, <code>anyOf</code>,
+	 * <code>anyOfScalar</code> or <code>compiled</code>.
+	 */
+	@Param({ "anonymous", "anyOf", "anyOfScalar", "compiled" })
+	public String matcher;
+
+	/**
+	 * The number of characters in the input.
+	 */
+	@Param({ "1024", "65536", "1048576" })
+	public int size;
+
+	/**
+	 * Read every field with {@link CharacterStream#readUntil(Match)}.
+	 * 
+	 * @param bh
+	 *            consumes the fields.
+	 * @throws IOException
+	 *             never, the input is in memory.
+	 */
+	@Benchmark
+	public void readUntil(final Blackhole bh) throws IOException
+	{
+		final CharacterStream in = new CharacterStream(this.input);
+
+		while (!in.isAtEOF())
+		{
+			bh.consume(in.readUntil(this.delimiters));
+			in.read();
+		}
+	}
+
+	/**
+	 * Generate the input and build the matcher.
+	 */
+	@Setup
+	public void setUp()
+	{
+		this.input = Inputs.csv(this.size).substring(0, this.size);
+
+		switch (this.matcher)
+		{
+			case "anonymous":
+				this.delimiters = new Match()
+				{
+					@Override
+					public boolean matches(final char c)
+					{
+						return c == ',' || c == '"' || c == '\n';
+					}
+				};
+				break;
+			case "anyOf":
+				this.delimiters = Matches.anyOf(",\"\n");
+				break;
+			case "anyOfScalar":
+				// Each parameter runs in its own fork, before the scanner is chosen
+				System.setProperty("com.pureperfect.parseutils.vector", "false");
+				this.delimiters = Matches.anyOf(",\"\n");
+				break;
+			case "compiled":
+				this.delimiters = Matches.compile(Matches.anyOf(",\"\n;"));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown matcher: " + this.matcher);
+		}
+	}
+
+	/**
+	 * Skip from delimiter to delimiter with
+	 * {@link CharacterStream#skip(Match)}.
+	 * 
+	 * @return the number of fields skipped.
+	 * @throws IOException
+	 *             never, the input is in memory.
+	 */
+	@Benchmark
+	public int skip() throws IOException
+	{
+		final CharacterStream in = new CharacterStream(this.input);
+		final Match field = Matches.negate(this.delimiters);
+
+		int results = 0;
+
+		while (!in.isAtEOF())
+		{
+			in.skip(field);
+			in.read();
+
+			++results;
+		}
+
+		return results;
+	}
+
+	/**
+	 * Skip from delimiter to delimiter with
+	 * {@link CharacterStream#sliceUntil(Match)}.
+	 * 
+	 * @param bh
+	 *            consumes the slices.
+	 * @throws IOException
+	 *             never, the input is in memory.
+	 */
+	@Benchmark
+	public void sliceUntil(final Blackhole bh) throws IOException
+	{
+		final CharacterStream in = new CharacterStream(this.input);
+
+		while (!in.isAtEOF())
+		{
+			bh.consume(in.sliceUntil(this.delimiters));
+			in.read();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pureperfect.parseutils.Strings;
+
+/**
+ * Measures {@link Strings#trim(StringBuilder)} as the amount of surrounding
+ * whitespace grows. Each operation trims a fresh copy of the input, so the
+ * <code>copy</code> benchmark is the baseline to subtract.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class StringsBenchmark
+{
+	/* The padded input */
+	private String input;
+
+	/**
+	 * The number of characters between the whitespace.
+	 */
+	@Param({ "16", "1024" })
+	public int length;
+
+	/**
+	 * The number of whitespace characters on each end.
+	 */
+	@Param({ "0", "8", "256" })
+	public int padding;
+
+	/**
+	 * Copy the input without trimming it.
+	 * 
+	 * @return the copy.
+	 */
+	@Benchmark
+	public StringBuilder copy()
+	{
+		return new StringBuilder(this.input);
+	}
+
+	/**
+	 * Generate the input.
+	 */
+	@Setup
+	public void setUp()
+	{
+		this.input = Inputs.padded(this.length, this.padding);
+	}
+
+	/**
+	 * Trim a copy of the input in place.
+	 * 
+	 * @return the trimmed copy.
+	 */
+	@Benchmark
+	public StringBuilder trim()
+	{
+		return Strings.trim(new StringBuilder(this.input));
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import java.io.IOException;
+
+import com.pureperfect.parseutils.CharacterStream;
+import com.pureperfect.parseutils.ParseException;
+
+/**
+ * A reference tokenizer built only on the public {@link CharacterStream} API.
+ * Each call to {@link #next()} reads one token and returns its type, and the
+ * text of the token is available from {@link #getText()} until the next call.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+abstract class Tokenizer
+{
+	/**
+	 * Returned by {@link #next()} at the end of the input.
+	 */
+	static final int EOF = -1;
+
+	/* The stream being tokenized */
+	final CharacterStream in;
+
+	/* The text of the last token */
+	CharSequence text;
+
+	/**
+	 * Tokenize the given stream.
+	 * 
+	 * @param in
+	 *            the stream to tokenize
+	 */
+	Tokenizer(final CharacterStream in)
+	{
+		this.in = in;
+	}
+
+	/**
+	 * Report malformed input at the current position of the stream.
+	 * 
+	 * @param message
+	 *            what was wrong
+	 * @return the exception to throw
+	 */
+	ParseException error(final String message)
+	{
+		return new ParseException(message, this.in.getCurrentPosition());
+	}
+
+	/**
+	 * Get the text of the last token.
+	 * 
+	 * @return the text of the last token or null if the token has none.
+	 */
+	CharSequence getText()
+	{
+		return this.text;
+	}
+
+	/**
+	 * Read the next token.
+	 * 
+	 * @return the type of the token or {@link Tokenizer#EOF} at the end of the
+	 *         input.
+	 * @throws IOException
+	 *             if the input cannot be read or is malformed.
+	 */
+	abstract int next() throws IOException;
+}
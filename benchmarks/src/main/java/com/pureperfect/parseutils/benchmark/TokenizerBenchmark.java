@@ -0,0 +1,179 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.pureperfect.parseutils.CharacterStream;
+
+/**
+ * Tokenizes whole CSV, JSON and access log corpora with the reference
+ * tokenizers, as a yardstick for how a real lexer built on
+ * {@link CharacterStream} performs. Besides passes per second the
+ * <code>megabytes</code> and <code>tokens</code> counters report MB/s and
+ * tokens/s. The 1 GB corpora take a while to generate, so use
+ * <code>-p size=1048576</code> for a quick run.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 10)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 10)
+public class TokenizerBenchmark
+{
+	/**
+	 * Counts what was tokenized so that JMH reports it per second.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Throughput
+	{
+		/**
+		 * Megabytes tokenized.
+		 */
+		public double megabytes;
+
+		/**
+		 * Tokens read.
+		 */
+		public long tokens;
+
+		/**
+		 * Start each iteration from zero.
+		 */
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			this.megabytes = 0;
+			this.tokens = 0;
+		}
+	}
+
+	/* The generated corpus */
+	private File file;
+
+	/**
+	 * The format of the corpus: <code>csv</code>, <code>json</code> or
+	 * <code>log</code>.
+	 */
+	@Param({ "csv", "json", "log" })
+	public String format;
+
+	/**
+	 * The approximate size of the corpus in bytes.
+	 */
+	@Param({ "1048576", "67108864", "1073741824" })
+	public long size;
+
+	/**
+	 * Generate the corpus.
+	 * 
+	 * @throws IOException
+	 *             if the corpus cannot be written.
+	 */
+	@Setup
+	public void setUp() throws IOException
+	{
+		this.file = Corpus.generate(this.format, this.size);
+	}
+
+	/**
+	 * Delete the corpus.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		this.file.delete();
+	}
+
+	/**
+	 * Tokenize the whole corpus from a memory mapped stream.
+	 * 
+	 * @param counters
+	 *            the megabytes and tokens per second.
+	 * @param bh
+	 *            consumes the text of each token.
+	 * @throws IOException
+	 *             if the corpus cannot be read or is malformed.
+	 */
+	@Benchmark
+	public void tokenize(final Throughput counters, final Blackhole bh) throws IOException
+	{
+		final CharacterStream in = CharacterStream.open(this.file.toPath(), Inputs.UTF8);
+
+		try
+		{
+			final Tokenizer tokenizer = this.tokenizer(in);
+
+			long tokens = 0;
+
+			while (tokenizer.next() != Tokenizer.EOF)
+			{
+				bh.consume(tokenizer.getText());
+
+				++tokens;
+			}
+
+			counters.megabytes += this.file.length() / 1e6;
+			counters.tokens += tokens;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/*
+	 * Create the tokenizer for the format.
+	 */
+	private Tokenizer tokenizer(final CharacterStream in)
+	{
+		switch (this.format)
+		{
+			case "csv":
+				return new CsvTokenizer(in);
+			case "json":
+				return new JsonTokenizer(in);
+			case "log":
+				return new AccessLogTokenizer(in);
+			default:
+				throw new IllegalArgumentException("Unknown format: " + this.format);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.pureperfect.parseutils.CharacterStream;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class AccessLogTokenizerTest
+{
+	/*
+	 * Describe the tokens of the input: words as they are, bracketed and
+	 * quoted fields in brackets and quotes and records as a slash.
+	 */
+	private static String tokenize(final String input) throws IOException
+	{
+		final AccessLogTokenizer tokenizer = new AccessLogTokenizer(new CharacterStream(input));
+
+		final StringBuilder results = new StringBuilder();
+
+		for (int token = tokenizer.next(); token != Tokenizer.EOF; token = tokenizer.next())
+		{
+			switch (token)
+			{
+				case AccessLogTokenizer.BRACKETED:
+					results.append('[').append(tokenizer.getText()).append(']');
+					break;
+				case AccessLogTokenizer.QUOTED:
+					results.append('"').append(tokenizer.getText()).append('"');
+					break;
+				case AccessLogTokenizer.RECORD:
+					results.append('/');
+					break;
+				default:
+					results.append(tokenizer.getText()).append(' ');
+					break;
+			}
+		}
+
+		return results.toString();
+	}
+
+	@Test
+	public void combined() throws IOException
+	{
+		Assert.assertEquals(
+				"127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700]\"GET /a.gif HTTP/1.0\"200 2326 \"http://x/\"\"Say \"hi\"\"/",
+				AccessLogTokenizerTest.tokenize("127.0.0.1 - frank [10/Oct/2000:13:55:36 -0700] \"GET /a.gif HTTP/1.0\" 200 2326 \"http://x/\" \"Say \\\"hi\\\"\"\n"));
+	}
+
+	@Test
+	public void corpus() throws IOException
+	{
+		final File file = Corpus.generate("log", 1 << 16);
+
+		try
+		{
+			final CharacterStream in = CharacterStream.open(file.toPath(), Inputs.UTF8);
+			final AccessLogTokenizer tokenizer = new AccessLogTokenizer(in);
+
+			int records = 0;
+			int tokens = 0;
+
+			for (int token = tokenizer.next(); token != Tokenizer.EOF; token = tokenizer.next())
+			{
+				if (token == AccessLogTokenizer.RECORD)
+				{
+					++records;
+				}
+				else
+				{
+					++tokens;
+				}
+			}
+
+			in.close();
+
+			Assert.assertTrue(records > 100);
+			Assert.assertEquals(9 * records, tokens);
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void lineEndings() throws IOException
+	{
+		Assert.assertEquals("a b /c /d /", AccessLogTokenizerTest.tokenize("a b\r\nc\nd"));
+	}
+
+	@Test
+	public void unterminated() throws IOException
+	{
+		try
+		{
+			AccessLogTokenizerTest.tokenize("a \"b\nc");
+			Assert.fail();
+		}
+		catch (final IOException e)
+		{
+			Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Unterminated quoted field"));
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.pureperfect.parseutils.CharacterStream;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class CsvTokenizerTest
+{
+	/*
+	 * Describe the tokens of the input, fields in brackets and records as a
+	 * slash.
+	 */
+	private static String tokenize(final String input) throws IOException
+	{
+		final CsvTokenizer tokenizer = new CsvTokenizer(new CharacterStream(input));
+
+		final StringBuilder results = new StringBuilder();
+
+		for (int token = tokenizer.next(); token != Tokenizer.EOF; token = tokenizer.next())
+		{
+			if (token == CsvTokenizer.FIELD)
+			{
+				results.append('[').append(tokenizer.getText()).append(']');
+			}
+			else
+			{
+				Assert.assertEquals(CsvTokenizer.RECORD, token);
+				Assert.assertNull(tokenizer.getText());
+
+				results.append('/');
+			}
+		}
+
+		return results.toString();
+	}
+
+	@Test
+	public void corpus() throws IOException
+	{
+		final File file = Corpus.generate("csv", 1 << 16);
+
+		try
+		{
+			final CharacterStream in = CharacterStream.open(file.toPath(), Inputs.UTF8);
+			final CsvTokenizer tokenizer = new CsvTokenizer(in);
+
+			int fields = 0;
+			int records = 0;
+
+			for (int token = tokenizer.next(); token != Tokenizer.EOF; token = tokenizer.next())
+			{
+				if (token == CsvTokenizer.FIELD)
+				{
+					++fields;
+				}
+				else
+				{
+					++records;
+				}
+			}
+
+			in.close();
+
+			Assert.assertTrue(records > 100);
+			Assert.assertEquals(5 * records, fields);
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void emptyFields() throws IOException
+	{
+		Assert.assertEquals("[][]/[a][]/[][]/", CsvTokenizerTest.tokenize(",\na,\n,"));
+	}
+
+	@Test
+	public void emptyInput() throws IOException
+	{
+		Assert.assertEquals("", CsvTokenizerTest.tokenize(""));
+	}
+
+	@Test
+	public void lineEndings() throws IOException
+	{
+		Assert.assertEquals("[a][b]/[c]/[d]/", CsvTokenizerTest.tokenize("a,b\r\nc\nd"));
+	}
+
+	@Test
+	public void quoted() throws IOException
+	{
+		Assert.assertEquals("[a,b][say \"hi\"][]/[line\nbreak]/",
+				CsvTokenizerTest.tokenize("\"a,b\",\"say \"\"hi\"\"\",\"\"\n\"line\nbreak\"\n"));
+	}
+
+	@Test
+	public void unterminated() throws IOException
+	{
+		try
+		{
+			CsvTokenizerTest.tokenize("a,\"b");
+			Assert.fail();
+		}
+		catch (final IOException e)
+		{
+			Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Unterminated quoted field"));
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.pureperfect.parseutils.CharacterStream;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class JsonTokenizerTest
+{
+	/* The tokens as they are written */
+	private static final String[] NAMES = { "[", "{", ":", ",", "]", "}", "false", "null", "#", "$", "true" };
+
+	/*
+	 * Describe the tokens of the input separated by spaces, numbers as # and
+	 * strings as $ followed by their text.
+	 */
+	private static String tokenize(final String input) throws IOException
+	{
+		final JsonTokenizer tokenizer = new JsonTokenizer(new CharacterStream(input));
+
+		final StringBuilder results = new StringBuilder();
+
+		for (int token = tokenizer.next(); token != Tokenizer.EOF; token = tokenizer.next())
+		{
+			if (results.length() > 0)
+			{
+				results.append(' ');
+			}
+
+			results.append(JsonTokenizerTest.NAMES[token]);
+
+			if (token == JsonTokenizer.NUMBER || token == JsonTokenizer.STRING)
+			{
+				results.append(tokenizer.getText());
+			}
+		}
+
+		return results.toString();
+	}
+
+	@Test
+	public void corpus() throws IOException
+	{
+		final File file = Corpus.generate("json", 1 << 16);
+
+		try
+		{
+			final CharacterStream in = CharacterStream.open(file.toPath(), Inputs.UTF8);
+			final JsonTokenizer tokenizer = new JsonTokenizer(in);
+
+			int depth = 0;
+			int objects = 0;
+
+			for (int token = tokenizer.next(); token != Tokenizer.EOF; token = tokenizer.next())
+			{
+				if (token == JsonTokenizer.BEGIN_ARRAY || token == JsonTokenizer.BEGIN_OBJECT)
+				{
+					++depth;
+				}
+				else if (token == JsonTokenizer.END_ARRAY || token == JsonTokenizer.END_OBJECT)
+				{
+					--depth;
+				}
+
+				if (token == JsonTokenizer.BEGIN_OBJECT)
+				{
+					++objects;
+				}
+			}
+
+			in.close();
+
+			Assert.assertEquals(0, depth);
+			Assert.assertTrue(objects > 100);
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void escapes() throws IOException
+	{
+		Assert.assertEquals("$a\"b\\c/d\b\f\n\r\t\u00e9", JsonTokenizerTest.tokenize("\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\\u00E9\""));
+	}
+
+	@Test
+	public void invalid() throws IOException
+	{
+		for (final String input : new String[] { "nul", "\"abc", "\"\\x\"", "\"\\u12g4\"", "-x", "@" })
+		{
+			try
+			{
+				JsonTokenizerTest.tokenize(input);
+				Assert.fail(input);
+			}
+			catch (final IOException e)
+			{
+				Assert.assertTrue(e.getMessage(), e.getMessage().contains(" at line "));
+			}
+		}
+	}
+
+	@Test
+	public void numbers() throws IOException
+	{
+		Assert.assertEquals("[ #0 , #-12 , #3.25 , #1e10 , #-6.02E+23 ]",
+				JsonTokenizerTest.tokenize("[0,-12, 3.25 ,1e10,-6.02E+23]"));
+	}
+
+	@Test
+	public void structure() throws IOException
+	{
+		Assert.assertEquals("{ $a : [ true , false , null ] , $b : { } }",
+				JsonTokenizerTest.tokenize(" {\"a\": [true, false, null],\n\t\"b\" : {}}\r\n"));
+	}
+}
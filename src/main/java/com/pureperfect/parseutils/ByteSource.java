@@ -0,0 +1,441 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Decodes characters from an {@link InputStream} or a
+ * {@link ReadableByteChannel} straight into the buffer of the stream, without
+ * the extra buffer and lock of an {@link java.io.InputStreamReader}.
+ * <p>
+ * US-ASCII, ISO-8859-1 and UTF-8 are decoded by hand, with runs of ASCII
+ * widened eight bytes at a time by {@link Swar}. Anything the hand written
+ * decoders do not handle, such as malformed input, and every other charset go
+ * through a {@link CharsetDecoder} that replaces malformed input, so the
+ * characters are always the same as those of an InputStreamReader.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+class ByteSource extends CharacterSource
+{
+	/**
+	 * Default size of the byte buffer.
+	 */
+	static final int DEFAULT_BYTE_BUFFER_SIZE = 8192;
+
+	/**
+	 * Smallest byte buffer that always has room for the rest of a character
+	 * that was split across reads.
+	 */
+	static final int MIN_BYTE_BUFFER_SIZE = 8;
+
+	private static final int ASCII = 1;
+
+	private static final int LATIN1 = 2;
+
+	private static final int OTHER = 0;
+
+	private static final int UTF8 = 3;
+
+	/*
+	 * Bytes read but not yet decoded, between position and limit.
+	 */
+	private final ByteBuffer bytes;
+
+	private final ReadableByteChannel channel;
+
+	private final CharsetDecoder decoder;
+
+	private boolean endOfInput;
+
+	private boolean flushed;
+
+	private boolean hasPending;
+
+	private final InputStream in;
+
+	/*
+	 * Which of the hand written decoders to use, if any.
+	 */
+	private final int kind;
+
+	/*
+	 * Second half of a surrogate pair that did not fit in the last read.
+	 */
+	private char pending;
+
+	ByteSource(final InputStream in, final Charset charset, final int byteBufferSize)
+	{
+		this(in, null, charset, byteBufferSize);
+	}
+
+	ByteSource(final ReadableByteChannel channel, final Charset charset, final int byteBufferSize)
+	{
+		this(null, channel, charset, byteBufferSize);
+	}
+
+	private ByteSource(final InputStream in, final ReadableByteChannel channel, final Charset charset,
+			final int byteBufferSize)
+	{
+		if (byteBufferSize < ByteSource.MIN_BYTE_BUFFER_SIZE)
+		{
+			throw new IllegalArgumentException("Byte buffer size must be at least "
+					+ ByteSource.MIN_BYTE_BUFFER_SIZE + ": " + byteBufferSize);
+		}
+
+		this.in = in;
+		this.channel = channel;
+
+		this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		final String name = charset.name();
+
+		if ("UTF-8".equals(name))
+		{
+			this.kind = ByteSource.UTF8;
+		}
+		else if ("US-ASCII".equals(name))
+		{
+			this.kind = ByteSource.ASCII;
+		}
+		else if ("ISO-8859-1".equals(name))
+		{
+			this.kind = ByteSource.LATIN1;
+		}
+		else
+		{
+			this.kind = ByteSource.OTHER;
+		}
+
+		this.bytes = ByteBuffer.allocate(byteBufferSize).order(ByteOrder.nativeOrder());
+		this.bytes.flip();
+	}
+
+	@Override
+	void close() throws IOException
+	{
+		if (this.channel != null)
+		{
+			this.channel.close();
+		}
+		else
+		{
+			this.in.close();
+		}
+	}
+
+	@Override
+	int read(final char[] dst, final int off, final int len) throws IOException
+	{
+		if (this.hasPending)
+		{
+			dst[off] = this.pending;
+			this.hasPending = false;
+
+			return 1;
+		}
+
+		final CharBuffer out = CharBuffer.wrap(dst, off, len);
+
+		this.decode(out);
+
+		int read = out.position() - off;
+
+		if (read == 0 && len == 1 && !this.flushed)
+		{
+			/*
+			 * There is only room for one character but the next one is a
+			 * surrogate pair, so hand out the first half and keep the second.
+			 */
+			final CharBuffer pair = CharBuffer.allocate(2);
+
+			this.decode(pair);
+
+			if (pair.position() > 0)
+			{
+				dst[off] = pair.get(0);
+				read = 1;
+
+				if (pair.position() > 1)
+				{
+					this.pending = pair.get(1);
+					this.hasPending = true;
+				}
+			}
+		}
+
+		return read == 0 ? -1 : read;
+	}
+
+	/*
+	 * Decode as much as fits into the given buffer, reading more bytes as
+	 * needed.
+	 */
+	private void decode(final CharBuffer out) throws IOException
+	{
+		while (out.hasRemaining() && !this.flushed)
+		{
+			if (!this.bytes.hasRemaining())
+			{
+				if (!this.endOfInput)
+				{
+					this.fill();
+				}
+				else if (this.decoder.decode(this.bytes, out, true).isUnderflow()
+						&& this.decoder.flush(out).isUnderflow())
+				{
+					this.flushed = true;
+				}
+				else
+				{
+					return;
+				}
+
+				continue;
+			}
+
+			switch (this.kind)
+			{
+			case ASCII:
+				this.decodeAscii(out);
+				break;
+			case LATIN1:
+				this.decodeLatin1(out);
+				break;
+			case UTF8:
+				this.decodeUtf8(out);
+				break;
+			default:
+				break;
+			}
+
+			if (!out.hasRemaining() || !this.bytes.hasRemaining())
+			{
+				continue;
+			}
+
+			/*
+			 * Hand whatever the fast path stopped at to the decoder. An ASCII
+			 * byte always starts a new character in the charsets with a fast
+			 * path, so the bytes before it can be decoded as if they were all
+			 * there is.
+			 */
+			final int start = this.bytes.position();
+			final int limit = this.bytes.limit();
+			final int end = this.kind == ByteSource.OTHER ? limit : Swar.nextAscii(this.bytes, start, limit);
+
+			final CoderResult result;
+
+			if (end < limit)
+			{
+				this.bytes.limit(end);
+
+				try
+				{
+					result = this.decoder.decode(this.bytes, out, true);
+				}
+				finally
+				{
+					this.bytes.limit(limit);
+					this.decoder.reset();
+				}
+			}
+			else
+			{
+				result = this.decoder.decode(this.bytes, out, this.endOfInput);
+			}
+
+			if (result.isOverflow())
+			{
+				return;
+			}
+
+			if (this.bytes.position() == start)
+			{
+				// The rest of a character has not been read yet
+				this.fill();
+			}
+		}
+	}
+
+	/*
+	 * Widen ASCII bytes, stopping at anything else.
+	 */
+	private void decodeAscii(final CharBuffer out)
+	{
+		final int start = this.bytes.position();
+		final int stop = Swar.widenAscii(this.bytes, start, start + Math.min(this.bytes.remaining(), out.remaining()),
+				out.array(), out.arrayOffset() + out.position());
+
+		this.bytes.position(stop);
+		out.position(out.position() + stop - start);
+	}
+
+	/*
+	 * Every byte is the character with the same value.
+	 */
+	private void decodeLatin1(final CharBuffer out)
+	{
+		final byte[] src = this.bytes.array();
+		final char[] dst = out.array();
+		final int start = this.bytes.position();
+		final int count = Math.min(this.bytes.remaining(), out.remaining());
+		final int off = out.arrayOffset() + out.position();
+
+		for (int i = 0; i < count; ++i)
+		{
+			dst[off + i] = (char) (src[start + i] & 0xFF);
+		}
+
+		this.bytes.position(start + count);
+		out.position(out.position() + count);
+	}
+
+	/*
+	 * Decode well formed UTF-8, stopping at a malformed or incomplete
+	 * sequence, or a surrogate pair that does not fit.
+	 */
+	private void decodeUtf8(final CharBuffer out)
+	{
+		final byte[] src = this.bytes.array();
+		final char[] dst = out.array();
+		final int limit = this.bytes.limit();
+		final int end = out.arrayOffset() + out.limit();
+
+		int i = this.bytes.position();
+		int o = out.arrayOffset() + out.position();
+
+		while (i < limit && o < end)
+		{
+			final int b = src[i];
+
+			if (b >= 0)
+			{
+				final int stop = Swar.widenAscii(this.bytes, i, Math.min(limit, i + end - o), dst, o);
+
+				o += stop - i;
+				i = stop;
+			}
+			else if ((b & 0xE0) == 0xC0)
+			{
+				if ((b & 0x1E) == 0 || i + 1 >= limit || (src[i + 1] & 0xC0) != 0x80)
+				{
+					break;
+				}
+
+				dst[o++] = (char) ((b & 0x1F) << 6 | src[i + 1] & 0x3F);
+				i += 2;
+			}
+			else if ((b & 0xF0) == 0xE0)
+			{
+				if (i + 2 >= limit || (src[i + 1] & 0xC0) != 0x80 || (src[i + 2] & 0xC0) != 0x80)
+				{
+					break;
+				}
+
+				final char c = (char) ((b & 0x0F) << 12 | (src[i + 1] & 0x3F) << 6 | src[i + 2] & 0x3F);
+
+				if (c < 0x800 || Character.isSurrogate(c))
+				{
+					break;
+				}
+
+				dst[o++] = c;
+				i += 3;
+			}
+			else if ((b & 0xF8) == 0xF0)
+			{
+				if (i + 3 >= limit || o + 1 >= end || (src[i + 1] & 0xC0) != 0x80 || (src[i + 2] & 0xC0) != 0x80
+						|| (src[i + 3] & 0xC0) != 0x80)
+				{
+					break;
+				}
+
+				final int codePoint = (b & 0x07) << 18 | (src[i + 1] & 0x3F) << 12 | (src[i + 2] & 0x3F) << 6
+						| src[i + 3] & 0x3F;
+
+				if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT || codePoint > Character.MAX_CODE_POINT)
+				{
+					break;
+				}
+
+				dst[o++] = Character.highSurrogate(codePoint);
+				dst[o++] = Character.lowSurrogate(codePoint);
+				i += 4;
+			}
+			else
+			{
+				break;
+			}
+		}
+
+		this.bytes.position(i);
+		out.position(o - out.arrayOffset());
+	}
+
+	/*
+	 * Read more bytes after whatever has not been decoded yet.
+	 */
+	private void fill() throws IOException
+	{
+		this.bytes.compact();
+
+		try
+		{
+			int read;
+
+			do
+			{
+				if (this.channel != null)
+				{
+					read = this.channel.read(this.bytes);
+				}
+				else
+				{
+					read = this.in.read(this.bytes.array(), this.bytes.position(), this.bytes.remaining());
+
+					if (read > 0)
+					{
+						this.bytes.position(this.bytes.position() + read);
+					}
+				}
+			}
+			while (read == 0);
+
+			if (read < 0)
+			{
+				this.endOfInput = true;
+			}
+		}
+		finally
+		{
+			this.bytes.flip();
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+/**
+ * Reads characters straight out of a {@link CharSequence}. Strings and string
+ * builders are copied in bulk, anything else a character at a time.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+class CharSequenceSource extends CharacterSource
+{
+	private final CharSequence chars;
+
+	private int offset;
+
+	CharSequenceSource(final CharSequence chars)
+	{
+		this.chars = chars;
+	}
+
+	@Override
+	void close()
+	{
+		// Nothing to close
+	}
+
+	@Override
+	boolean isSeekable()
+	{
+		return true;
+	}
+
+	@Override
+	int read(final char[] dst, final int off, final int len)
+	{
+		final int length = this.chars.length();
+
+		if (this.offset >= length)
+		{
+			return -1;
+		}
+
+		final int start = this.offset;
+		final int end = start + Math.min(len, length - start);
+
+		if (this.chars instanceof String)
+		{
+			((String) this.chars).getChars(start, end, dst, off);
+		}
+		else if (this.chars instanceof StringBuilder)
+		{
+			((StringBuilder) this.chars).getChars(start, end, dst, off);
+		}
+		else if (this.chars instanceof StringBuffer)
+		{
+			((StringBuffer) this.chars).getChars(start, end, dst, off);
+		}
+		else
+		{
+			for (int i = start; i < end; ++i)
+			{
+				dst[off + i - start] = this.chars.charAt(i);
+			}
+		}
+
+		this.offset = end;
+
+		return end - start;
+	}
+
+	@Override
+	void seek(final long offset)
+	{
+		this.offset = (int) Math.min(offset, this.chars.length());
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.io.IOException;
+
+/**
+ * Where a {@link CharacterStream} gets its characters from when it refills its
+ * buffer.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+abstract class CharacterSource
+{
+	/**
+	 * Close the source.
+	 * 
+	 * @throws IOException
+	 *             if there is an error closing the source.
+	 */
+	abstract void close() throws IOException;
+
+	/**
+	 * Whether or not the source can {@link CharacterSource#seek(long) seek}.
+	 * Streams over a seekable source never need to hold on to characters for
+	 * a mark because they can always seek back to it.
+	 * 
+	 * @return whether or not the source can seek.
+	 */
+	boolean isSeekable()
+	{
+		return false;
+	}
+
+	/**
+	 * Read characters into the given array.
+	 * 
+	 * @param dst
+	 *            the array to read into
+	 * @param off
+	 *            the index in the array to start reading to
+	 * @param len
+	 *            the maximum number of characters to read, always greater than
+	 *            zero
+	 * @return the number of characters read or -1 at the end of the source.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	abstract int read(char[] dst, int off, int len) throws IOException;
+
+	/**
+	 * Position the source so that the next read starts at the given offset
+	 * from the start of the source.
+	 * 
+	 * @param offset
+	 *            the offset in characters
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	void seek(final long offset) throws IOException
+	{
+		throw new UnsupportedOperationException("Source is not seekable");
+	}
+
+	/**
+	 * Skip characters up to the next one that is one of the given delimiters
+	 * without handing them out, so that a source over bytes can search the
+	 * bytes instead of decoding them. The delimiter itself is left to be read.
+	 * Only seekable sources skip, since the stream lets go of its buffer
+	 * afterwards, and by default nothing is skipped.
+	 * 
+	 * @param first
+	 *            the first delimiter
+	 * @param second
+	 *            the second delimiter, which may repeat the first
+	 * @param third
+	 *            the third delimiter, which may repeat the others
+	 * @param lines
+	 *            set to the number of new lines skipped and, if there were
+	 *            any, the offset of the start of the line after the last one
+	 * @return the number of characters skipped or -1 if the source cannot skip
+	 *         this way, in which case nothing was skipped.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	long skipUntil(final char first, final char second, final char third, final long[] lines) throws IOException
+	{
+		return -1;
+	}
+}
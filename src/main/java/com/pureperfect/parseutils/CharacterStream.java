@@ -15,18 +15,38 @@
  */
 package com.pureperfect.parseutils;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.Arrays;
 
 /**
  * A stream of characters with a lot of useful methods. <b>WARNING:</b> THIS
  * CLASS IS NOT THREAD SAFE!! If you need thread safety use a synchronized
  * wrapper.
+ * <p>
+ * The stream keeps its own buffer of characters so that peeking, reading,
+ * marking and resetting only move an index around in a local array. The
+ * underlying reader is only touched when the buffer needs to be refilled.
+ * <p>
+ * Streams over bytes decode straight into the buffer instead of going through
+ * an {@link java.io.InputStreamReader}, with fast paths for US-ASCII,
+ * ISO-8859-1 and UTF-8.
+ * <p>
+ * Streams over files can be created with
+ * {@link CharacterStream#open(Path, Charset) open} which memory maps the file
+ * instead of going through a reader.
  */
 public class CharacterStream
 {
+	/**
+	 * The default size of the internal buffer.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
 	/**
 	 * The end of file character.
 	 */
@@ -37,11 +57,234 @@ public class CharacterStream
 	 */
 	public static final char NULL = 0;
 
-	private Position currentPosition;
+	private char[] buffer;
+
+	/*
+	 * Offset in the stream of the first character in the buffer.
+	 */
+	private long bufferOffset;
+
+	/*
+	 * Index of the next character to read in the buffer.
+	 */
+	private int cursor;
+
+	private int defaultMarkLimit = Integer.MAX_VALUE;
+
+	private boolean endOfInput;
+
+	/*
+	 * Incremented every time characters move in the buffer, which makes any
+	 * slices of the buffer invalid.
+	 */
+	private int generation;
+
+	/*
+	 * Offset in the stream up to which new lines have been recorded in the
+	 * line index.
+	 */
+	private long indexedOffset;
+
+	/*
+	 * The last position handed out, which is handed out again for as long as
+	 * the stream stays at the same offset.
+	 */
+	private Position lastPosition;
+
+	private boolean lazyPositions;
+
+	/*
+	 * End of the valid characters in the buffer.
+	 */
+	private int limit;
+
+	/*
+	 * Current line number when positions are updated as characters are read.
+	 */
+	private long line;
+
+	/*
+	 * Offset in the stream of the start of the current line when positions are
+	 * updated as characters are read.
+	 */
+	private long lineStart;
+
+	/*
+	 * Offset in the stream of the start of every line seen so far when
+	 * positions are worked out lazily.
+	 */
+	private LineIndex lineStarts;
+
+	/*
+	 * Line number and line start of the marked character.
+	 */
+	private long markedLine;
+
+	private long markedLineStart;
+
+	/*
+	 * Offset in the stream of the marked character, kept after the mark is no
+	 * longer retained so that lazy positions can still report where it was.
+	 */
+	private long markedOffset;
+
+	/*
+	 * Number of characters that may be read or peeked past the mark before it
+	 * is discarded.
+	 */
+	private int markLimit;
+
+	/*
+	 * Offset in the stream of the marked character or -1 if the mark is no
+	 * longer retained.
+	 */
+	private long markOffset;
+
+	/*
+	 * Number of marks on the mark stack.
+	 */
+	private int markStackDepth;
+
+	/*
+	 * Line numbers and line starts of the marks on the mark stack.
+	 */
+	private long[] markStackLines;
+
+	private long[] markStackLineStarts;
+
+	/*
+	 * Offsets in the stream of the marks on the mark stack.
+	 */
+	private long[] markStackOffsets;
+
+	/*
+	 * Position of the first character, which is only past zero for streams
+	 * over part of a larger input.
+	 */
+	private final Position origin;
+
+	/*
+	 * Offset in the stream of a slice that is being built or -1. The buffer
+	 * keeps everything from here on so that the slice stays in one piece.
+	 */
+	private long sliceOffset = -1;
+
+	private final CharacterSource source;
+
+	/**
+	 * Create a new stream over the given characters. The array is used as the
+	 * buffer of the stream as is, so it must not be changed while the stream is
+	 * in use.
+	 * 
+	 * @param chars
+	 *            the characters
+	 */
+	public CharacterStream(final char[] chars)
+	{
+		this(chars, 0, chars.length);
+	}
+
+	/**
+	 * Create a new stream over a range of the given characters. The array is
+	 * used as the buffer of the stream as is, so it must not be changed while
+	 * the stream is in use. Positions are relative to the start of the range.
+	 * 
+	 * @param chars
+	 *            the characters
+	 * @param off
+	 *            the index of the first character of the stream
+	 * @param len
+	 *            the number of characters in the stream
+	 */
+	public CharacterStream(final char[] chars, final int off, final int len)
+	{
+		// Everything is already in the buffer so there is nothing left to read
+		this(new CharSequenceSource(""), chars, new Position());
+
+		if (off < 0 || len < 0 || len > chars.length - off)
+		{
+			throw new IndexOutOfBoundsException();
+		}
+
+		this.bufferOffset = -off;
+		this.cursor = off;
+		this.limit = off + len;
+		this.endOfInput = true;
+	}
+
+	/**
+	 * Create a new stream over the given characters without going through a
+	 * reader. The characters must not be changed while the stream is in use.
+	 * 
+	 * @param chars
+	 *            the characters
+	 */
+	public CharacterStream(final CharSequence chars)
+	{
+		this(new CharSequenceSource(chars), Math.max(1, Math.min(chars.length(), CharacterStream.DEFAULT_BUFFER_SIZE)));
+	}
+
+	/**
+	 * Create a new stream that decodes the given bytes.
+	 * 
+	 * @param in
+	 *            the bytes
+	 * @param charset
+	 *            the charset of the bytes
+	 */
+	public CharacterStream(final InputStream in, final Charset charset)
+	{
+		this(in, charset, CharacterStream.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Create a new stream that decodes the given bytes using a buffer of the
+	 * given initial size. The buffer will grow beyond this size if a peek or a
+	 * mark requires it.
+	 * 
+	 * @param in
+	 *            the bytes
+	 * @param charset
+	 *            the charset of the bytes
+	 * @param bufferSize
+	 *            the initial size of the buffer
+	 */
+	public CharacterStream(final InputStream in, final Charset charset, final int bufferSize)
+	{
+		this(new ByteSource(in, charset, ByteSource.DEFAULT_BYTE_BUFFER_SIZE), bufferSize);
+	}
 
-	private final Reader in;
+	/**
+	 * Create a new stream that decodes the bytes read from the given channel,
+	 * which should be in blocking mode.
+	 * 
+	 * @param in
+	 *            the channel
+	 * @param charset
+	 *            the charset of the bytes
+	 */
+	public CharacterStream(final ReadableByteChannel in, final Charset charset)
+	{
+		this(in, charset, CharacterStream.DEFAULT_BUFFER_SIZE);
+	}
 
-	private Position markedPosition;
+	/**
+	 * Create a new stream that decodes the bytes read from the given channel,
+	 * which should be in blocking mode, using a buffer of the given initial
+	 * size. The buffer will grow beyond this size if a peek or a mark requires
+	 * it.
+	 * 
+	 * @param in
+	 *            the channel
+	 * @param charset
+	 *            the charset of the bytes
+	 * @param bufferSize
+	 *            the initial size of the buffer
+	 */
+	public CharacterStream(final ReadableByteChannel in, final Charset charset, final int bufferSize)
+	{
+		this(new ByteSource(in, charset, ByteSource.DEFAULT_BYTE_BUFFER_SIZE), bufferSize);
+	}
 
 	/**
 	 * Create a new stream from the given reader.
@@ -51,17 +294,84 @@ public class CharacterStream
 	 */
 	public CharacterStream(final Reader in)
 	{
-		if (!in.markSupported())
-		{
-			this.in = new BufferedReader(in);
-		}
-		else
-		{
-			this.in = in;
-		}
+		this(in, CharacterStream.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Create a new stream from the given reader using a buffer of the given
+	 * initial size. The buffer will grow beyond this size if a peek or a mark
+	 * requires it.
+	 * 
+	 * @param in
+	 *            the reader
+	 * @param bufferSize
+	 *            the initial size of the buffer
+	 */
+	public CharacterStream(final Reader in, final int bufferSize)
+	{
+		this(new ReaderSource(in), bufferSize);
+	}
 
-		this.currentPosition = new Position();
-		this.markedPosition = new Position();
+	CharacterStream(final CharacterSource source, final int bufferSize)
+	{
+		this(source, CharacterStream.allocate(bufferSize), new Position());
+	}
+
+	/**
+	 * Create a stream over part of a larger input, whose first character is
+	 * at the given position. The source must count offsets from the same
+	 * place as the position does.
+	 * 
+	 * @param source
+	 *            the source positioned at the first character
+	 * @param bufferSize
+	 *            the initial size of the buffer
+	 * @param origin
+	 *            the position of the first character
+	 */
+	CharacterStream(final CharacterSource source, final int bufferSize, final Position origin)
+	{
+		this(source, CharacterStream.allocate(bufferSize), origin);
+	}
+
+	private CharacterStream(final CharacterSource source, final char[] buffer, final Position origin)
+	{
+		this.source = source;
+		this.buffer = buffer;
+		this.origin = origin;
+
+		this.bufferOffset = origin.getPositionInStreamAsLong();
+		this.line = origin.getLineAsLong();
+		this.lineStart = this.bufferOffset - origin.getPositionInLineAsLong();
+
+		/*
+		 * The start of the stream is implicitly marked, but only for as long as
+		 * it fits in the initial buffer.
+		 */
+		this.markOffset = this.bufferOffset;
+		this.markLimit = buffer.length;
+		this.markedOffset = this.bufferOffset;
+		this.markedLine = this.line;
+		this.markedLineStart = this.lineStart;
+
+	}
+
+	/**
+	 * Read as long as the given matcher matches the next character in the
+	 * stream, appending what was read to the given builder. Characters are
+	 * copied from the buffer a run at a time.
+	 * 
+	 * @param m
+	 *            the matcher to use
+	 * @param dst
+	 *            the builder to append to
+	 * @return the number of characters read
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public int appendWhile(final Match m, final StringBuilder dst) throws IOException
+	{
+		return this.append(m, true, dst);
 	}
 
 	/**
@@ -72,7 +382,23 @@ public class CharacterStream
 	 */
 	public void close() throws IOException
 	{
-		this.in.close();
+		this.source.close();
+	}
+
+	/**
+	 * Discard the most recently pushed mark without moving the stream. Use
+	 * this once the alternative being tried has matched. When the last mark
+	 * is committed the buffer is free to drop everything before the current
+	 * position on its next refill.
+	 * 
+	 * @throws IllegalStateException
+	 *             if there are no marks on the mark stack.
+	 */
+	public void commit()
+	{
+		this.checkMarkStack();
+
+		this.markStackDepth--;
 	}
 
 	/**
@@ -82,7 +408,36 @@ public class CharacterStream
 	 */
 	public Position getCurrentPosition()
 	{
-		return this.currentPosition.copy();
+		final long offset = this.bufferOffset + this.cursor;
+
+		if (this.lastPosition == null || this.lastPosition.getPositionInStreamAsLong() != offset)
+		{
+			this.lastPosition = this.lazyPositions ? this.positionAt(offset) : new Position(this.line, offset
+					- this.lineStart, offset);
+		}
+
+		return this.lastPosition;
+	}
+
+	/**
+	 * Get the number of characters that may be read past a mark set with
+	 * {@link CharacterStream#mark() mark()} before the mark is discarded.
+	 * 
+	 * @return the default mark limit.
+	 */
+	public int getDefaultMarkLimit()
+	{
+		return this.defaultMarkLimit;
+	}
+
+	/**
+	 * Get the number of marks on the mark stack.
+	 * 
+	 * @return the number of marks pushed and not yet popped or committed.
+	 */
+	public int getMarkDepth()
+	{
+		return this.markStackDepth;
 	}
 
 	/**
@@ -92,7 +447,59 @@ public class CharacterStream
 	 */
 	public Position getMarkedPosition()
 	{
-		return this.markedPosition.copy();
+		if (this.lazyPositions)
+		{
+			return this.positionAt(this.markedOffset);
+		}
+
+		return new Position(this.markedLine, this.markedOffset - this.markedLineStart, this.markedOffset);
+	}
+
+	/**
+	 * Get the offset in the stream of the next character, which is the same as
+	 * the {@link Position#getPositionInStreamAsLong() position in the stream}
+	 * of the current position. Keeping offsets instead of positions costs
+	 * nothing, and they can be turned into positions later with
+	 * {@link CharacterStream#getPosition(long) getPosition}.
+	 * 
+	 * @return the current offset.
+	 */
+	public long getOffset()
+	{
+		return this.bufferOffset + this.cursor;
+	}
+
+	/**
+	 * Get the position of an offset obtained from
+	 * {@link CharacterStream#getOffset() getOffset}. Any offset up to the
+	 * furthest the stream has read can be found from the line index kept for
+	 * {@link CharacterStream#setLazyPositions(boolean) lazy positions}. Without
+	 * lazy positions only the current and marked offsets are known.
+	 * 
+	 * @param offset
+	 *            the offset in the stream
+	 * @return the position of the offset.
+	 * @throws IllegalArgumentException
+	 *             if the position of the offset is not known.
+	 */
+	public Position getPosition(final long offset)
+	{
+		if (offset == this.bufferOffset + this.cursor)
+		{
+			return this.getCurrentPosition();
+		}
+
+		if (offset == this.markedOffset)
+		{
+			return this.getMarkedPosition();
+		}
+
+		if (!this.lazyPositions || offset < this.origin.getPositionInStreamAsLong() || offset > Math.max(this.indexedOffset, this.bufferOffset + this.limit))
+		{
+			throw new IllegalArgumentException("Position of offset " + offset + " is not known");
+		}
+
+		return this.positionAt(offset);
 	}
 
 	/**
@@ -117,13 +524,26 @@ public class CharacterStream
 	 */
 	public boolean isAtNewLine() throws IOException
 	{
-		final char[] next = this.peek(2);
+		final char c = this.peekAt(0);
 
-		return next.length > 1 && next[0] == '\n' || next.length == 2 && next[0] == '\r' && next[1] == '\n';
+		return c == '\n' || c == '\r' && this.peekAt(1) == '\n';
 	}
 
 	/**
-	 * Mark the current position in the stream.
+	 * Whether or not positions are worked out when they are asked for instead
+	 * of as characters are read.
+	 * 
+	 * @return whether or not positions are lazy.
+	 * @see CharacterStream#setLazyPositions(boolean)
+	 */
+	public boolean isLazyPositions()
+	{
+		return this.lazyPositions;
+	}
+
+	/**
+	 * Mark the current position in the stream using the
+	 * {@link CharacterStream#getDefaultMarkLimit() default mark limit}.
 	 * 
 	 * @throws IOException
 	 *             in theory this should never occur as this class will
@@ -132,109 +552,709 @@ public class CharacterStream
 	 */
 	public void mark() throws IOException
 	{
-		this.markedPosition = this.currentPosition.copy();
-
-		this.in.mark(Integer.MAX_VALUE);
+		this.mark(this.defaultMarkLimit);
 	}
 
 	/**
-	 * Peek ahead at the next character in the stream.
+	 * Mark the current position in the stream. The stream only keeps the
+	 * characters needed to reset while no more than the given number of
+	 * characters have been read or peeked past the mark. Once more than that
+	 * have been read a {@link CharacterStream#reset() reset} will fail, unless
+	 * the stream was {@link CharacterStream#open(Path, Charset) opened} from a
+	 * file in which case it can always seek back to the mark.
 	 * 
-	 * @return the next character in the stream.
+	 * @param readAheadLimit
+	 *            the number of characters that may be read past the mark
 	 * @throws IOException
-	 *             if there is an error reading.
+	 *             in theory this should never occur as this class will
+	 *             implement mark support regardless of whether the underlying
+	 *             stream supports mark or not.
 	 */
-	public char peek() throws IOException
+	public void mark(final int readAheadLimit) throws IOException
 	{
-		final char[] peek = this.peek(1);
+		if (readAheadLimit < 0)
+		{
+			throw new IllegalArgumentException("Read ahead limit must not be negative: " + readAheadLimit);
+		}
 
-		return peek.length == 0 ? CharacterStream.EOF : peek[0];
+		this.markedLine = this.line;
+		this.markedLineStart = this.lineStart;
+		this.markedOffset = this.bufferOffset + this.cursor;
+		this.markOffset = this.markedOffset;
+		this.markLimit = readAheadLimit;
 	}
 
 	/**
-	 * Peek ahead at a specified number of characters. This method does not read
-	 * beyond the end of the stream, so the size of the array returned will not
-	 * match the length specified in the parameter if the end of the stream is
-	 * reaced.
+	 * Find the length of the longest match of the given pattern at the current
+	 * position without consuming it. The pattern is run over the buffer
+	 * directly, reading ahead only as far as the pattern can still match.
 	 * 
-	 * @param count
-	 *            the number of characters to peek at
-	 * @return an array of characters
+	 * @param p
+	 *            the pattern to match
+	 * @return the length of the longest match, which may be zero if the
+	 *         pattern matches the empty string, or -1 if there is no match.
 	 * @throws IOException
 	 *             if there is an error reading.
 	 */
-	public char[] peek(final int count) throws IOException
+	public int matchLength(final PatternMatch p) throws IOException
 	{
-		/*
-		 * We're going to mark so we can read ahead and reset.
-		 */
-		this.in.mark(count + 2);
+		int state = 0;
+		int length = p.isAccepting(state) ? 0 : -1;
 
-		final char[] results = new char[count];
+		for (int i = 0; this.limit - this.cursor > i || this.fill(i + 1); ++i)
+		{
+			state = p.next(state, this.buffer[this.cursor + i]);
 
-		this.in.read(results);
+			if (state < 0)
+			{
+				break;
+			}
 
-		this.in.reset();
+			if (p.isAccepting(state))
+			{
+				length = i + 1;
+			}
+		}
 
-		return this.trim(results);
+		return length;
 	}
 
 	/**
-	 * Determine whether or not the given characters match the next characters
-	 * in the stream.
+	 * Find the longest keyword that matches the next characters in the stream
+	 * without consuming it. Each character is looked at once no matter how
+	 * many keywords there are.
 	 * 
-	 * @param chars
-	 *            the characters to match
-	 * @return whether or not they match
+	 * @param m
+	 *            the keywords to match
+	 * @return the index of the longest matching keyword in the
+	 *         {@link StringMatch} or -1 if none of them match.
 	 * @throws IOException
 	 *             if there is an error reading.
 	 */
-	public boolean peekAndMatch(final String chars) throws IOException
+	public int matchLongest(final StringMatch m) throws IOException
 	{
-		return String.valueOf(this.peek(chars.length())).equals(chars);
+		return this.matchLongest(m, false);
 	}
 
 	/**
-	 * Read the next character in the stream.
-	 * 
-	 * @return the next character in the stream.
+	 * Find the longest keyword that matches the next characters in the stream,
+	 * optionally consuming it.
 	 * 
+	 * @param m
+	 *            the keywords to match
+	 * @param consume
+	 *            whether or not to read the keyword if one matches
+	 * @return the index of the longest matching keyword in the
+	 *         {@link StringMatch} or -1 if none of them match.
 	 * @throws IOException
 	 *             if there is an error reading.
 	 */
-	public char read() throws IOException
+	public int matchLongest(final StringMatch m, final boolean consume) throws IOException
 	{
-		final char c = (char) this.in.read();
+		int state = 0;
+		int longest = -1;
+		int length = 0;
 
-		if (c == CharacterStream.EOF)
+		for (int i = 0; this.limit - this.cursor > i || this.fill(i + 1); ++i)
 		{
-			// Don't update position if we are at end of file
-			return c;
+			state = m.next(state, this.buffer[this.cursor + i]);
+
+			if (state < 0)
+			{
+				break;
+			}
+
+			final int keyword = m.keywordAt(state);
+
+			if (keyword >= 0)
+			{
+				longest = keyword;
+				length = i + 1;
+			}
 		}
 
-		if (c == '\n')
+		if (consume && longest >= 0)
 		{
-			this.currentPosition.incrementLine();
+			this.advance(this.cursor + length);
 		}
-		else
+
+		return longest;
+	}
+
+	/**
+	 * Create a new stream that decodes the given file lazily from a memory
+	 * mapping instead of reading it through a reader. Marks on the stream are
+	 * plain offsets into the file, so resetting never needs to keep anything
+	 * in memory regardless of how far back the mark is.
+	 * 
+	 * @param file
+	 *            the file to read
+	 * @param charset
+	 *            the charset of the file
+	 * @return a stream over the file
+	 * @throws IOException
+	 *             if there is an error opening or mapping the file.
+	 */
+	public static CharacterStream open(final Path file, final Charset charset) throws IOException
+	{
+		return new CharacterStream(new MappedFileSource(file, charset), CharacterStream.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Peek ahead at the next character in the stream.
+	 * 
+	 * @return the next character in the stream.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public char peek() throws IOException
+	{
+		return this.peekAt(0);
+	}
+
+	/**
+	 * Peek ahead at a specified number of characters. This method does not read
+	 * beyond the end of the stream, so the size of the array returned will not
+	 * match the length specified in the parameter if the end of the stream is
+	 * reaced.
+	 * 
+	 * @param count
+	 *            the number of characters to peek at
+	 * @return an array of characters
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public char[] peek(final int count) throws IOException
+	{
+		final char[] results = new char[count];
+
+		final int read = this.peekInto(results, 0, count);
+
+		return read == count ? results : Arrays.copyOf(results, read);
+	}
+
+	/**
+	 * Determine whether or not the given characters match the next characters
+	 * in the stream.
+	 * 
+	 * @param chars
+	 *            the characters to match
+	 * @return whether or not they match
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public boolean peekAndMatch(final String chars) throws IOException
+	{
+		final int length = chars.length();
+
+		if (!this.fill(length))
+		{
+			return false;
+		}
+
+		for (int i = 0; i < length; ++i)
+		{
+			if (this.buffer[this.cursor + i] != chars.charAt(i))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Peek ahead at the character the given number of characters after the
+	 * current position without allocating anything. An offset of zero is the
+	 * same as {@link CharacterStream#peek() peek()}.
+	 * 
+	 * @param offset
+	 *            the number of characters to look past the current position
+	 * @return the character at the offset or {@link CharacterStream#EOF EOF}
+	 *         if the stream ends before it.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public char peekAt(final int offset) throws IOException
+	{
+		if (offset < 0)
+		{
+			throw new IllegalArgumentException("Offset must not be negative: " + offset);
+		}
+
+		if (this.limit - this.cursor <= offset && !this.fill(offset + 1))
+		{
+			return CharacterStream.EOF;
+		}
+
+		return this.buffer[this.cursor + offset];
+	}
+
+	/**
+	 * Peek ahead by copying the next characters in the stream into the given
+	 * array. Like {@link CharacterStream#peek(int) peek(int)} this does not
+	 * read beyond the end of the stream, so fewer characters than requested
+	 * are copied if the end of the stream is reached.
+	 * 
+	 * @param dst
+	 *            the array to copy into
+	 * @param off
+	 *            the index in the array to start copying to
+	 * @param len
+	 *            the number of characters to peek at
+	 * @return the number of characters copied
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public int peekInto(final char[] dst, final int off, final int len) throws IOException
+	{
+		if (off < 0 || len < 0 || len > dst.length - off)
+		{
+			throw new IndexOutOfBoundsException();
+		}
+
+		this.fill(len);
+
+		final int available = Math.min(len, this.limit - this.cursor);
+
+		System.arraycopy(this.buffer, this.cursor, dst, off, available);
+
+		return available;
+	}
+
+	/**
+	 * Reset to the most recently pushed mark and remove it from the mark
+	 * stack. Use this when the alternative being tried did not match and
+	 * will not be retried.
+	 * 
+	 * @throws IOException
+	 *             if there is an error reading.
+	 * @throws IllegalStateException
+	 *             if there are no marks on the mark stack.
+	 */
+	public void popMark() throws IOException
+	{
+		this.resetToMark();
+		this.commit();
+	}
+
+	/**
+	 * Push the current position onto the mark stack. Marks on the stack are
+	 * independent of the mark set by {@link CharacterStream#mark() mark()} and
+	 * can be nested as deep as needed. The buffer retains everything from the
+	 * oldest mark on the stack until that mark is popped or committed.
+	 */
+	public void pushMark()
+	{
+		if (this.markStackOffsets == null)
 		{
-			this.currentPosition.incrementPositionInLine();
+			this.markStackOffsets = new long[8];
+			this.markStackLines = new long[8];
+			this.markStackLineStarts = new long[8];
+		}
+		else if (this.markStackDepth == this.markStackOffsets.length)
+		{
+			this.markStackOffsets = Arrays.copyOf(this.markStackOffsets, this.markStackDepth * 2);
+			this.markStackLines = Arrays.copyOf(this.markStackLines, this.markStackDepth * 2);
+			this.markStackLineStarts = Arrays.copyOf(this.markStackLineStarts, this.markStackDepth * 2);
+		}
+
+		this.markStackOffsets[this.markStackDepth] = this.bufferOffset + this.cursor;
+		this.markStackLines[this.markStackDepth] = this.line;
+		this.markStackLineStarts[this.markStackDepth] = this.lineStart;
+		this.markStackDepth++;
+	}
+
+	/**
+	 * Read the next character in the stream.
+	 * 
+	 * @return the next character in the stream.
+	 * 
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public char read() throws IOException
+	{
+		if (this.cursor == this.limit && !this.fill(1))
+		{
+			// Don't update position if we are at end of file
+			return CharacterStream.EOF;
+		}
+
+		final char c = this.buffer[this.cursor++];
+
+		if (c == '\n' && !this.lazyPositions)
+		{
+			this.line++;
+			this.lineStart = this.bufferOffset + this.cursor;
 		}
 
 		return c;
 	}
 
 	/**
-	 * Reset current position to the marked position.
+	 * Read the longest match of the given pattern at the current position.
+	 * 
+	 * @param p
+	 *            the pattern to match
+	 * @return the characters matched or null if the pattern does not match.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public String read(final PatternMatch p) throws IOException
+	{
+		final int length = this.matchLength(p);
+
+		if (length < 0)
+		{
+			return null;
+		}
+
+		final String results = new String(this.buffer, this.cursor, length);
+
+		this.advance(this.cursor + length);
+
+		return results;
+	}
+
+	/**
+	 * Read a decimal floating point number such as <code>-12.5e3</code>. A
+	 * sign, digits with an optional decimal point and an optional exponent are
+	 * read, accumulating the digits directly from the buffer. The nearest
+	 * double is found without creating a string unless there are more than 19
+	 * significant digits. An exponent with no digits after it is left in the
+	 * stream, as is anything following the number.
+	 * 
+	 * @return the number read.
+	 * @throws ParseException
+	 *             if the stream does not start with a number, in which case
+	 *             nothing is read.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public double readDouble() throws IOException
+	{
+		final char first = this.peekAt(0);
+		final boolean negative = first == '-';
+
+		int i = negative || first == '+' ? 1 : 0;
+
+		long significand = 0;
+		int significantDigits = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean truncated = false;
+
+		for (boolean fraction = false; this.limit - this.cursor > i || this.fill(i + 1); ++i)
+		{
+			final char c = this.buffer[this.cursor + i];
+
+			if (c == '.' && !fraction)
+			{
+				fraction = true;
+				continue;
+			}
+
+			final int digit = c - '0';
+
+			if (digit < 0 || digit > 9)
+			{
+				break;
+			}
+
+			++digits;
+
+			if (significantDigits < Numbers.MAX_DIGITS)
+			{
+				significand = significand * 10 + digit;
+
+				if (significand != 0)
+				{
+					++significantDigits;
+				}
+
+				if (fraction)
+				{
+					--exponent;
+				}
+			}
+			else
+			{
+				if (!fraction)
+				{
+					++exponent;
+				}
+
+				truncated |= digit != 0;
+			}
+		}
+
+		if (digits == 0)
+		{
+			throw this.error("Expected a double");
+		}
+
+		final char e = this.peekAt(i);
+
+		if (e == 'e' || e == 'E')
+		{
+			final char sign = this.peekAt(i + 1);
+			final int start = sign == '-' || sign == '+' ? i + 2 : i + 1;
+
+			int j = start;
+			int value = 0;
+
+			for (; this.limit - this.cursor > j || this.fill(j + 1); ++j)
+			{
+				final int digit = this.buffer[this.cursor + j] - '0';
+
+				if (digit < 0 || digit > 9)
+				{
+					break;
+				}
+
+				// Past this the result is zero or infinite anyway
+				if (value < 100000)
+				{
+					value = value * 10 + digit;
+				}
+			}
+
+			if (j > start)
+			{
+				exponent += sign == '-' ? -value : value;
+				i = j;
+			}
+		}
+
+		final double results = truncated ? Double.parseDouble(new String(this.buffer, this.cursor, i)) : Numbers
+				.toDouble(negative, significand, exponent);
+
+		this.advance(this.cursor + i);
+
+		return results;
+	}
+
+	/**
+	 * Read a decimal integer such as <code>-42</code>, accumulating the digits
+	 * directly from the buffer. An optional sign and at least one digit are
+	 * read and anything following them is left in the stream.
+	 * 
+	 * @return the number read.
+	 * @throws ParseException
+	 *             if the stream does not start with an integer or it does not
+	 *             fit in an int, in which case nothing is read.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public int readInt() throws IOException
+	{
+		return (int) this.readInteger(Integer.MIN_VALUE, Integer.MAX_VALUE, "an int");
+	}
+
+	/**
+	 * Read a decimal integer such as <code>-42</code>, accumulating the digits
+	 * directly from the buffer. An optional sign and at least one digit are
+	 * read and anything following them is left in the stream.
+	 * 
+	 * @return the number read.
+	 * @throws ParseException
+	 *             if the stream does not start with an integer or it does not
+	 *             fit in a long, in which case nothing is read.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public long readLong() throws IOException
+	{
+		return this.readInteger(Long.MIN_VALUE, Long.MAX_VALUE, "a long");
+	}
+
+	/**
+	 * Read until the given matcher matches the next character in the stream.
+	 * The matching character is left in the stream.
+	 * 
+	 * @param m
+	 *            the matcher to use
+	 * @return the characters read, which will be empty if the next character
+	 *         matches.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public String readUntil(final Match m) throws IOException
+	{
+		final StringBuilder results = new StringBuilder();
+
+		this.append(m, false, results);
+
+		return results.toString();
+	}
+
+	/**
+	 * Read until the next characters in the stream match the given delimiter
+	 * or the end of the stream is reached. The delimiter is left in the stream.
+	 * 
+	 * @param delimiter
+	 *            the characters to stop at
+	 * @return the characters read, which will be empty if the stream is at the
+	 *         delimiter.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public String readUntil(final String delimiter) throws IOException
+	{
+		if (delimiter.isEmpty())
+		{
+			throw new IllegalArgumentException("Delimiter must not be empty");
+		}
+
+		final char first = delimiter.charAt(0);
+		final StringBuilder results = new StringBuilder();
+
+		while (this.cursor < this.limit || this.fill(1))
+		{
+			final char[] chars = this.buffer;
+			final int start = this.cursor;
+			final int end = this.limit;
+
+			int i = start;
+
+			while (i < end && chars[i] != first)
+			{
+				++i;
+			}
+
+			results.append(chars, start, i - start);
+
+			this.advance(i);
+
+			if (i < end)
+			{
+				if (this.peekAndMatch(delimiter))
+				{
+					break;
+				}
+
+				results.append(first);
+
+				this.advance(this.cursor + 1);
+			}
+		}
+
+		return results.toString();
+	}
+
+	/**
+	 * Read as long as the given matcher matches the next character in the
+	 * stream.
+	 * 
+	 * @param m
+	 *            the matcher to use
+	 * @return the characters read, which will be empty if the next character
+	 *         does not match.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public String readWhile(final Match m) throws IOException
+	{
+		final StringBuilder results = new StringBuilder();
+
+		this.append(m, true, results);
+
+		return results.toString();
+	}
+
+	/**
+	 * Reset current position to the marked position.
+	 * 
+	 * @throws IOException
+	 *             if more characters than the mark limit have been read past
+	 *             the mark.
+	 */
+	public void reset() throws IOException
+	{
+		if (!this.source.isSeekable()
+				&& (this.markOffset < 0 || this.bufferOffset + this.cursor - this.markOffset > this.markLimit))
+		{
+			throw new IOException("Cannot reset to mark at " + this.getMarkedPosition() + ": more than "
+					+ this.markLimit + " characters have been read past it");
+		}
+
+		this.moveTo(this.markOffset);
+		this.line = this.markedLine;
+		this.lineStart = this.markedLineStart;
+	}
+
+	/**
+	 * Reset to the most recently pushed mark, leaving it on the mark stack so
+	 * that another alternative can be tried from the same position.
+	 * 
+	 * @throws IOException
+	 *             if there is an error reading.
+	 * @throws IllegalStateException
+	 *             if there are no marks on the mark stack.
+	 */
+	public void resetToMark() throws IOException
+	{
+		this.checkMarkStack();
+
+		this.moveTo(this.markStackOffsets[this.markStackDepth - 1]);
+		this.line = this.markStackLines[this.markStackDepth - 1];
+		this.lineStart = this.markStackLineStarts[this.markStackDepth - 1];
+	}
+
+	/**
+	 * Set the number of characters that may be read past a mark set with
+	 * {@link CharacterStream#mark() mark()} before the mark is discarded. The
+	 * default is {@link Integer#MAX_VALUE}, which keeps everything read since
+	 * the mark.
+	 * 
+	 * @param defaultMarkLimit
+	 *            the default mark limit
+	 */
+	public void setDefaultMarkLimit(final int defaultMarkLimit)
+	{
+		if (defaultMarkLimit < 0)
+		{
+			throw new IllegalArgumentException("Default mark limit must not be negative: " + defaultMarkLimit);
+		}
+
+		this.defaultMarkLimit = defaultMarkLimit;
+	}
+
+	/**
+	 * Choose whether the position is updated as characters are read or worked
+	 * out when it is asked for. Lazy positions only move the offset in the
+	 * stream while reading and record where lines start a buffer at a time,
+	 * so reading does no work per character. Asking for a position then
+	 * costs a binary search over the line starts, which suits parsers that
+	 * only look at positions to report errors or to tag what they produce.
+	 * The start of every line is kept for the life of the stream, which takes
+	 * about four bytes a line, or 400 MB for 100 million lines.
 	 * 
-	 * @throws IOException
-	 *             if there is an error reading.
+	 * @param lazyPositions
+	 *            whether or not to work out positions lazily
+	 * @throws IllegalStateException
+	 *             if anything has been read or marked.
 	 */
-	public void reset() throws IOException
+	public void setLazyPositions(final boolean lazyPositions)
 	{
-		this.currentPosition = this.markedPosition.copy();
+		if (this.bufferOffset + this.cursor != this.origin.getPositionInStreamAsLong() || this.markStackDepth != 0)
+		{
+			throw new IllegalStateException("Position tracking can only be changed before reading");
+		}
 
-		this.in.reset();
+		this.lazyPositions = lazyPositions;
+		this.lastPosition = null;
+
+		if (lazyPositions)
+		{
+			this.lineStarts = new LineIndex(this.lineStart);
+			this.indexedOffset = this.bufferOffset + this.cursor;
+		}
+		else
+		{
+			this.lineStarts = null;
+		}
 	}
 
 	/**
@@ -247,15 +1267,22 @@ public class CharacterStream
 	 */
 	public void skip(final int count) throws IOException
 	{
-		for (int i = 0; i < count; ++i)
+		int remaining = count;
+
+		while (remaining > 0 && (this.cursor < this.limit || this.fill(1)))
 		{
-			this.read();
+			final int end = this.cursor + Math.min(remaining, this.limit - this.cursor);
+
+			remaining -= end - this.cursor;
+
+			this.advance(end);
 		}
 	}
 
 	/**
 	 * Read and skip as long as the given matcher matches the next character in
-	 * the stream.
+	 * the stream. The buffer is scanned a run at a time and the position is
+	 * updated once per run rather than once per character.
 	 * 
 	 * @param m
 	 *            the matcher to use
@@ -267,34 +1294,497 @@ public class CharacterStream
 	{
 		int count = 0;
 
-		for (char c = this.peek(); m.matches(c); c = this.peek())
+		while (this.cursor < this.limit || this.fill(1))
+		{
+			final char[] chars = this.buffer;
+			final int start = this.cursor;
+			final int end = this.limit;
+
+			final int i = CharacterStream.scan(m, chars, start, end, true);
+
+			count += i - start;
+
+			this.advance(i);
+
+			if (i < end)
+			{
+				break;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Skip the longest match of the given pattern at the current position.
+	 * 
+	 * @param p
+	 *            the pattern to match
+	 * @return the number of characters skipped or -1 if the pattern does not
+	 *         match, in which case nothing is skipped.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public int skip(final PatternMatch p) throws IOException
+	{
+		final int length = this.matchLength(p);
+
+		if (length > 0)
+		{
+			this.advance(this.cursor + length);
+		}
+
+		return length;
+	}
+
+	/**
+	 * Read and skip until the given matcher matches the next character in the
+	 * stream, which is left in the stream. When the matcher is a few ASCII
+	 * delimiters from {@link Matches#anyOf(String)} and the stream is over a
+	 * file {@link CharacterStream#open(Path, Charset) opened} in UTF-8 or
+	 * another ASCII compatible charset, whatever is not in the buffer yet is
+	 * skipped by searching the bytes of the file for the next delimiter,
+	 * without decoding anything before it. Streams with
+	 * {@link CharacterStream#setLazyPositions(boolean) lazy positions} read
+	 * through as usual since they index every line they pass.
+	 *
+	 * @param m
+	 *            the matcher to use
+	 * @return the number of characters skipped
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public long skipUntil(final Match m) throws IOException
+	{
+		final long[] lines = m instanceof DelimiterMatch && !this.lazyPositions ? new long[2] : null;
+
+		long count = 0;
+
+		while (this.cursor < this.limit || this.fill(1))
+		{
+			final int start = this.cursor;
+			final int end = this.limit;
+
+			final int i = CharacterStream.scan(m, this.buffer, start, end, false);
+
+			count += i - start;
+
+			this.advance(i);
+
+			if (i < end)
+			{
+				break;
+			}
+
+			if (lines != null)
+			{
+				final long skipped = ((DelimiterMatch) m).skipUntil(this.source, lines);
+
+				if (skipped >= 0)
+				{
+					/*
+					 * The source is past everything in the buffer, so start
+					 * again with an empty one where the source left off.
+					 */
+					this.generation++;
+					this.bufferOffset += this.limit + skipped;
+					this.cursor = 0;
+					this.limit = 0;
+
+					if (lines[0] > 0)
+					{
+						this.line += lines[0];
+						this.lineStart = lines[1];
+					}
+
+					count += skipped;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Read until the given matcher matches the next character in the stream
+	 * and return what was read as a {@link Slice} of the buffer instead of
+	 * copying it. The matching character is left in the stream.
+	 * 
+	 * @param m
+	 *            the matcher to use
+	 * @return the characters read, valid until the stream next refills.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public Slice sliceUntil(final Match m) throws IOException
+	{
+		return this.slice(m, false);
+	}
+
+	/**
+	 * Read as long as the given matcher matches the next character in the
+	 * stream and return what was read as a {@link Slice} of the buffer instead
+	 * of copying it.
+	 * 
+	 * @param m
+	 *            the matcher to use
+	 * @return the characters read, valid until the stream next refills.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	public Slice sliceWhile(final Match m) throws IOException
+	{
+		return this.slice(m, true);
+	}
+
+	int getGeneration()
+	{
+		return this.generation;
+	}
+
+	/*
+	 * Move the cursor forward to the given index in the buffer and update the
+	 * current position for everything in between.
+	 */
+	private void advance(final int end)
+	{
+		if (this.lazyPositions)
+		{
+			this.cursor = end;
+
+			return;
+		}
+
+		final char[] chars = this.buffer;
+
+		int lines = 0;
+		int lineStart = -1;
+
+		for (int i = this.cursor; i < end; ++i)
+		{
+			if (chars[i] == '\n')
+			{
+				++lines;
+				lineStart = i + 1;
+			}
+		}
+
+		if (lines > 0)
+		{
+			this.line += lines;
+			this.lineStart = this.bufferOffset + lineStart;
+		}
+
+		this.cursor = end;
+	}
+
+	private static char[] allocate(final int bufferSize)
+	{
+		if (bufferSize <= 0)
+		{
+			throw new IllegalArgumentException("Buffer size must be greater than zero: " + bufferSize);
+		}
+
+		return new char[bufferSize];
+	}
+
+	/*
+	 * Copy characters to the builder a run at a time for as long as whether
+	 * they match is the same as the given value.
+	 */
+	private int append(final Match m, final boolean matching, final StringBuilder dst) throws IOException
+	{
+		int count = 0;
+
+		while (this.cursor < this.limit || this.fill(1))
 		{
-			this.read();
-			count++;
+			final char[] chars = this.buffer;
+			final int start = this.cursor;
+			final int end = this.limit;
+
+			final int i = CharacterStream.scan(m, chars, start, end, matching);
+
+			dst.append(chars, start, i - start);
+			count += i - start;
+
+			this.advance(i);
+
+			if (i < end)
+			{
+				break;
+			}
 		}
 
 		return count;
 	}
 
+	private void checkMarkStack()
+	{
+		if (this.markStackDepth == 0)
+		{
+			throw new IllegalStateException("No marks have been pushed");
+		}
+	}
+
+	/*
+	 * Discard characters that are no longer needed and make room in the buffer
+	 * for at least the given number of characters after the cursor. Seekable
+	 * sources never need to keep anything for a mark.
+	 */
+	private void compact(final int count)
+	{
+		long start = this.bufferOffset + this.cursor;
+
+		if (!this.source.isSeekable())
+		{
+			if (this.markOffset >= 0 && start - this.markOffset + count > this.markLimit)
+			{
+				this.markOffset = -1;
+			}
+
+			if (this.markOffset >= 0)
+			{
+				start = Math.min(start, this.markOffset);
+			}
+
+			for (int i = 0; i < this.markStackDepth; ++i)
+			{
+				start = Math.min(start, this.markStackOffsets[i]);
+			}
+		}
+
+		if (this.sliceOffset >= 0)
+		{
+			start = Math.min(start, this.sliceOffset);
+		}
+
+		this.indexLines(start);
+
+		final int discarded = (int) (start - this.bufferOffset);
+		final int retained = this.limit - discarded;
+		final int required = this.cursor - discarded + count;
+
+		if (required > this.buffer.length)
+		{
+			final char[] grown = new char[Math.max(required, this.buffer.length * 2)];
+
+			System.arraycopy(this.buffer, discarded, grown, 0, retained);
+
+			this.buffer = grown;
+			this.generation++;
+		}
+		else if (discarded > 0)
+		{
+			System.arraycopy(this.buffer, discarded, this.buffer, 0, retained);
+			this.generation++;
+		}
+
+		this.bufferOffset = start;
+		this.cursor -= discarded;
+		this.limit = retained;
+	}
+
+	/*
+	 * Report unexpected input at the current position.
+	 */
+	private ParseException error(final String message)
+	{
+		return new ParseException(message, this.getCurrentPosition());
+	}
+
+	/*
+	 * Make sure there are at least count characters after the cursor. Returns
+	 * false if the end of the input was reached first.
+	 */
+	private boolean fill(final int count) throws IOException
+	{
+		while (this.limit - this.cursor < count)
+		{
+			if (this.endOfInput)
+			{
+				return false;
+			}
+
+			if (this.cursor + count > this.buffer.length || this.limit == this.buffer.length)
+			{
+				this.compact(count);
+			}
+
+			final int read = this.source.read(this.buffer, this.limit, this.buffer.length - this.limit);
+
+			if (read < 0)
+			{
+				this.endOfInput = true;
+
+				return false;
+			}
+
+			this.limit += read;
+		}
+
+		return true;
+	}
+
+	/*
+	 * Record the start of every line in the buffer up to the given offset
+	 * that has not been recorded yet. Lines are always recorded before the
+	 * buffer lets go of them, so everything between the last recorded offset
+	 * and the current position is still in the buffer.
+	 */
+	private void indexLines(final long offset)
+	{
+		if (!this.lazyPositions || offset <= this.indexedOffset)
+		{
+			return;
+		}
+
+		final char[] chars = this.buffer;
+		final int end = (int) (offset - this.bufferOffset);
+
+		for (int i = (int) (this.indexedOffset - this.bufferOffset); i < end; ++i)
+		{
+			if (chars[i] == '\n')
+			{
+				this.lineStarts.add(this.bufferOffset + i + 1);
+			}
+		}
+
+		this.indexedOffset = offset;
+	}
+
+	/*
+	 * Move the cursor to the given offset in the stream, seeking the source if
+	 * the offset is no longer in the buffer.
+	 */
+	private void moveTo(final long offset) throws IOException
+	{
+		if (offset >= this.bufferOffset && offset <= this.bufferOffset + this.limit)
+		{
+			this.cursor = (int) (offset - this.bufferOffset);
+
+			return;
+		}
+
+		this.indexLines(this.bufferOffset + this.limit);
+		this.source.seek(offset);
+
+		this.generation++;
+		this.bufferOffset = offset;
+		this.cursor = 0;
+		this.limit = 0;
+		this.endOfInput = false;
+	}
+
+	/*
+	 * Work out the position of the given offset from the line index.
+	 */
+	private Position positionAt(final long offset)
+	{
+		this.indexLines(offset);
+
+		final long line = this.lineStarts.lineOf(offset);
+
+		return new Position(this.origin.getLineAsLong() + line, offset - this.lineStarts.startOf(line), offset);
+	}
+
 	/*
-	 * Eliminate trailing null chars caused by reading past end of reader.
+	 * Read an optionally signed integer between the given bounds. The digits
+	 * are accumulated as a negative number, since the minimum has the larger
+	 * magnitude, and checked for overflow before each one is added.
 	 */
-	private char[] trim(final char[] actual)
+	private long readInteger(final long min, final long max, final String type) throws IOException
 	{
-		int stop = actual.length;
+		final char first = this.peekAt(0);
+		final boolean negative = first == '-';
+		final int start = negative || first == '+' ? 1 : 0;
+
+		final long bound = negative ? min : -max;
+		final long multiplyMin = bound / 10;
+
+		long results = 0;
+		int i = start;
 
-		while (stop > 0)
+		for (; this.limit - this.cursor > i || this.fill(i + 1); ++i)
 		{
-			final char c = actual[stop - 1];
+			final int digit = this.buffer[this.cursor + i] - '0';
 
-			if (c != CharacterStream.NULL)
+			if (digit < 0 || digit > 9)
 			{
 				break;
 			}
 
-			stop--;
+			if (results < multiplyMin || results * 10 < bound + digit)
+			{
+				throw this.error("Number too large for " + type);
+			}
+
+			results = results * 10 - digit;
+		}
+
+		if (i == start)
+		{
+			throw this.error("Expected " + type);
+		}
+
+		this.advance(this.cursor + i);
+
+		return negative ? results : -results;
+	}
+
+	/*
+	 * Find the end of the run of characters that match, or do not match,
+	 * starting at from. Compiled matchers scan the run themselves so that the
+	 * loop does not go through the interface for every character.
+	 */
+	private static int scan(final Match m, final char[] chars, final int from, final int to, final boolean matching)
+	{
+		if (m instanceof TableMatch)
+		{
+			return ((TableMatch) m).scan(chars, from, to, matching);
+		}
+
+		int i = from;
+
+		while (i < to && m.matches(chars[i]) == matching)
+		{
+			++i;
+		}
+
+		return i;
+	}
+
+	/*
+	 * Read a run of characters that match, or do not match, and return them as
+	 * a slice of the buffer.
+	 */
+	private Slice slice(final Match m, final boolean matching) throws IOException
+	{
+		final long start = this.bufferOffset + this.cursor;
+
+		this.sliceOffset = start;
+
+		try
+		{
+			while (this.cursor < this.limit || this.fill(1))
+			{
+				final char[] chars = this.buffer;
+				final int end = this.limit;
+
+				final int i = CharacterStream.scan(m, chars, this.cursor, end, matching);
+
+				this.advance(i);
+
+				if (i < end)
+				{
+					break;
+				}
+			}
+		}
+		finally
+		{
+			this.sliceOffset = -1;
 		}
 
-		return Arrays.copyOf(actual, stop);
+		return new Slice(this, this.buffer, (int) (start - this.bufferOffset), this.cursor, this.generation);
 	}
 }
\ No newline at end of file
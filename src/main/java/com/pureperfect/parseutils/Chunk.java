@@ -0,0 +1,122 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+
+/**
+ * A run of whole records from a file, made by
+ * {@link Chunks#split(Path, Charset, int, String) splitting} the file so that
+ * the chunks can be parsed at the same time. Each chunk knows the position of
+ * its first character in the whole file, so the streams it opens report the
+ * same positions as a stream over the whole file would.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class Chunk
+{
+	private final Charset charset;
+
+	/*
+	 * Byte offset in the file just past the end of the chunk.
+	 */
+	private final long end;
+
+	private final Path file;
+
+	/*
+	 * Byte offset in the file of the start of the chunk.
+	 */
+	private final long start;
+
+	private final Position startPosition;
+
+	Chunk(final Path file, final Charset charset, final long start, final long end, final Position startPosition)
+	{
+		this.file = file;
+		this.charset = charset;
+		this.start = start;
+		this.end = end;
+		this.startPosition = startPosition;
+	}
+
+	/**
+	 * Get the byte offset in the file just past the end of the chunk.
+	 * 
+	 * @return the end of the chunk in bytes.
+	 */
+	public long getEnd()
+	{
+		return this.end;
+	}
+
+	/**
+	 * Get the file the chunk is part of.
+	 * 
+	 * @return the file.
+	 */
+	public Path getFile()
+	{
+		return this.file;
+	}
+
+	/**
+	 * Get the byte offset in the file of the start of the chunk.
+	 * 
+	 * @return the start of the chunk in bytes.
+	 */
+	public long getStart()
+	{
+		return this.start;
+	}
+
+	/**
+	 * Get the position in the whole file of the first character of the chunk.
+	 * 
+	 * @return the position of the start of the chunk.
+	 */
+	public Position getStartPosition()
+	{
+		return this.startPosition;
+	}
+
+	/**
+	 * Open a new stream over the characters of the chunk. Streams are
+	 * independent of each other, so each one can be read by a different
+	 * thread.
+	 * 
+	 * @return a stream over the chunk
+	 * @throws IOException
+	 *             if there is an error opening or mapping the file.
+	 */
+	public CharacterStream open() throws IOException
+	{
+		return new CharacterStream(new MappedFileSource(this.file, this.charset,
+				MappedFileSource.DEFAULT_WINDOW_SIZE, this.start, this.end,
+				this.startPosition.getPositionInStreamAsLong()), CharacterStream.DEFAULT_BUFFER_SIZE,
+				this.startPosition);
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.file + "[" + this.start + ", " + this.end + ") at " + this.startPosition;
+	}
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Splits files into {@link Chunk chunks} of whole records that can be parsed
+ * in parallel, for example by submitting one task per chunk to an executor
+ * or fork/join pool.
+ * <p>
+ * The file is cut into equal parts and each cut is moved forward to just past
+ * the next record separator, so no record is split between chunks. To give each
+ * chunk its starting position the lines and characters of every chunk are then
+ * counted without decoding, by looking at the bytes a word at a time. Each
+ * chunk is counted in its own task on the executor that is given, or one after
+ * another on the calling thread when none is given, so that no threads are
+ * started behind the caller's back. This needs a charset in which ASCII bytes
+ * are always characters by themselves: UTF-8, US-ASCII or ISO-8859-1. Positions
+ * are exact for well formed input.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class Chunks
+{
+	/*
+	 * Bytes mapped at once while looking for a separator.
+	 */
+	private static final int SEARCH_WINDOW_SIZE = 1 << 20;
+
+	/*
+	 * Runs tasks on the thread that submits them.
+	 */
+	private static final Executor CALLING_THREAD = new Executor()
+	{
+		@Override
+		public void execute(final Runnable command)
+		{
+			command.run();
+		}
+	};
+
+	/**
+	 * Split a file at records that end with any character the given matcher
+	 * matches. In UTF-8 the matcher is only asked about ASCII characters,
+	 * since every other byte is part of a longer character.
+	 * 
+	 * @param file
+	 *            the file to split
+	 * @param charset
+	 *            the charset of the file
+	 * @param count
+	 *            the number of chunks to aim for
+	 * @param separator
+	 *            matches the last character of a record
+	 * @return at most count chunks, in order, that together cover the file.
+	 * @throws IOException
+	 *             if there is an error reading the file.
+	 */
+	public static List<Chunk> split(final Path file, final Charset charset, final int count, final Match separator)
+			throws IOException
+	{
+		return Chunks.split(file, charset, count, separator, Chunks.CALLING_THREAD);
+	}
+
+	/**
+	 * Split a file at records that end with any character the given matcher
+	 * matches, counting the chunks on the given executor.
+	 * 
+	 * @param file
+	 *            the file to split
+	 * @param charset
+	 *            the charset of the file
+	 * @param count
+	 *            the number of chunks to aim for
+	 * @param separator
+	 *            matches the last character of a record
+	 * @param executor
+	 *            runs the task that counts each chunk
+	 * @return at most count chunks, in order, that together cover the file.
+	 * @throws IOException
+	 *             if there is an error reading the file.
+	 * @see Chunks#split(Path, Charset, int, Match)
+	 */
+	public static List<Chunk> split(final Path file, final Charset charset, final int count, final Match separator,
+			final Executor executor) throws IOException
+	{
+		final boolean utf8 = "UTF-8".equals(charset.name());
+		final boolean[] table = new boolean[256];
+
+		for (int b = 0; b < table.length; ++b)
+		{
+			table[b] = (b < 0x80 || !utf8) && separator.matches(new String(new byte[] { (byte) b }, charset).charAt(0));
+		}
+
+		return Chunks.split(file, charset, count, null, table, executor);
+	}
+
+	/**
+	 * Split a file at records that end with the given separator, such as a
+	 * new line.
+	 * 
+	 * @param file
+	 *            the file to split
+	 * @param charset
+	 *            the charset of the file
+	 * @param count
+	 *            the number of chunks to aim for
+	 * @param separator
+	 *            the characters at the end of each record
+	 * @return at most count chunks, in order, that together cover the file.
+	 * @throws IOException
+	 *             if there is an error reading the file.
+	 */
+	public static List<Chunk> split(final Path file, final Charset charset, final int count, final String separator)
+			throws IOException
+	{
+		return Chunks.split(file, charset, count, separator, Chunks.CALLING_THREAD);
+	}
+
+	/**
+	 * Split a file at records that end with the given separator, counting the
+	 * chunks on the given executor.
+	 * 
+	 * @param file
+	 *            the file to split
+	 * @param charset
+	 *            the charset of the file
+	 * @param count
+	 *            the number of chunks to aim for
+	 * @param separator
+	 *            the characters at the end of each record
+	 * @param executor
+	 *            runs the task that counts each chunk
+	 * @return at most count chunks, in order, that together cover the file.
+	 * @throws IOException
+	 *             if there is an error reading the file.
+	 * @see Chunks#split(Path, Charset, int, String)
+	 */
+	public static List<Chunk> split(final Path file, final Charset charset, final int count, final String separator,
+			final Executor executor) throws IOException
+	{
+		if (separator.isEmpty())
+		{
+			throw new IllegalArgumentException("Separator must not be empty");
+		}
+
+		return Chunks.split(file, charset, count, separator.getBytes(charset), null, executor);
+	}
+
+	/*
+	 * Count the new lines and chars between the given offsets and find the
+	 * last new line. Returns { lines, chars, offset of the last new line or -1 }.
+	 */
+	private static long[] count(final FileChannel channel, final long from, final long to, final boolean utf8)
+			throws IOException
+	{
+		long lines = 0;
+		long chars = 0;
+		long lastNewLine = -1;
+
+		for (long position = from; position < to;)
+		{
+			final int length = (int) Math.min(MappedFileSource.DEFAULT_WINDOW_SIZE, to - position);
+			final ByteBuffer window = Chunks.map(channel, position, length);
+			final int found = Swar.count(window, 0, length, (byte) '\n');
+
+			if (found > 0)
+			{
+				int i = length - 1;
+
+				while (window.get(i) != '\n')
+				{
+					--i;
+				}
+
+				lines += found;
+				lastNewLine = position + i;
+			}
+
+			chars += utf8 ? Swar.countUtf8Chars(window, 0, length) : length;
+			position += length;
+		}
+
+		return new long[] { lines, chars, lastNewLine };
+	}
+
+	/*
+	 * Count every chunk but the last, each in its own task on the executor.
+	 * The result for each chunk is { lines, chars, chars after the last new
+	 * line }.
+	 */
+	private static List<Future<long[]>> count(final FileChannel channel, final List<Long> bounds, final boolean utf8,
+			final Executor executor)
+	{
+		final List<Future<long[]>> tasks = new ArrayList<Future<long[]>>(bounds.size());
+
+		for (int i = 0; i + 2 < bounds.size(); ++i)
+		{
+			final long from = bounds.get(i);
+			final long to = bounds.get(i + 1);
+
+			final FutureTask<long[]> task = new FutureTask<long[]>(new Callable<long[]>()
+			{
+				@Override
+				public long[] call() throws IOException
+				{
+					final long[] counted = Chunks.count(channel, from, to, utf8);
+
+					if (counted[2] >= 0)
+					{
+						counted[2] = Chunks.count(channel, counted[2] + 1, to, utf8)[1];
+					}
+
+					return counted;
+				}
+			});
+
+			tasks.add(task);
+			executor.execute(task);
+		}
+
+		return tasks;
+	}
+
+	/*
+	 * Find the offset just past the first separator at or after from, or the
+	 * end of the file if there is none. The separator is either a sequence of
+	 * bytes or a table of bytes that each end a record.
+	 */
+	private static long find(final FileChannel channel, final long from, final long size, final byte[] separator,
+			final boolean[] table) throws IOException
+	{
+		final int overlap = separator == null ? 0 : separator.length - 1;
+		final int windowSize = Math.max(Chunks.SEARCH_WINDOW_SIZE, overlap * 2 + 1);
+
+		for (long position = from; position < size;)
+		{
+			final int length = (int) Math.min(windowSize, size - position);
+			final ByteBuffer window = Chunks.map(channel, position, length);
+
+			if (table != null)
+			{
+				for (int i = 0; i < length; ++i)
+				{
+					if (table[window.get(i) & 0xFF])
+					{
+						return position + i + 1;
+					}
+				}
+			}
+			else
+			{
+				for (int i = Swar.indexOf(window, 0, length, separator[0]); i >= 0 && i + overlap < length; i = Swar
+						.indexOf(window, i + 1, length, separator[0]))
+				{
+					if (Chunks.startsWith(window, i, separator))
+					{
+						return position + i + separator.length;
+					}
+				}
+			}
+
+			if (position + length == size)
+			{
+				break;
+			}
+
+			// Look at the end of this window again in case a separator spans it
+			position += length - overlap;
+		}
+
+		return size;
+	}
+
+	/*
+	 * Get the result of a finished task, unwrapping any IOException.
+	 */
+	private static long[] get(final Future<long[]> future) throws IOException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+
+			throw new InterruptedIOException("Interrupted while counting lines");
+		}
+		catch (final ExecutionException e)
+		{
+			if (e.getCause() instanceof IOException)
+			{
+				throw (IOException) e.getCause();
+			}
+
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private static ByteBuffer map(final FileChannel channel, final long position, final int length)
+			throws IOException
+	{
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.nativeOrder());
+	}
+
+	/*
+	 * Cut the file, then count each chunk but the last on the executor to
+	 * work out where the chunks start.
+	 */
+	private static List<Chunk> split(final Path file, final Charset charset, final int count,
+			final byte[] separator, final boolean[] table, final Executor executor) throws IOException
+	{
+		if (count < 1)
+		{
+			throw new IllegalArgumentException("Count must be positive: " + count);
+		}
+
+		if (!MappedFileSource.isAsciiCompatible(charset))
+		{
+			throw new IllegalArgumentException("Cannot split " + charset + " without decoding it");
+		}
+
+		final boolean utf8 = "UTF-8".equals(charset.name());
+		final int length = separator == null ? 1 : separator.length;
+
+		final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+
+		List<Future<long[]>> counts = new ArrayList<Future<long[]>>();
+
+		try
+		{
+			final long size = channel.size();
+			final List<Long> bounds = new ArrayList<Long>(count + 1);
+
+			bounds.add(0L);
+
+			for (int i = 1; i < count; ++i)
+			{
+				final long previous = bounds.get(bounds.size() - 1);
+				final long cut = Chunks.find(channel, Math.max(previous, size / count * i - length), size, separator,
+						table);
+
+				if (cut > previous && cut < size)
+				{
+					bounds.add(cut);
+				}
+			}
+
+			bounds.add(size);
+
+			counts = Chunks.count(channel, bounds, utf8, executor);
+			final List<Chunk> chunks = new ArrayList<Chunk>(bounds.size() - 1);
+
+			long line = 0;
+			long positionInLine = 0;
+			long positionInStream = 0;
+
+			for (int i = 0; i + 1 < bounds.size(); ++i)
+			{
+				chunks.add(new Chunk(file, charset, bounds.get(i), bounds.get(i + 1), new Position(line,
+						positionInLine, positionInStream)));
+
+				if (i < counts.size())
+				{
+					final long[] counted = Chunks.get(counts.get(i));
+
+					line += counted[0];
+					positionInLine = counted[0] > 0 ? counted[2] : positionInLine + counted[1];
+					positionInStream += counted[1];
+				}
+			}
+
+			return chunks;
+		}
+		finally
+		{
+			// Tasks that are still waiting are of no use once anything fails
+			for (final Future<long[]> future : counts)
+			{
+				future.cancel(true);
+			}
+
+			channel.close();
+		}
+	}
+
+	private static boolean startsWith(final ByteBuffer window, final int index, final byte[] prefix)
+	{
+		for (int i = 1; i < prefix.length; ++i)
+		{
+			if (window.get(index + i) != prefix[i])
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private Chunks()
+	{
+		// Hide constructor only static methods in this class
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.io.IOException;
+
+/**
+ * A table matcher for up to {@link DelimiterMatch#MAX_DELIMITERS} characters,
+ * such as a newline or a field separator and a quote. Scanning for the next
+ * delimiter compares the characters against the delimiters directly with a
+ * {@link DelimiterScanner}, which is cheaper than a table lookup and uses the
+ * Vector API where it is available. It is still a {@link TableMatch}, so it
+ * folds with other compiled matchers.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+class DelimiterMatch extends TableMatch
+{
+	/**
+	 * The most delimiters that are compared directly.
+	 */
+	static final int MAX_DELIMITERS = 3;
+
+	private static final DelimiterScanner SCANNER = DelimiterScanner.get();
+
+	private final char first;
+
+	private final char second;
+
+	private final char third;
+
+	/**
+	 * Create a matcher for the given delimiters.
+	 * 
+	 * @param delimiters
+	 *            between one and {@link DelimiterMatch#MAX_DELIMITERS}
+	 *            characters
+	 */
+	DelimiterMatch(final String delimiters)
+	{
+		super(DelimiterMatch.table(delimiters));
+
+		if (delimiters.isEmpty() || delimiters.length() > DelimiterMatch.MAX_DELIMITERS)
+		{
+			throw new IllegalArgumentException("Between 1 and " + DelimiterMatch.MAX_DELIMITERS
+					+ " delimiters are required: " + delimiters);
+		}
+
+		/*
+		 * Repeat the last delimiter so that every comparison is always made.
+		 */
+		this.first = delimiters.charAt(0);
+		this.second = delimiters.charAt(Math.min(1, delimiters.length() - 1));
+		this.third = delimiters.charAt(delimiters.length() - 1);
+	}
+
+	/**
+	 * Compare the character against each delimiter.
+	 * 
+	 * @return whether or not the character is a delimiter.
+	 */
+	@Override
+	public boolean matches(final char c)
+	{
+		return c == this.first || c == this.second || c == this.third;
+	}
+
+	@Override
+	int scan(final char[] chars, final int from, final int to, final boolean matching)
+	{
+		return DelimiterMatch.SCANNER.scan(chars, from, to, this.first, this.second, this.third, matching);
+	}
+
+	/**
+	 * Skip the source up to the next delimiter without reading the characters
+	 * before it.
+	 * 
+	 * @param source
+	 *            the source to skip
+	 * @param lines
+	 *            set to the number of new lines skipped and the start of the
+	 *            last line
+	 * @return the number of characters skipped or -1 if the source cannot skip
+	 *         to these delimiters.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 * @see CharacterSource#skipUntil(char, char, char, long[])
+	 */
+	long skipUntil(final CharacterSource source, final long[] lines) throws IOException
+	{
+		return source.skipUntil(this.first, this.second, this.third, lines);
+	}
+
+	/*
+	 * Build the table for the given delimiters.
+	 */
+	private static long[] table(final String delimiters)
+	{
+		final long[] bits = new long[TableMatch.FULL_LENGTH];
+
+		for (int i = 0; i < delimiters.length(); ++i)
+		{
+			final char c = delimiters.charAt(i);
+
+			bits[c >>> 6] |= 1L << c;
+		}
+
+		return bits;
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+
+/**
+ * Finds the end of a run of characters that are, or are not, one of up to
+ * three delimiters. This version compares a character at a time. On Java 17
+ * and later the jar also contains a version that compares a whole vector of
+ * characters at a time with the incubating Vector API, which is used instead
+ * when the <code>jdk.incubator.vector</code> module has been added with
+ * <code>--add-modules jdk.incubator.vector</code>. Setting the system property
+ * {@link DelimiterScanner#VECTOR_PROPERTY} to <code>false</code> turns it off.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+class DelimiterScanner
+{
+	/**
+	 * System property that turns the vector scanner off when set to
+	 * <code>false</code>.
+	 */
+	static final String VECTOR_PROPERTY = "com.pureperfect.parseutils.vector";
+
+	/*
+	 * The vector scanner, which is only in the Java 17 part of the jar.
+	 */
+	private static final String VECTOR_SCANNER = "com.pureperfect.parseutils.VectorDelimiterScanner";
+
+	/**
+	 * Get the fastest scanner available.
+	 * 
+	 * @return the vector scanner if it can be used, otherwise the scalar one.
+	 */
+	static DelimiterScanner get()
+	{
+		final DelimiterScanner vector = DelimiterScanner.vector();
+
+		return vector == null ? new DelimiterScanner() : vector;
+	}
+
+	/**
+	 * Get the vector scanner.
+	 * 
+	 * @return the vector scanner or null if this is not Java 17 or later, the
+	 *         Vector API module has not been added or it has been turned off.
+	 */
+	static DelimiterScanner vector()
+	{
+		if (!Boolean.parseBoolean(System.getProperty(DelimiterScanner.VECTOR_PROPERTY, "true")))
+		{
+			return null;
+		}
+
+		try
+		{
+			final DelimiterScanner results = (DelimiterScanner) Class.forName(DelimiterScanner.VECTOR_SCANNER)
+					.getDeclaredConstructor().newInstance();
+
+			/*
+			 * The Vector API is still incubating, so make sure everything the
+			 * scanner calls links and works on this JVM before relying on it.
+			 */
+			final char[] test = new char[256];
+
+			Arrays.fill(test, 'a');
+			test[200] = ',';
+
+			if (results.scan(test, 0, test.length, ',', ';', ';', false) != 200
+					|| results.scan(test, 200, test.length, ',', ';', ';', true) != 201)
+			{
+				return null;
+			}
+
+			return results;
+		}
+		catch (final InvocationTargetException e)
+		{
+			/*
+			 * The scanner could not be created, most likely because the Vector
+			 * API failed to link when its species was looked up.
+			 */
+			return null;
+		}
+		catch (final Exception e)
+		{
+			return null;
+		}
+		catch (final LinkageError e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Find the end of the run starting at from.
+	 * 
+	 * @param chars
+	 *            the characters to scan
+	 * @param from
+	 *            the index to start at
+	 * @param to
+	 *            the index to stop at
+	 * @param first
+	 *            the first delimiter
+	 * @param second
+	 *            the second delimiter, which may repeat the first
+	 * @param third
+	 *            the third delimiter, which may repeat the second
+	 * @param matching
+	 *            true to find the end of a run of delimiters, false to find
+	 *            the next delimiter
+	 * @return the index of the first character that ends the run or to.
+	 */
+	int scan(final char[] chars, final int from, final int to, final char first, final char second,
+			final char third, final boolean matching)
+	{
+		int i = from;
+
+		if (matching)
+		{
+			while (i < to)
+			{
+				final char c = chars[i];
+
+				if (c != first && c != second && c != third)
+				{
+					break;
+				}
+
+				++i;
+			}
+		}
+		else
+		{
+			while (i < to)
+			{
+				final char c = chars[i];
+
+				if (c == first || c == second || c == third)
+				{
+					break;
+				}
+
+				++i;
+			}
+		}
+
+		return i;
+	}
+}
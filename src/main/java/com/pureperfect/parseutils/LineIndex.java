@@ -0,0 +1,169 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.util.Arrays;
+
+/**
+ * The offset in the stream of the start of every line seen so far, for
+ * working out positions lazily. Every start is kept since a position can be
+ * asked for at any offset that has been read, so the index grows with the
+ * input, but it only takes about four bytes a line: starts are kept as int
+ * distances from the start of a block of up to
+ * {@link LineIndex#BLOCK_SIZE} lines, and only the first line of each block
+ * is kept as a long. A 20 GB log of 100 million lines costs about 400 MB. A
+ * block ends early on a line more than {@link Integer#MAX_VALUE} characters
+ * long. Blocks are allocated as needed, so the index never copies more than
+ * the small arrays of block starts when it grows.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+class LineIndex
+{
+	/**
+	 * The most lines in a block.
+	 */
+	static final int BLOCK_SIZE = 1024;
+
+	/*
+	 * Offset of the first line in each block.
+	 */
+	private long[] bases = new long[16];
+
+	private int blocks;
+
+	/*
+	 * Distance of the start of each line in each block from the first.
+	 */
+	private int[][] deltas = new int[16][];
+
+	/*
+	 * Line number of the first line in each block.
+	 */
+	private long[] firstLines = new long[16];
+
+	/*
+	 * Number of lines in the last block.
+	 */
+	private int last;
+
+	/**
+	 * Create an index of one line.
+	 * 
+	 * @param start
+	 *            the offset of the start of the first line
+	 */
+	LineIndex(final long start)
+	{
+		this.bases[0] = start;
+		this.deltas[0] = new int[LineIndex.BLOCK_SIZE];
+		this.blocks = 1;
+		this.last = 1;
+	}
+
+	/**
+	 * Add the start of the next line.
+	 * 
+	 * @param start
+	 *            the offset of the start of the line, which must be after the
+	 *            start of the last one
+	 */
+	void add(final long start)
+	{
+		final long delta = start - this.bases[this.blocks - 1];
+
+		if (this.last == LineIndex.BLOCK_SIZE || delta > Integer.MAX_VALUE)
+		{
+			this.addBlock(start);
+		}
+		else
+		{
+			this.deltas[this.blocks - 1][this.last++] = (int) delta;
+		}
+	}
+
+	/**
+	 * Find the line that the given offset is on.
+	 * 
+	 * @param offset
+	 *            the offset, which must not be before the start of the first
+	 *            line
+	 * @return the line, counting from zero.
+	 */
+	long lineOf(final long offset)
+	{
+		int block = Arrays.binarySearch(this.bases, 0, this.blocks, offset);
+
+		if (block < 0)
+		{
+			block = -block - 2;
+		}
+
+		final int lines = block == this.blocks - 1 ? this.last
+				: (int) (this.firstLines[block + 1] - this.firstLines[block]);
+		final long delta = offset - this.bases[block];
+
+		int line = delta > Integer.MAX_VALUE ? lines - 1 : Arrays.binarySearch(this.deltas[block], 0, lines,
+				(int) delta);
+
+		if (line < 0)
+		{
+			line = -line - 2;
+		}
+
+		return this.firstLines[block] + line;
+	}
+
+	/**
+	 * Get the start of a line.
+	 * 
+	 * @param line
+	 *            the line, counting from zero
+	 * @return the offset of the start of the line.
+	 */
+	long startOf(final long line)
+	{
+		int block = Arrays.binarySearch(this.firstLines, 0, this.blocks, line);
+
+		if (block < 0)
+		{
+			block = -block - 2;
+		}
+
+		return this.bases[block] + this.deltas[block][(int) (line - this.firstLines[block])];
+	}
+
+	/*
+	 * Start a new block with the given line.
+	 */
+	private void addBlock(final long start)
+	{
+		if (this.blocks == this.bases.length)
+		{
+			this.bases = Arrays.copyOf(this.bases, this.blocks * 2);
+			this.deltas = Arrays.copyOf(this.deltas, this.blocks * 2);
+			this.firstLines = Arrays.copyOf(this.firstLines, this.blocks * 2);
+		}
+
+		this.bases[this.blocks] = start;
+		this.deltas[this.blocks] = new int[LineIndex.BLOCK_SIZE];
+		this.firstLines[this.blocks] = this.firstLines[this.blocks - 1] + this.last;
+		this.blocks++;
+		this.last = 1;
+	}
+}
@@ -0,0 +1,511 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decodes characters lazily from a memory mapped file. Large files are mapped
+ * a window at a time since a single mapping is limited to 2 GB.
+ * <p>
+ * Seeking is done by remembering the byte offset of a character offset every
+ * so often while reading. A seek jumps to the nearest such checkpoint before
+ * the requested offset and decodes forward from there, so it costs at most
+ * {@link MappedFileSource#CHECKPOINT_INTERVAL} characters of decoding no
+ * matter how far back it goes. This assumes the charset decodes each
+ * character independently of what came before, which is true of everything
+ * but the shift-state encodings such as ISO-2022.
+ * <p>
+ * For UTF-8 and the other charsets that encode ASCII as itself, runs of ASCII
+ * are found and widened to chars eight bytes at a time with {@link Swar}, and
+ * only the bytes in between are passed to the decoder. Skipping to an ASCII
+ * delimiter searches the bytes for it the same way and counts the characters
+ * in between without decoding them, which assumes that UTF-8 is well formed.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+class MappedFileSource extends CharacterSource
+{
+	/**
+	 * Number of characters between seek checkpoints.
+	 */
+	static final int CHECKPOINT_INTERVAL = 65536;
+
+	/**
+	 * Default size of the mapped window.
+	 */
+	static final int DEFAULT_WINDOW_SIZE = 1 << 28;
+
+	/**
+	 * Smallest size of the mapped window, which has to hold the longest UTF-8
+	 * sequence for the window to move past it.
+	 */
+	static final int MIN_WINDOW_SIZE = 4;
+
+	/*
+	 * Charsets that decode ASCII bytes as themselves and never carry state
+	 * from one character to the next.
+	 */
+	private static final Set<String> ASCII_COMPATIBLE = new HashSet<String>();
+
+	static
+	{
+		MappedFileSource.ASCII_COMPATIBLE.add("UTF-8");
+		MappedFileSource.ASCII_COMPATIBLE.add("US-ASCII");
+		MappedFileSource.ASCII_COMPATIBLE.add("ISO-8859-1");
+	}
+
+	/*
+	 * Whether or not ASCII bytes can be copied without the decoder.
+	 */
+	private final boolean ascii;
+
+	private final FileChannel channel;
+
+	/*
+	 * Character offsets of the checkpoints.
+	 */
+	private long[] checkpointChars = new long[16];
+
+	/*
+	 * Byte offsets of the checkpoints.
+	 */
+	private long[] checkpointBytes = new long[16];
+
+	private int checkpoints;
+
+	private final CharsetDecoder decoder;
+
+	private boolean flushed;
+
+	private boolean hasPending;
+
+	/*
+	 * Offset of the next character to be returned by read.
+	 */
+	private long offset;
+
+	/*
+	 * Second half of a surrogate pair that did not fit in the last read.
+	 */
+	private char pending;
+
+	private final long size;
+
+	/*
+	 * Whether or not the charset is UTF-8 rather than one byte per character.
+	 */
+	private final boolean utf8;
+
+	private ByteBuffer window;
+
+	private final int windowSize;
+
+	private long windowStart;
+
+	MappedFileSource(final Path file, final Charset charset) throws IOException
+	{
+		this(file, charset, MappedFileSource.DEFAULT_WINDOW_SIZE);
+	}
+
+	MappedFileSource(final Path file, final Charset charset, final int windowSize) throws IOException
+	{
+		this(file, charset, windowSize, 0, Long.MAX_VALUE, 0);
+	}
+
+	/**
+	 * Create a source over part of a file.
+	 * 
+	 * @param file
+	 *            the file to read
+	 * @param charset
+	 *            the charset of the file
+	 * @param windowSize
+	 *            the most bytes to map at once, at least
+	 *            {@link MappedFileSource#MIN_WINDOW_SIZE}
+	 * @param start
+	 *            the byte offset to start at, which must be the start of a
+	 *            character
+	 * @param end
+	 *            the byte offset to stop at, capped at the size of the file
+	 * @param startOffset
+	 *            the character offset of the start, which is where offsets
+	 *            given to {@link MappedFileSource#seek(long) seek} count from
+	 * @throws IOException
+	 *             if there is an error opening or mapping the file.
+	 * @throws IllegalArgumentException
+	 *             if the window is too small.
+	 */
+	MappedFileSource(final Path file, final Charset charset, final int windowSize, final long start,
+			final long end, final long startOffset) throws IOException
+	{
+		if (windowSize < MappedFileSource.MIN_WINDOW_SIZE)
+		{
+			throw new IllegalArgumentException("Window size must be at least " + MappedFileSource.MIN_WINDOW_SIZE
+					+ ": " + windowSize);
+		}
+
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.windowSize = windowSize;
+		this.ascii = MappedFileSource.isAsciiCompatible(charset);
+		this.utf8 = "UTF-8".equals(charset.name());
+
+		try
+		{
+			this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			this.size = Math.min(end, this.channel.size());
+			this.map(Math.min(start, this.size));
+		}
+		catch (final IOException | RuntimeException e)
+		{
+			this.channel.close();
+			throw e;
+		}
+
+		this.offset = startOffset;
+		this.checkpointChars[0] = startOffset;
+		this.checkpointBytes[0] = this.windowStart;
+		this.checkpoints = 1;
+	}
+
+	/**
+	 * Whether or not the charset encodes ASCII as itself, one byte per
+	 * character, and never uses ASCII bytes for anything else.
+	 * 
+	 * @param charset
+	 *            the charset
+	 * @return whether or not ASCII bytes can be treated as characters.
+	 */
+	static boolean isAsciiCompatible(final Charset charset)
+	{
+		return MappedFileSource.ASCII_COMPATIBLE.contains(charset.name());
+	}
+
+	@Override
+	void close() throws IOException
+	{
+		this.channel.close();
+	}
+
+	@Override
+	boolean isSeekable()
+	{
+		return true;
+	}
+
+	@Override
+	int read(final char[] dst, final int off, final int len) throws IOException
+	{
+		if (this.hasPending)
+		{
+			dst[off] = this.pending;
+			this.hasPending = false;
+			this.offset++;
+
+			return 1;
+		}
+
+		this.checkpoint();
+
+		final CharBuffer out = CharBuffer.wrap(dst, off, len);
+
+		this.decode(out);
+
+		int read = out.position() - off;
+
+		if (read == 0 && len == 1 && !this.flushed)
+		{
+			/*
+			 * There is only room for one character but the next one is a
+			 * surrogate pair, so hand out the first half and keep the second.
+			 */
+			final CharBuffer pair = CharBuffer.allocate(2);
+
+			this.decode(pair);
+
+			if (pair.position() > 0)
+			{
+				dst[off] = pair.get(0);
+				read = 1;
+
+				if (pair.position() > 1)
+				{
+					this.pending = pair.get(1);
+					this.hasPending = true;
+				}
+			}
+		}
+
+		if (read == 0)
+		{
+			return -1;
+		}
+
+		this.offset += read;
+
+		return read;
+	}
+
+	@Override
+	void seek(final long target) throws IOException
+	{
+		int checkpoint = Arrays.binarySearch(this.checkpointChars, 0, this.checkpoints, target);
+
+		if (checkpoint < 0)
+		{
+			checkpoint = -checkpoint - 2;
+		}
+
+		this.decoder.reset();
+		this.flushed = false;
+		this.hasPending = false;
+		this.offset = this.checkpointChars[checkpoint];
+		this.map(this.checkpointBytes[checkpoint]);
+
+		final char[] skipped = new char[1024];
+
+		while (this.offset < target)
+		{
+			if (this.read(skipped, 0, (int) Math.min(skipped.length, target - this.offset)) < 0)
+			{
+				break;
+			}
+		}
+	}
+
+	@Override
+	long skipUntil(final char first, final char second, final char third, final long[] lines) throws IOException
+	{
+		if (!this.ascii || this.hasPending || first >= 0x80 || second >= 0x80 || third >= 0x80)
+		{
+			return -1;
+		}
+
+		final long start = this.offset;
+
+		lines[0] = 0;
+
+		this.decoder.reset();
+
+		while (true)
+		{
+			/*
+			 * Go a checkpoint interval at a time so that seeking back into
+			 * what was skipped costs no more than it does after reading.
+			 */
+			this.checkpoint();
+
+			final int from = this.window.position();
+			final int limit = this.window.limit();
+			final boolean last = this.windowStart + limit == this.size;
+			final int stop = limit - from > MappedFileSource.CHECKPOINT_INTERVAL ? from
+					+ MappedFileSource.CHECKPOINT_INTERVAL : limit;
+
+			final int found = Swar.indexOf(this.window, from, stop, (byte) first, (byte) second, (byte) third);
+
+			int end = found;
+
+			if (found < 0)
+			{
+				end = this.utf8 && !(last && stop == limit) ? this.boundary(from, stop) : stop;
+			}
+
+			int lineStart = from;
+
+			for (int i = Swar.indexOf(this.window, from, end, (byte) '\n'); i >= 0; i = Swar.indexOf(this.window,
+					lineStart, end, (byte) '\n'))
+			{
+				this.offset += this.count(lineStart, i + 1);
+				lineStart = i + 1;
+				lines[0]++;
+				lines[1] = this.offset;
+			}
+
+			this.offset += this.count(lineStart, end);
+			this.window.position(end);
+
+			if (found >= 0 || last && stop == limit)
+			{
+				return this.offset - start;
+			}
+
+			if (stop == limit)
+			{
+				this.map(this.windowStart + end);
+			}
+		}
+	}
+
+	/*
+	 * Back the end of a span of UTF-8 up to the start of the last character
+	 * if the span would otherwise cut it in half.
+	 */
+	private int boundary(final int from, final int to)
+	{
+		for (int i = to - 1; i >= from && i >= to - 3; --i)
+		{
+			final int b = this.window.get(i) & 0xFF;
+
+			if (b < 0x80)
+			{
+				return to;
+			}
+
+			if (b >= 0xC0)
+			{
+				final int length = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+
+				return i + length > to ? i : to;
+			}
+		}
+
+		return to;
+	}
+
+	/*
+	 * Record where we are if it has been long enough since the last checkpoint.
+	 */
+	private void checkpoint()
+	{
+		if (this.offset - this.checkpointChars[this.checkpoints - 1] < MappedFileSource.CHECKPOINT_INTERVAL)
+		{
+			return;
+		}
+
+		if (this.checkpoints == this.checkpointChars.length)
+		{
+			this.checkpointChars = Arrays.copyOf(this.checkpointChars, this.checkpoints * 2);
+			this.checkpointBytes = Arrays.copyOf(this.checkpointBytes, this.checkpoints * 2);
+		}
+
+		this.checkpointChars[this.checkpoints] = this.offset;
+		this.checkpointBytes[this.checkpoints] = this.windowStart + this.window.position();
+		this.checkpoints++;
+	}
+
+	/*
+	 * Count the characters in a span of the window that starts a character.
+	 */
+	private long count(final int from, final int to)
+	{
+		return this.utf8 ? Swar.countUtf8Chars(this.window, from, to) : to - from;
+	}
+
+	/*
+	 * Decode as much as fits into the given buffer, moving the window along
+	 * the file as needed.
+	 */
+	private void decode(final CharBuffer out) throws IOException
+	{
+		while (out.hasRemaining() && !this.flushed)
+		{
+			final boolean last = this.windowStart + this.window.limit() == this.size;
+			final int limit = this.window.limit();
+
+			int end = limit;
+
+			if (this.ascii)
+			{
+				final int start = this.window.position();
+				final int stop = Swar.widenAscii(this.window, start, start + Math.min(limit - start, out.remaining()),
+						out.array(), out.arrayOffset() + out.position());
+
+				this.window.position(stop);
+				out.position(out.position() + stop - start);
+
+				if (!out.hasRemaining())
+				{
+					return;
+				}
+
+				end = Swar.nextAscii(this.window, stop, limit);
+			}
+
+			if (end < limit)
+			{
+				/*
+				 * An ASCII byte always starts a new character, so the bytes
+				 * before it can be decoded as if they were all there is.
+				 */
+				final CoderResult result;
+
+				this.window.limit(end);
+
+				try
+				{
+					result = this.decoder.decode(this.window, out, true);
+				}
+				finally
+				{
+					this.window.limit(limit);
+					this.decoder.reset();
+				}
+
+				if (result.isOverflow())
+				{
+					return;
+				}
+
+				continue;
+			}
+
+			final CoderResult result = this.decoder.decode(this.window, out, last);
+
+			if (result.isOverflow())
+			{
+				return;
+			}
+
+			if (!last)
+			{
+				// Incomplete input at the end of the window is decoded again
+				this.map(this.windowStart + this.window.position());
+			}
+			else if (this.decoder.flush(out).isUnderflow())
+			{
+				this.flushed = true;
+			}
+			else
+			{
+				return;
+			}
+		}
+	}
+
+	private void map(final long start) throws IOException
+	{
+		this.windowStart = start;
+		this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, start,
+				Math.min(this.windowSize, this.size - start));
+		this.window.order(ByteOrder.nativeOrder());
+	}
+}
@@ -25,9 +25,9 @@ package com.pureperfect.parseutils;
 public interface Match
 {
 	/**
-	 * Matches whitespace.
+	 * Matches whitespace. Compiled into a lookup table.
 	 */
-	public static final Match WHITESPACE = new Match()
+	public static final Match WHITESPACE = Matches.compile(new Match()
 	{
 		/**
 		 * Matches whitespace.
@@ -39,12 +39,12 @@ public interface Match
 		{
 			return Character.isWhitespace(c);
 		}
-	};
+	});
 
 	/**
-	 * Matches whitespace except for '\n'.
+	 * Matches whitespace except for '\n'. Compiled into a lookup table.
 	 */
-	public static final Match WHITESPACE_EXCEPT_NEWLINE = new Match()
+	public static final Match WHITESPACE_EXCEPT_NEWLINE = Matches.compile(new Match()
 	{
 		/**
 		 * Matches whitespace (except '\n').
@@ -56,7 +56,7 @@ public interface Match
 		{
 			return Character.isWhitespace(c) && c != '\n';
 		}
-	};
+	});
 
 	/**
 	 * See if the character matches the given criteria.
@@ -0,0 +1,286 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Factory methods for {@link Match matchers} that are compiled into lookup
+ * tables. Table lookups do not branch on the character being matched, which
+ * keeps loops like {@link CharacterStream#skip(Match)} cheap and predictable.
+ * <p>
+ * Combining compiled matchers with {@link Matches#and(Match...) and},
+ * {@link Matches#or(Match...) or}, {@link Matches#not(Match...) not} and
+ * {@link Matches#negate(Match) negate} folds them into a single new table, so
+ * the result costs the same as any other table lookup. Matchers that are not
+ * compiled are chained behind the folded table, and the whole chain can be
+ * folded with {@link Matches#compile(Match) compile}.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class Matches
+{
+	/**
+	 * Matches characters that all of the given matchers match.
+	 * 
+	 * @param matchers
+	 *            the matchers to combine
+	 * @return the combined matcher
+	 */
+	public static Match and(final Match... matchers)
+	{
+		final List<Match> chain = Matches.fold(matchers, true);
+
+		if (chain.size() == 1)
+		{
+			return chain.get(0);
+		}
+
+		final Match[] chained = chain.toArray(new Match[chain.size()]);
+
+		return new Match()
+		{
+			@Override
+			public boolean matches(final char c)
+			{
+				for (final Match m : chained)
+				{
+					if (!m.matches(c))
+					{
+						return false;
+					}
+				}
+
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Matches any of the given characters.
+	 * 
+	 * @param chars
+	 *            the characters to match
+	 * @return the matcher
+	 */
+	public static Match anyOf(final String chars)
+	{
+		if (!chars.isEmpty() && chars.length() <= DelimiterMatch.MAX_DELIMITERS)
+		{
+			return new DelimiterMatch(chars);
+		}
+
+		final long[] bits = new long[TableMatch.FULL_LENGTH];
+
+		for (int i = 0; i < chars.length(); ++i)
+		{
+			final char c = chars.charAt(i);
+
+			bits[c >>> 6] |= 1L << c;
+		}
+
+		return new TableMatch(bits);
+	}
+
+	/**
+	 * Compile the given matcher into a lookup table. The matcher is asked
+	 * about every char once, so it must always give the same answer for the
+	 * same character. Matchers that are already compiled are returned as is.
+	 * 
+	 * @param m
+	 *            the matcher to compile
+	 * @return the compiled matcher
+	 */
+	public static Match compile(final Match m)
+	{
+		if (m instanceof TableMatch)
+		{
+			return m;
+		}
+
+		return new TableMatch(TableMatch.table(m));
+	}
+
+	/**
+	 * Matches characters that the given matcher does not match.
+	 * 
+	 * @param m
+	 *            the matcher to negate
+	 * @return the negated matcher
+	 */
+	public static Match negate(final Match m)
+	{
+		if (m instanceof TableMatch)
+		{
+			final long[] bits = ((TableMatch) m).table();
+
+			for (int i = 0; i < bits.length; ++i)
+			{
+				bits[i] = ~bits[i];
+			}
+
+			return new TableMatch(bits);
+		}
+
+		return new Match()
+		{
+			@Override
+			public boolean matches(final char c)
+			{
+				return !m.matches(c);
+			}
+		};
+	}
+
+	/**
+	 * Matches characters that none of the given matchers match. This is the
+	 * same as negating {@link Matches#or(Match...) or}, so
+	 * <code>and(identifier, not(reserved))</code> reads as "an identifier
+	 * character but not a reserved one".
+	 * 
+	 * @param matchers
+	 *            the matchers to exclude
+	 * @return the combined matcher
+	 */
+	public static Match not(final Match... matchers)
+	{
+		return Matches.negate(Matches.or(matchers));
+	}
+
+	/**
+	 * Matches characters that any of the given matchers match.
+	 * 
+	 * @param matchers
+	 *            the matchers to combine
+	 * @return the combined matcher
+	 */
+	public static Match or(final Match... matchers)
+	{
+		final List<Match> chain = Matches.fold(matchers, false);
+
+		if (chain.size() == 1)
+		{
+			return chain.get(0);
+		}
+
+		final Match[] chained = chain.toArray(new Match[chain.size()]);
+
+		return new Match()
+		{
+			@Override
+			public boolean matches(final char c)
+			{
+				for (final Match m : chained)
+				{
+					if (m.matches(c))
+					{
+						return true;
+					}
+				}
+
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Matches characters between the given characters, inclusive.
+	 * 
+	 * @param from
+	 *            the lowest character to match
+	 * @param to
+	 *            the highest character to match
+	 * @return the matcher
+	 */
+	public static Match range(final char from, final char to)
+	{
+		if (from > to)
+		{
+			throw new IllegalArgumentException("Range is empty: " + from + " > " + to);
+		}
+
+		final long[] bits = new long[TableMatch.FULL_LENGTH];
+
+		for (int c = from; c <= to; ++c)
+		{
+			bits[c >>> 6] |= 1L << c;
+		}
+
+		return new TableMatch(bits);
+	}
+
+	/*
+	 * Fold all of the compiled matchers into one table using either and or
+	 * or, and put it at the front of the matchers that could not be folded.
+	 */
+	private static List<Match> fold(final Match[] matchers, final boolean and)
+	{
+		if (matchers.length == 0)
+		{
+			throw new IllegalArgumentException("At least one matcher is required");
+		}
+
+		final List<Match> chain = new ArrayList<Match>(matchers.length);
+
+		TableMatch first = null;
+		long[] folded = null;
+
+		for (final Match m : matchers)
+		{
+			if (!(m instanceof TableMatch))
+			{
+				chain.add(m);
+			}
+			else if (first == null)
+			{
+				first = (TableMatch) m;
+			}
+			else
+			{
+				if (folded == null)
+				{
+					folded = first.table();
+				}
+
+				final long[] bits = ((TableMatch) m).table();
+
+				for (int i = 0; i < folded.length; ++i)
+				{
+					folded[i] = and ? folded[i] & bits[i] : folded[i] | bits[i];
+				}
+			}
+		}
+
+		if (folded != null)
+		{
+			chain.add(0, new TableMatch(folded));
+		}
+		else if (first != null)
+		{
+			chain.add(0, first);
+		}
+
+		return chain;
+	}
+
+	private Matches()
+	{
+		// Hide constructor only static methods in this class
+	}
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.math.BigInteger;
+
+/**
+ * Converts a decimal significand and exponent to the nearest double without
+ * going through a string. Small values that are exact in a double are scaled
+ * with a single multiplication or division; everything else goes through the
+ * Eisel-Lemire algorithm, which multiplies the significand by a 128 bit
+ * approximation of the power of ten and is always correctly rounded for
+ * significands of up to 19 digits.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+class Numbers
+{
+	/**
+	 * The most significant digits that fit in the significand.
+	 */
+	static final int MAX_DIGITS = 19;
+
+	private static final int INFINITE_POWER = 0x7FF;
+
+	private static final int LARGEST_POWER_OF_TEN = 308;
+
+	private static final int MANTISSA_BITS = 52;
+
+	private static final int MAX_EXACT_POWER_OF_TEN = 22;
+
+	private static final int MAX_ROUND_TO_EVEN = 23;
+
+	private static final int MINIMUM_EXPONENT = -1023;
+
+	private static final int MIN_ROUND_TO_EVEN = -4;
+
+	/*
+	 * The powers of five from SMALLEST_POWER_OF_TEN to LARGEST_POWER_OF_TEN,
+	 * normalized to 128 bits as pairs of high and low words. Powers with
+	 * negative exponents are rounded up, the rest are truncated.
+	 */
+	private static final long[] POWERS_OF_FIVE = Numbers.powersOfFive();
+
+	/*
+	 * The powers of ten that are exact in a double.
+	 */
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private static final int SMALLEST_POWER_OF_TEN = -342;
+
+	/*
+	 * The high word of the unsigned 128 bit product of two longs.
+	 */
+	private static long multiplyHigh(final long x, final long y)
+	{
+		final long x0 = x & 0xFFFFFFFFL;
+		final long x1 = x >>> 32;
+		final long y0 = y & 0xFFFFFFFFL;
+		final long y1 = y >>> 32;
+
+		final long p01 = x0 * y1;
+		final long middle = x1 * y0 + (x0 * y0 >>> 32) + (p01 & 0xFFFFFFFFL);
+
+		return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+	}
+
+	/*
+	 * Compute the table of powers of five.
+	 */
+	private static long[] powersOfFive()
+	{
+		final long[] results = new long[2 * (Numbers.LARGEST_POWER_OF_TEN - Numbers.SMALLEST_POWER_OF_TEN + 1)];
+
+		final BigInteger five = BigInteger.valueOf(5);
+
+		for (int q = Numbers.SMALLEST_POWER_OF_TEN, i = 0; q <= Numbers.LARGEST_POWER_OF_TEN; ++q, i += 2)
+		{
+			BigInteger power;
+
+			if (q < 0)
+			{
+				final BigInteger divisor = five.pow(-q);
+				final int bits = divisor.bitLength();
+
+				power = BigInteger.ONE.shiftLeft(q >= -27 ? bits + 127 : 2 * bits + 128).divide(divisor)
+						.add(BigInteger.ONE);
+			}
+			else
+			{
+				power = five.pow(q);
+				power = power.shiftLeft(Math.max(0, 128 - power.bitLength()));
+			}
+
+			power = power.shiftRight(Math.max(0, power.bitLength() - 128));
+
+			results[i] = power.shiftRight(64).longValue();
+			results[i + 1] = power.longValue();
+		}
+
+		return results;
+	}
+
+	/**
+	 * Get the double nearest to <code>significand * 10^exponent</code>.
+	 * 
+	 * @param negative
+	 *            whether or not the value is negative
+	 * @param significand
+	 *            the decimal digits as an unsigned long, so at most
+	 *            {@link Numbers#MAX_DIGITS} of them.
+	 * @param exponent
+	 *            the power of ten to scale the digits by
+	 * @return the nearest double, which may be zero or infinite.
+	 */
+	static double toDouble(final boolean negative, final long significand, final int exponent)
+	{
+		if (significand >= 0 && significand <= 1L << Numbers.MANTISSA_BITS + 1
+				&& exponent >= -Numbers.MAX_EXACT_POWER_OF_TEN && exponent <= Numbers.MAX_EXACT_POWER_OF_TEN)
+		{
+			final double results = exponent < 0 ? significand / Numbers.POWERS_OF_TEN[-exponent] : significand
+					* Numbers.POWERS_OF_TEN[exponent];
+
+			return negative ? -results : results;
+		}
+
+		final long bits = Numbers.toDoubleBits(significand, exponent);
+
+		return Double.longBitsToDouble(negative ? bits | Long.MIN_VALUE : bits);
+	}
+
+	/*
+	 * The Eisel-Lemire algorithm as described in "Number Parsing at a
+	 * Gigabyte per Second" by Daniel Lemire, returning the bits of the
+	 * positive double nearest to w * 10^q.
+	 */
+	private static long toDoubleBits(final long w, final int q)
+	{
+		if (w == 0 || q < Numbers.SMALLEST_POWER_OF_TEN)
+		{
+			return 0;
+		}
+
+		if (q > Numbers.LARGEST_POWER_OF_TEN)
+		{
+			return (long) Numbers.INFINITE_POWER << Numbers.MANTISSA_BITS;
+		}
+
+		final int lz = Long.numberOfLeadingZeros(w);
+		final long normalized = w << lz;
+
+		/*
+		 * Multiply by the power of five, looking at the low word of the power
+		 * only if the bits below the ones kept from the high word of the
+		 * product could carry into them.
+		 */
+		final int index = 2 * (q - Numbers.SMALLEST_POWER_OF_TEN);
+
+		long high = Numbers.multiplyHigh(normalized, Numbers.POWERS_OF_FIVE[index]);
+		long low = normalized * Numbers.POWERS_OF_FIVE[index];
+
+		final long precisionMask = -1L >>> Numbers.MANTISSA_BITS + 3;
+
+		if ((high & precisionMask) == precisionMask)
+		{
+			final long carry = Numbers.multiplyHigh(normalized, Numbers.POWERS_OF_FIVE[index + 1]);
+
+			low += carry;
+
+			if ((carry ^ Long.MIN_VALUE) > (low ^ Long.MIN_VALUE))
+			{
+				++high;
+			}
+		}
+
+		final int upperBit = (int) (high >>> 63);
+		final int shift = upperBit + 64 - Numbers.MANTISSA_BITS - 3;
+
+		long mantissa = high >>> shift;
+		int power2 = ((152170 + 65536) * q >> 16) + 63 + upperBit - lz - Numbers.MINIMUM_EXPONENT;
+
+		if (power2 <= 0)
+		{
+			// Subnormal
+			if (-power2 + 1 >= 64)
+			{
+				return 0;
+			}
+
+			mantissa >>>= -power2 + 1;
+			mantissa += mantissa & 1;
+			mantissa >>>= 1;
+
+			// Rounding up to the smallest normal sets the lowest exponent bit
+			return mantissa;
+		}
+
+		/*
+		 * Exactly halfway between two doubles, which can only happen for small
+		 * powers, rounds to even.
+		 */
+		if ((low == 0 || low == 1) && q >= Numbers.MIN_ROUND_TO_EVEN && q <= Numbers.MAX_ROUND_TO_EVEN
+				&& (mantissa & 3) == 1 && mantissa << shift == high)
+		{
+			mantissa &= ~1L;
+		}
+
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+
+		if (mantissa >= 2L << Numbers.MANTISSA_BITS)
+		{
+			mantissa = 1L << Numbers.MANTISSA_BITS;
+			++power2;
+		}
+
+		mantissa &= ~(1L << Numbers.MANTISSA_BITS);
+
+		if (power2 >= Numbers.INFINITE_POWER)
+		{
+			return (long) Numbers.INFINITE_POWER << Numbers.MANTISSA_BITS;
+		}
+
+		return (long) power2 << Numbers.MANTISSA_BITS | mantissa;
+	}
+
+	private Numbers()
+	{
+		// Hide constructor only static methods in this class
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the characters in a stream are not what was expected, such as
+ * {@link CharacterStream#readInt()} finding no digits. The exception carries
+ * the position in the stream where the problem was found.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class ParseException extends IOException
+{
+	private static final long serialVersionUID = 1L;
+
+	private final Position position;
+
+	/**
+	 * Create an exception for a problem at the given position. The line and
+	 * column are appended to the message.
+	 * 
+	 * @param message
+	 *            what was wrong
+	 * @param position
+	 *            where it was wrong
+	 */
+	public ParseException(final String message, final Position position)
+	{
+		super(message + " at line " + position.getLineAsLong() + ", column " + position.getPositionInLineAsLong());
+
+		this.position = position;
+	}
+
+	/**
+	 * Get the position in the stream where the problem was found.
+	 * 
+	 * @return the position of the problem.
+	 */
+	public Position getPosition()
+	{
+		return this.position;
+	}
+}
@@ -0,0 +1,912 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A small regular expression compiled into a DFA so that it can be matched
+ * directly against the buffer of a {@link CharacterStream} without pulling the
+ * input out into a string. Matches are anchored at the current position of
+ * the stream and always the longest possible. See
+ * {@link CharacterStream#matchLength(PatternMatch)}.
+ * <p>
+ * The supported syntax is a subset of {@link java.util.regex.Pattern}:
+ * <ul>
+ * <li>literal characters and escaped metacharacters such as <code>\.</code></li>
+ * <li><code>.</code> for anything but a line terminator</li>
+ * <li><code>\d \D \w \W \s \S \t \n \r \f</code> and <code>\\uXXXX</code></li>
+ * <li>character classes such as <code>[a-z_]</code> and <code>[^"\\]</code></li>
+ * <li>grouping with <code>( )</code> and alternation with <code>|</code></li>
+ * <li>the quantifiers <code>* + ?</code>, <code>{n}</code>, <code>{n,}</code>
+ * and <code>{n,m}</code></li>
+ * </ul>
+ * There are no anchors, back references, lookaround or lazy quantifiers since
+ * none of them fit in a DFA.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class PatternMatch
+{
+	/**
+	 * The most states a pattern may compile to.
+	 */
+	public static final int MAX_STATES = 10000;
+
+	private static final int ALTERNATION = 0;
+
+	private static final int CHARS = 1;
+
+	private static final int CONCATENATION = 2;
+
+	private static final char[] LINE_TERMINATORS = { '\n', '\r', '\u0085', '\u2028', '\u2029' };
+
+	private static final int REPETITION = 3;
+
+	private final boolean[] accepting;
+
+	/*
+	 * The character class of each ASCII character.
+	 */
+	private final int[] asciiClasses = new int[128];
+
+	private final int classCount;
+
+	/*
+	 * The character classes of every character, as ranges beginning at each
+	 * of the interval starts. Only needed outside of ASCII.
+	 */
+	private final int[] intervalClasses;
+
+	private final char[] intervalStarts;
+
+	private final String pattern;
+
+	/*
+	 * The next state for each state and character class or -1.
+	 */
+	private final int[] transitions;
+
+	/**
+	 * Compile the given pattern.
+	 * 
+	 * @param pattern
+	 *            the pattern
+	 * @throws PatternSyntaxException
+	 *             if the pattern is not valid or compiles to more than
+	 *             {@link PatternMatch#MAX_STATES} states.
+	 */
+	public PatternMatch(final String pattern)
+	{
+		this.pattern = pattern;
+
+		final Parser parser = new Parser(pattern);
+		final Node root = parser.parse();
+
+		/*
+		 * Thompson construction of an NFA.
+		 */
+		final Nfa nfa = new Nfa();
+		final int[] fragment = nfa.build(root);
+
+		/*
+		 * Split the characters into classes that every set either contains
+		 * completely or not at all.
+		 */
+		final List<long[]> sets = parser.sets;
+		final Map<BitSet, Integer> classes = new HashMap<BitSet, Integer>();
+		final List<Character> representatives = new ArrayList<Character>();
+		final List<Character> starts = new ArrayList<Character>();
+		final List<Integer> startClasses = new ArrayList<Integer>();
+
+		BitSet previous = null;
+		int previousClass = -1;
+
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; ++c)
+		{
+			final BitSet membership = new BitSet(sets.size());
+
+			for (int i = 0; i < sets.size(); ++i)
+			{
+				if ((sets.get(i)[c >>> 6] & 1L << c) != 0)
+				{
+					membership.set(i);
+				}
+			}
+
+			if (!membership.equals(previous))
+			{
+				Integer id = classes.get(membership);
+
+				if (id == null)
+				{
+					id = classes.size();
+					classes.put(membership, id);
+					representatives.add((char) c);
+				}
+
+				previous = membership;
+				previousClass = id;
+
+				starts.add((char) c);
+				startClasses.add(id);
+			}
+
+			if (c < 128)
+			{
+				this.asciiClasses[c] = previousClass;
+			}
+		}
+
+		this.classCount = classes.size();
+		this.intervalStarts = new char[starts.size()];
+		this.intervalClasses = new int[starts.size()];
+
+		for (int i = 0; i < starts.size(); ++i)
+		{
+			this.intervalStarts[i] = starts.get(i);
+			this.intervalClasses[i] = startClasses.get(i);
+		}
+
+		/*
+		 * Subset construction of the DFA.
+		 */
+		final Map<BitSet, Integer> states = new HashMap<BitSet, Integer>();
+		final List<BitSet> pending = new ArrayList<BitSet>();
+		final List<int[]> rows = new ArrayList<int[]>();
+		final List<Boolean> accepts = new ArrayList<Boolean>();
+
+		final BitSet start = new BitSet();
+
+		start.set(fragment[0]);
+		nfa.close(start);
+
+		states.put(start, 0);
+		pending.add(start);
+
+		for (int s = 0; s < pending.size(); ++s)
+		{
+			final BitSet current = pending.get(s);
+			final int[] row = new int[this.classCount];
+
+			accepts.add(current.get(fragment[1]));
+
+			for (int k = 0; k < this.classCount; ++k)
+			{
+				final char c = representatives.get(k);
+				final BitSet next = new BitSet();
+
+				for (int n = current.nextSetBit(0); n >= 0; n = current.nextSetBit(n + 1))
+				{
+					final int set = nfa.edgeSets.get(n);
+
+					if (set >= 0 && (sets.get(set)[c >>> 6] & 1L << c) != 0)
+					{
+						next.set(nfa.edgeTargets.get(n));
+					}
+				}
+
+				if (next.isEmpty())
+				{
+					row[k] = -1;
+
+					continue;
+				}
+
+				nfa.close(next);
+
+				Integer target = states.get(next);
+
+				if (target == null)
+				{
+					if (pending.size() == PatternMatch.MAX_STATES)
+					{
+						throw new PatternSyntaxException("Pattern needs more than " + PatternMatch.MAX_STATES
+								+ " states", pattern, -1);
+					}
+
+					target = pending.size();
+					states.put(next, target);
+					pending.add(next);
+				}
+
+				row[k] = target;
+			}
+
+			rows.add(row);
+		}
+
+		this.transitions = new int[rows.size() * this.classCount];
+		this.accepting = new boolean[rows.size()];
+
+		for (int s = 0; s < rows.size(); ++s)
+		{
+			System.arraycopy(rows.get(s), 0, this.transitions, s * this.classCount, this.classCount);
+			this.accepting[s] = accepts.get(s);
+		}
+	}
+
+	/**
+	 * Get the pattern this was compiled from.
+	 * 
+	 * @return the pattern.
+	 */
+	public String getPattern()
+	{
+		return this.pattern;
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.pattern;
+	}
+
+	/**
+	 * Whether or not the given state is the end of a match.
+	 * 
+	 * @param state
+	 *            the state
+	 * @return whether or not it matches
+	 */
+	boolean isAccepting(final int state)
+	{
+		return this.accepting[state];
+	}
+
+	/**
+	 * Follow the transition for the given character.
+	 * 
+	 * @param state
+	 *            the current state, starting from zero
+	 * @param c
+	 *            the next character
+	 * @return the next state or -1 if the pattern can no longer match
+	 */
+	int next(final int state, final char c)
+	{
+		final int k;
+
+		if (c < 128)
+		{
+			k = this.asciiClasses[c];
+		}
+		else
+		{
+			final int i = Arrays.binarySearch(this.intervalStarts, c);
+
+			k = this.intervalClasses[i < 0 ? -i - 2 : i];
+		}
+
+		return this.transitions[state * this.classCount + k];
+	}
+
+	/*
+	 * A node in the parsed pattern.
+	 */
+	private static class Node
+	{
+		final Node[] children;
+
+		final int max;
+
+		final int min;
+
+		final int set;
+
+		final int type;
+
+		Node(final int type, final int set, final int min, final int max, final Node... children)
+		{
+			this.type = type;
+			this.set = set;
+			this.min = min;
+			this.max = max;
+			this.children = children;
+		}
+	}
+
+	/*
+	 * Each state has epsilon edges and at most one edge on a set of
+	 * characters.
+	 */
+	private static class Nfa
+	{
+		final List<int[]> epsilons = new ArrayList<int[]>();
+
+		final List<Integer> edgeSets = new ArrayList<Integer>();
+
+		final List<Integer> edgeTargets = new ArrayList<Integer>();
+
+		int[] build(final Node node)
+		{
+			switch (node.type)
+			{
+			case CHARS:
+			{
+				final int start = this.state();
+				final int end = this.state();
+
+				this.edgeSets.set(start, node.set);
+				this.edgeTargets.set(start, end);
+
+				return new int[] { start, end };
+			}
+			case CONCATENATION:
+			{
+				final int start = this.state();
+
+				int end = start;
+
+				for (final Node child : node.children)
+				{
+					final int[] fragment = this.build(child);
+
+					this.epsilon(end, fragment[0]);
+
+					end = fragment[1];
+				}
+
+				return new int[] { start, end };
+			}
+			case ALTERNATION:
+			{
+				final int start = this.state();
+				final int end = this.state();
+
+				for (final Node child : node.children)
+				{
+					final int[] fragment = this.build(child);
+
+					this.epsilon(start, fragment[0]);
+					this.epsilon(fragment[1], end);
+				}
+
+				return new int[] { start, end };
+			}
+			default:
+			{
+				final int start = this.state();
+
+				int end = start;
+
+				for (int i = 0; i < node.min; ++i)
+				{
+					final int[] fragment = this.build(node.children[0]);
+
+					this.epsilon(end, fragment[0]);
+
+					end = fragment[1];
+				}
+
+				if (node.max < 0)
+				{
+					final int[] fragment = this.build(node.children[0]);
+					final int last = this.state();
+
+					this.epsilon(end, fragment[0]);
+					this.epsilon(end, last);
+					this.epsilon(fragment[1], fragment[0]);
+					this.epsilon(fragment[1], last);
+
+					return new int[] { start, last };
+				}
+
+				final int last = this.state();
+
+				for (int i = node.min; i < node.max; ++i)
+				{
+					final int[] fragment = this.build(node.children[0]);
+
+					this.epsilon(end, fragment[0]);
+					this.epsilon(end, last);
+
+					end = fragment[1];
+				}
+
+				this.epsilon(end, last);
+
+				return new int[] { start, last };
+			}
+			}
+		}
+
+		/*
+		 * Add everything reachable through epsilon edges.
+		 */
+		void close(final BitSet states)
+		{
+			final int[] stack = new int[this.epsilons.size()];
+
+			int top = 0;
+
+			for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1))
+			{
+				stack[top++] = s;
+			}
+
+			while (top > 0)
+			{
+				for (final int next : this.epsilons.get(stack[--top]))
+				{
+					if (!states.get(next))
+					{
+						states.set(next);
+						stack[top++] = next;
+					}
+				}
+			}
+		}
+
+		void epsilon(final int from, final int to)
+		{
+			final int[] existing = this.epsilons.get(from);
+			final int[] added = Arrays.copyOf(existing, existing.length + 1);
+
+			added[existing.length] = to;
+
+			this.epsilons.set(from, added);
+		}
+
+		int state()
+		{
+			this.epsilons.add(new int[0]);
+			this.edgeSets.add(-1);
+			this.edgeTargets.add(-1);
+
+			return this.epsilons.size() - 1;
+		}
+	}
+
+	/*
+	 * Recursive descent parser for the pattern.
+	 */
+	private static class Parser
+	{
+		final String pattern;
+
+		int position;
+
+		final List<long[]> sets = new ArrayList<long[]>();
+
+		Parser(final String pattern)
+		{
+			this.pattern = pattern;
+		}
+
+		Node parse()
+		{
+			final Node root = this.alternation();
+
+			if (this.position < this.pattern.length())
+			{
+				throw this.error("Unmatched closing ')'");
+			}
+
+			return root;
+		}
+
+		private Node alternation()
+		{
+			final List<Node> alternatives = new ArrayList<Node>();
+
+			alternatives.add(this.concatenation());
+
+			while (this.peek() == '|')
+			{
+				this.position++;
+
+				alternatives.add(this.concatenation());
+			}
+
+			if (alternatives.size() == 1)
+			{
+				return alternatives.get(0);
+			}
+
+			return new Node(PatternMatch.ALTERNATION, -1, 0, 0, alternatives.toArray(new Node[alternatives.size()]));
+		}
+
+		private Node atom()
+		{
+			final char c = this.pattern.charAt(this.position++);
+
+			switch (c)
+			{
+			case '(':
+			{
+				final Node group = this.alternation();
+
+				if (this.peek() != ')')
+				{
+					throw this.error("Unclosed group");
+				}
+
+				this.position++;
+
+				return group;
+			}
+			case '[':
+				return this.chars(this.characterClass());
+			case '.':
+			{
+				final long[] bits = this.all();
+
+				// The same line terminators as java.util.regex.Pattern
+				for (final char terminator : PatternMatch.LINE_TERMINATORS)
+				{
+					bits[terminator >>> 6] &= ~(1L << terminator);
+				}
+
+				return this.chars(bits);
+			}
+			case '\\':
+				return this.chars(this.escape());
+			case '^':
+			case '$':
+				throw this.error("Anchors are not supported");
+			case '*':
+			case '+':
+			case '?':
+			case '{':
+				throw this.error("Dangling meta character '" + c + "'");
+			default:
+				return this.chars(this.single(c));
+			}
+		}
+
+		private long[] all()
+		{
+			final long[] bits = new long[TableMatch.FULL_LENGTH];
+
+			Arrays.fill(bits, -1L);
+
+			return bits;
+		}
+
+		private long[] characterClass()
+		{
+			final boolean negated = this.peek() == '^';
+
+			if (negated)
+			{
+				this.position++;
+			}
+
+			final long[] bits = new long[TableMatch.FULL_LENGTH];
+
+			boolean first = true;
+
+			while (this.peek() != ']' || first)
+			{
+				if (this.position >= this.pattern.length())
+				{
+					throw this.error("Unclosed character class");
+				}
+
+				first = false;
+
+				final char c = this.pattern.charAt(this.position++);
+
+				if (c == '\\')
+				{
+					final char escaped = this.peek();
+
+					if (escaped == 'd' || escaped == 'D' || escaped == 'w' || escaped == 'W' || escaped == 's'
+							|| escaped == 'S')
+					{
+						this.union(bits, this.escape());
+
+						continue;
+					}
+				}
+
+				final char from = c == '\\' ? this.escapedChar() : c;
+
+				if (this.peek() == '-' && this.position + 1 < this.pattern.length()
+						&& this.pattern.charAt(this.position + 1) != ']')
+				{
+					this.position++;
+
+					char to = this.pattern.charAt(this.position++);
+
+					if (to == '\\')
+					{
+						to = this.escapedChar();
+					}
+
+					if (to < from)
+					{
+						throw this.error("Illegal character range");
+					}
+
+					for (int r = from; r <= to; ++r)
+					{
+						bits[r >>> 6] |= 1L << r;
+					}
+				}
+				else
+				{
+					bits[from >>> 6] |= 1L << from;
+				}
+			}
+
+			this.position++;
+
+			if (negated)
+			{
+				for (int i = 0; i < bits.length; ++i)
+				{
+					bits[i] = ~bits[i];
+				}
+			}
+
+			return bits;
+		}
+
+		private Node chars(final long[] bits)
+		{
+			this.sets.add(bits);
+
+			return new Node(PatternMatch.CHARS, this.sets.size() - 1, 0, 0);
+		}
+
+		private Node concatenation()
+		{
+			final List<Node> parts = new ArrayList<Node>();
+
+			while (this.position < this.pattern.length() && this.peek() != '|' && this.peek() != ')')
+			{
+				parts.add(this.repetition());
+			}
+
+			return new Node(PatternMatch.CONCATENATION, -1, 0, 0, parts.toArray(new Node[parts.size()]));
+		}
+
+		private PatternSyntaxException error(final String description)
+		{
+			return new PatternSyntaxException(description, this.pattern, this.position - 1);
+		}
+
+		private long[] escape()
+		{
+			final char c = this.peek();
+
+			long[] bits;
+
+			switch (c)
+			{
+			case 'd':
+			case 'D':
+				bits = this.range('0', '9');
+				break;
+			case 'w':
+			case 'W':
+				bits = this.range('a', 'z');
+				this.union(bits, this.range('A', 'Z'));
+				this.union(bits, this.range('0', '9'));
+				bits['_' >>> 6] |= 1L << '_';
+				break;
+			case 's':
+			case 'S':
+				bits = new long[TableMatch.FULL_LENGTH];
+
+				for (final char s : " \t\n\u000B\f\r".toCharArray())
+				{
+					bits[s >>> 6] |= 1L << s;
+				}
+				break;
+			default:
+				return this.single(this.escapedChar());
+			}
+
+			this.position++;
+
+			if (Character.isUpperCase(c))
+			{
+				for (int i = 0; i < bits.length; ++i)
+				{
+					bits[i] = ~bits[i];
+				}
+			}
+
+			return bits;
+		}
+
+		/*
+		 * The character after a backslash.
+		 */
+		private char escapedChar()
+		{
+			if (this.position >= this.pattern.length())
+			{
+				throw this.error("Unexpected end of pattern");
+			}
+
+			final char c = this.pattern.charAt(this.position++);
+
+			switch (c)
+			{
+			case 't':
+				return '\t';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 'f':
+				return '\f';
+			case 'u':
+			{
+				if (this.position + 4 > this.pattern.length())
+				{
+					throw this.error("Illegal Unicode escape sequence");
+				}
+
+				try
+				{
+					final char u = (char) Integer.parseInt(this.pattern.substring(this.position, this.position + 4), 16);
+
+					this.position += 4;
+
+					return u;
+				}
+				catch (final NumberFormatException e)
+				{
+					throw this.error("Illegal Unicode escape sequence");
+				}
+			}
+			default:
+				if (Character.isLetterOrDigit(c))
+				{
+					throw this.error("Unsupported escape sequence \\" + c);
+				}
+
+				return c;
+			}
+		}
+
+		private int number()
+		{
+			final int start = this.position;
+
+			while (this.position < this.pattern.length() && Character.isDigit(this.pattern.charAt(this.position)))
+			{
+				this.position++;
+			}
+
+			if (start == this.position)
+			{
+				throw this.error("Illegal repetition");
+			}
+
+			try
+			{
+				return Integer.parseInt(this.pattern.substring(start, this.position));
+			}
+			catch (final NumberFormatException e)
+			{
+				throw this.error("Repetition count too large");
+			}
+		}
+
+		private char peek()
+		{
+			return this.position < this.pattern.length() ? this.pattern.charAt(this.position) : CharacterStream.NULL;
+		}
+
+		private long[] range(final char from, final char to)
+		{
+			final long[] bits = new long[TableMatch.FULL_LENGTH];
+
+			for (int c = from; c <= to; ++c)
+			{
+				bits[c >>> 6] |= 1L << c;
+			}
+
+			return bits;
+		}
+
+		private Node repetition()
+		{
+			final Node node = this.atom();
+			final char c = this.peek();
+
+			final int min;
+			final int max;
+
+			if (c == '*')
+			{
+				min = 0;
+				max = -1;
+			}
+			else if (c == '+')
+			{
+				min = 1;
+				max = -1;
+			}
+			else if (c == '?')
+			{
+				min = 0;
+				max = 1;
+			}
+			else if (c == '{')
+			{
+				this.position++;
+
+				min = this.number();
+
+				if (this.peek() == ',')
+				{
+					this.position++;
+
+					max = this.peek() == '}' ? -1 : this.number();
+				}
+				else
+				{
+					max = min;
+				}
+
+				if (this.peek() != '}' || max >= 0 && max < min)
+				{
+					throw this.error("Illegal repetition");
+				}
+			}
+			else
+			{
+				return node;
+			}
+
+			this.position++;
+
+			final char next = this.peek();
+
+			if (next == '*' || next == '+' || next == '?' || next == '{')
+			{
+				// Lazy and possessive quantifiers and stacked quantifiers
+				this.position++;
+
+				throw this.error("Quantifier after a quantifier is not supported");
+			}
+
+			return new Node(PatternMatch.REPETITION, -1, min, max, node);
+		}
+
+		private long[] single(final char c)
+		{
+			final long[] bits = new long[TableMatch.FULL_LENGTH];
+
+			bits[c >>> 6] |= 1L << c;
+
+			return bits;
+		}
+
+		private void union(final long[] bits, final long[] other)
+		{
+			for (int i = 0; i < bits.length; ++i)
+			{
+				bits[i] |= other[i];
+			}
+		}
+	}
+}
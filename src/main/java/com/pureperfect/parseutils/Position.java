@@ -15,35 +15,63 @@
  */
 package com.pureperfect.parseutils;
 
+import java.io.Serializable;
+
 /**
- * Marks the current position in the stream.
+ * Marks the current position in the stream. Positions are kept as longs so
+ * that streams larger than 2 GB report them correctly; the int getters remain
+ * for smaller streams. Positions are immutable, so they can be shared freely,
+ * and serializable so that a {@link ParseException} can carry one.
  * 
  * @author J. Chris Folsom
  * @version 0.1
  * @since 0.1
  */
-public class Position
+public final class Position implements Serializable
 {
-	private int line = 0;
+	private static final long serialVersionUID = 1L;
+
+	private final long line;
 
-	private int positionInLine = 0;
+	private final long positionInLine;
 
-	private int positionInStream = 0;
+	private final long positionInStream;
 
 	/**
-	 * Create a copy of this object.
-	 * 
-	 * @return a copy of this object.
+	 * Create a position at the start of a stream.
 	 */
-	public Position copy()
+	public Position()
 	{
-		final Position copy = new Position();
+		this(0, 0, 0);
+	}
 
-		copy.line = this.line;
-		copy.positionInLine = this.positionInLine;
-		copy.positionInStream = this.positionInStream;
+	/**
+	 * Create a position.
+	 * 
+	 * @param line
+	 *            the line number
+	 * @param positionInLine
+	 *            the position in the line
+	 * @param positionInStream
+	 *            the position in the stream
+	 */
+	public Position(final long line, final long positionInLine, final long positionInStream)
+	{
+		this.line = line;
+		this.positionInLine = positionInLine;
+		this.positionInStream = positionInStream;
+	}
 
-		return copy;
+	/**
+	 * Positions are immutable, so this is the position itself.
+	 * 
+	 * @return this position.
+	 * @deprecated there is no need to copy an immutable position.
+	 */
+	@Deprecated
+	public Position copy()
+	{
+		return this;
 	}
 
 	/**
@@ -55,15 +83,27 @@ public class Position
 	@Override
 	public boolean equals(final Object obj)
 	{
-		return this.hashCode() == obj.hashCode();
+		return obj instanceof Position && ((Position) obj).positionInStream == this.positionInStream;
 	}
 
 	/**
 	 * The current line number.
 	 * 
 	 * @return The current line number.
+	 * @throws ArithmeticException
+	 *             if the line number does not fit in an int.
 	 */
 	public int getLine()
+	{
+		return Position.toInt(this.line);
+	}
+
+	/**
+	 * The current line number.
+	 * 
+	 * @return The current line number.
+	 */
+	public long getLineAsLong()
 	{
 		return this.line;
 	}
@@ -72,8 +112,20 @@ public class Position
 	 * The current position in the current line.
 	 * 
 	 * @return The current position in the current line.
+	 * @throws ArithmeticException
+	 *             if the position does not fit in an int.
 	 */
 	public int getPositionInLine()
+	{
+		return Position.toInt(this.positionInLine);
+	}
+
+	/**
+	 * The current position in the current line.
+	 * 
+	 * @return The current position in the current line.
+	 */
+	public long getPositionInLineAsLong()
 	{
 		return this.positionInLine;
 	}
@@ -82,34 +134,35 @@ public class Position
 	 * The current position in the stream.
 	 * 
 	 * @return The current position in the stream.
+	 * @throws ArithmeticException
+	 *             if the position does not fit in an int.
 	 */
 	public int getPositionInStream()
 	{
-		return this.positionInStream;
+		return Position.toInt(this.positionInStream);
 	}
 
 	/**
-	 * Same as {@link Position#getPositionInStream positionInStream}.
+	 * The current position in the stream.
 	 * 
-	 * @return Same as {@link Position#getPositionInStream positionInStream}.
+	 * @return The current position in the stream.
 	 */
-	@Override
-	public int hashCode()
+	public long getPositionInStreamAsLong()
 	{
 		return this.positionInStream;
 	}
 
-	void incrementLine()
-	{
-		++this.line;
-		this.positionInLine = 0;
-		++this.positionInStream;
-	}
-
-	void incrementPositionInLine()
+	/**
+	 * Hash of the {@link Position#getPositionInStream positionInStream}, which
+	 * is the position itself for streams smaller than 2 GB.
+	 * 
+	 * @return Hash of the {@link Position#getPositionInStream
+	 *         positionInStream}.
+	 */
+	@Override
+	public int hashCode()
 	{
-		++this.positionInLine;
-		++this.positionInStream;
+		return (int) (this.positionInStream ^ this.positionInStream >>> 32);
 	}
 
 	@Override
@@ -127,4 +180,17 @@ public class Position
 
 		return b.toString();
 	}
+
+	/*
+	 * Narrow to an int, failing rather than wrapping around.
+	 */
+	private static int toInt(final long value)
+	{
+		if (value != (int) value)
+		{
+			throw new ArithmeticException("Position does not fit in an int: " + value);
+		}
+
+		return (int) value;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads characters from a {@link Reader}.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+class ReaderSource extends CharacterSource
+{
+	private final Reader in;
+
+	ReaderSource(final Reader in)
+	{
+		this.in = in;
+	}
+
+	@Override
+	void close() throws IOException
+	{
+		this.in.close();
+	}
+
+	@Override
+	int read(final char[] dst, final int off, final int len) throws IOException
+	{
+		return this.in.read(dst, off, len);
+	}
+}
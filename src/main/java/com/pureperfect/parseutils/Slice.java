@@ -0,0 +1,173 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+/**
+ * A view of characters in the buffer of a {@link CharacterStream} that does
+ * not copy them. A slice is only valid until the stream next moves the
+ * characters in its buffer, which can happen whenever the stream refills. Use
+ * {@link Slice#toString() toString()} to keep the characters beyond that.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class Slice implements CharSequence
+{
+	private final char[] chars;
+
+	private final int end;
+
+	private final int generation;
+
+	private final int start;
+
+	private final CharacterStream stream;
+
+	Slice(final CharacterStream stream, final char[] chars, final int start, final int end, final int generation)
+	{
+		this.stream = stream;
+		this.chars = chars;
+		this.start = start;
+		this.end = end;
+		this.generation = generation;
+	}
+
+	/**
+	 * Get the character at the given index in the slice.
+	 * 
+	 * @param index
+	 *            the index of the character
+	 * @return the character at the index
+	 * @throws IllegalStateException
+	 *             if the slice is no longer valid.
+	 */
+	@Override
+	public char charAt(final int index)
+	{
+		this.checkValid();
+
+		if (index < 0 || index >= this.end - this.start)
+		{
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+
+		return this.chars[this.start + index];
+	}
+
+	/**
+	 * Determine whether or not the slice contains the same characters as the
+	 * given sequence, without copying either of them.
+	 * 
+	 * @param other
+	 *            the characters to compare with
+	 * @return whether or not the characters are the same
+	 * @throws IllegalStateException
+	 *             if the slice is no longer valid.
+	 */
+	public boolean contentEquals(final CharSequence other)
+	{
+		this.checkValid();
+
+		final int length = this.end - this.start;
+
+		if (other.length() != length)
+		{
+			return false;
+		}
+
+		for (int i = 0; i < length; ++i)
+		{
+			if (this.chars[this.start + i] != other.charAt(i))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Determine whether or not the characters are still in the buffer of the
+	 * stream.
+	 * 
+	 * @return whether or not the slice can still be used
+	 */
+	public boolean isValid()
+	{
+		return this.stream.getGeneration() == this.generation;
+	}
+
+	/**
+	 * The number of characters in the slice.
+	 * 
+	 * @return the number of characters in the slice.
+	 */
+	@Override
+	public int length()
+	{
+		return this.end - this.start;
+	}
+
+	/**
+	 * Get a slice of this slice. The result is only valid for as long as this
+	 * slice is.
+	 * 
+	 * @param from
+	 *            the index of the first character, inclusive
+	 * @param to
+	 *            the index of the last character, exclusive
+	 * @return the slice
+	 * @throws IllegalStateException
+	 *             if the slice is no longer valid.
+	 */
+	@Override
+	public Slice subSequence(final int from, final int to)
+	{
+		this.checkValid();
+
+		if (from < 0 || to < from || to > this.end - this.start)
+		{
+			throw new IndexOutOfBoundsException(from + ", " + to);
+		}
+
+		return new Slice(this.stream, this.chars, this.start + from, this.start + to, this.generation);
+	}
+
+	/**
+	 * Copy the characters into a string that stays valid after the slice does
+	 * not.
+	 * 
+	 * @return the characters of the slice
+	 * @throws IllegalStateException
+	 *             if the slice is no longer valid.
+	 */
+	@Override
+	public String toString()
+	{
+		this.checkValid();
+
+		return new String(this.chars, this.start, this.end - this.start);
+	}
+
+	private void checkValid()
+	{
+		if (!this.isValid())
+		{
+			throw new IllegalStateException("Slice is no longer valid, the stream has refilled its buffer");
+		}
+	}
+}
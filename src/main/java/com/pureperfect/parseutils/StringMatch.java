@@ -0,0 +1,180 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A set of keywords compiled into a trie so that the longest keyword at the
+ * current position of a {@link CharacterStream} can be found by looking at
+ * each character once, no matter how many keywords there are. See
+ * {@link CharacterStream#matchLongest(StringMatch)}.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class StringMatch
+{
+	/*
+	 * The labels of the edges out of each state, sorted, with the edges of
+	 * state s at edgeStart[s] until edgeStart[s + 1].
+	 */
+	private final char[] edgeChars;
+
+	private final int[] edgeStart;
+
+	private final int[] edgeTargets;
+
+	/*
+	 * The index of the keyword that ends at each state or -1.
+	 */
+	private final int[] keywordAt;
+
+	private final String[] keywords;
+
+	/**
+	 * Compile the given keywords.
+	 * 
+	 * @param keywords
+	 *            the keywords to match, none of which may be empty. If a
+	 *            keyword is given more than once the first index is used.
+	 */
+	public StringMatch(final String... keywords)
+	{
+		this.keywords = keywords.clone();
+
+		final List<Map<Character, Integer>> trie = new ArrayList<Map<Character, Integer>>();
+		final List<Integer> ends = new ArrayList<Integer>();
+
+		trie.add(new TreeMap<Character, Integer>());
+		ends.add(-1);
+
+		for (int k = 0; k < this.keywords.length; ++k)
+		{
+			final String keyword = this.keywords[k];
+
+			if (keyword.isEmpty())
+			{
+				throw new IllegalArgumentException("Keywords must not be empty");
+			}
+
+			int state = 0;
+
+			for (int i = 0; i < keyword.length(); ++i)
+			{
+				final Character c = keyword.charAt(i);
+
+				Integer next = trie.get(state).get(c);
+
+				if (next == null)
+				{
+					next = trie.size();
+
+					trie.get(state).put(c, next);
+					trie.add(new TreeMap<Character, Integer>());
+					ends.add(-1);
+				}
+
+				state = next;
+			}
+
+			if (ends.get(state) < 0)
+			{
+				ends.set(state, k);
+			}
+		}
+
+		final int states = trie.size();
+
+		this.edgeStart = new int[states + 1];
+		this.edgeChars = new char[states - 1];
+		this.edgeTargets = new int[states - 1];
+		this.keywordAt = new int[states];
+
+		int edge = 0;
+
+		for (int state = 0; state < states; ++state)
+		{
+			this.edgeStart[state] = edge;
+			this.keywordAt[state] = ends.get(state);
+
+			for (final Map.Entry<Character, Integer> e : trie.get(state).entrySet())
+			{
+				this.edgeChars[edge] = e.getKey();
+				this.edgeTargets[edge] = e.getValue();
+				edge++;
+			}
+		}
+
+		this.edgeStart[states] = edge;
+	}
+
+	/**
+	 * Get the keyword with the given index.
+	 * 
+	 * @param index
+	 *            the index of the keyword, as returned from
+	 *            {@link CharacterStream#matchLongest(StringMatch)}
+	 * @return the keyword
+	 */
+	public String getKeyword(final int index)
+	{
+		return this.keywords[index];
+	}
+
+	/**
+	 * The number of keywords.
+	 * 
+	 * @return the number of keywords.
+	 */
+	public int size()
+	{
+		return this.keywords.length;
+	}
+
+	/**
+	 * Get the keyword that ends at the given state.
+	 * 
+	 * @param state
+	 *            the state
+	 * @return the index of the keyword or -1 if no keyword ends here.
+	 */
+	int keywordAt(final int state)
+	{
+		return this.keywordAt[state];
+	}
+
+	/**
+	 * Follow the edge for the given character.
+	 * 
+	 * @param state
+	 *            the current state, starting from zero
+	 * @param c
+	 *            the next character
+	 * @return the next state or -1 if no keyword continues with the character
+	 */
+	int next(final int state, final char c)
+	{
+		final int edge = Arrays.binarySearch(this.edgeChars, this.edgeStart[state], this.edgeStart[state + 1], c);
+
+		return edge < 0 ? -1 : this.edgeTargets[edge];
+	}
+}
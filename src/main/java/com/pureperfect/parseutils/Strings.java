@@ -15,6 +15,8 @@
  */
 package com.pureperfect.parseutils;
 
+import java.io.IOException;
+
 /**
  * Some random helper methods.
  * 
@@ -25,7 +27,124 @@ package com.pureperfect.parseutils;
 public class Strings
 {
 	/**
-	 * Concatenate a group of objects using the given separator.
+	 * Concatenate a group of objects using the given separator, appending
+	 * them to the given target. Builders are grown once to the exact length
+	 * needed before anything is appended.
+	 * 
+	 * @param dst
+	 *            the target to append to
+	 * @param separator
+	 *            the separator to use
+	 * @param args
+	 *            the objects to concatenate
+	 * @return the target.
+	 * @throws IOException
+	 *             if the target cannot be appended to.
+	 */
+	public static <A extends Appendable> A concat(final A dst, final String separator, final CharSequence... args)
+			throws IOException
+	{
+		if (dst instanceof StringBuilder)
+		{
+			Strings.concat((StringBuilder) dst, separator, args);
+
+			return dst;
+		}
+
+		for (int i = 0; i < args.length; ++i)
+		{
+			dst.append(args[i]);
+
+			if (i < args.length - 1)
+			{
+				dst.append(separator);
+			}
+		}
+
+		return dst;
+	}
+
+	/**
+	 * Concatenate a group of objects using the given separator, appending
+	 * them to the given target. Builders are grown once to the exact length
+	 * needed before anything is appended, which means iterating over the
+	 * objects twice.
+	 * 
+	 * @param dst
+	 *            the target to append to
+	 * @param separator
+	 *            the separator to use
+	 * @param args
+	 *            the objects to concatenate
+	 * @return the target.
+	 * @throws IOException
+	 *             if the target cannot be appended to.
+	 */
+	public static <A extends Appendable> A concat(final A dst, final String separator,
+			final Iterable<? extends CharSequence> args) throws IOException
+	{
+		if (dst instanceof StringBuilder)
+		{
+			Strings.concat((StringBuilder) dst, separator, args);
+
+			return dst;
+		}
+
+		boolean first = true;
+
+		for (final CharSequence arg : args)
+		{
+			if (!first)
+			{
+				dst.append(separator);
+			}
+
+			dst.append(arg);
+
+			first = false;
+		}
+
+		return dst;
+	}
+
+	/**
+	 * Concatenate a group of objects using the given separator. The builder
+	 * returned is allocated once with exactly the length needed.
+	 * 
+	 * @param separator
+	 *            the separator to use
+	 * 
+	 * @param args
+	 *            the objects to concatenate
+	 * @return the concatenated sequence.
+	 */
+	public static StringBuilder concat(final String separator, final CharSequence... args)
+	{
+		return Strings.concat(new StringBuilder(Strings.capacity(Strings.length(separator, args))), separator, args);
+	}
+
+	/**
+	 * Concatenate a group of objects using the given separator. The builder
+	 * returned is allocated once with exactly the length needed, which means
+	 * iterating over the objects twice.
+	 * 
+	 * @param separator
+	 *            the separator to use
+	 * 
+	 * @param args
+	 *            the objects to concatenate
+	 * @return the concatenated sequence.
+	 */
+	public static StringBuilder concat(final String separator, final Iterable<? extends CharSequence> args)
+	{
+		return Strings.concat(new StringBuilder(Strings.capacity(Strings.length(separator, args))), separator, args);
+	}
+
+	/**
+	 * Concatenate a group of objects using the given separator. If all of the
+	 * objects are character sequences the builder is allocated once with
+	 * exactly the length needed and they are appended without calling
+	 * {@link Object#toString()}.
 	 * 
 	 * @param separator
 	 *            the separator to use
@@ -36,11 +155,20 @@ public class Strings
 	 */
 	public static StringBuilder concat(final String separator, final Object... args)
 	{
-		final StringBuilder results = new StringBuilder(args.length * 16);
+		final long length = Strings.length(separator, args);
+
+		final StringBuilder results = new StringBuilder(length < 0 ? args.length * 16 : Strings.capacity(length));
 
 		for (int i = 0; i < args.length; ++i)
 		{
-			results.append(args[i]);
+			if (args[i] instanceof CharSequence)
+			{
+				results.append((CharSequence) args[i]);
+			}
+			else
+			{
+				results.append(args[i]);
+			}
 
 			if (i < args.length - 1)
 			{
@@ -51,6 +179,96 @@ public class Strings
 		return results;
 	}
 
+	/**
+	 * Concatenate a group of objects using the given separator, appending
+	 * them to the given builder. The builder is grown once to the exact length
+	 * needed before anything is appended.
+	 * 
+	 * @param dst
+	 *            the builder to append to
+	 * @param separator
+	 *            the separator to use
+	 * @param args
+	 *            the objects to concatenate
+	 * @return the builder.
+	 */
+	public static StringBuilder concat(final StringBuilder dst, final String separator, final CharSequence... args)
+	{
+		dst.ensureCapacity(Strings.capacity(dst.length() + Strings.length(separator, args)));
+
+		for (int i = 0; i < args.length; ++i)
+		{
+			dst.append(args[i]);
+
+			if (i < args.length - 1)
+			{
+				dst.append(separator);
+			}
+		}
+
+		return dst;
+	}
+
+	/**
+	 * Concatenate a group of objects using the given separator, appending
+	 * them to the given builder. The builder is grown once to the exact length
+	 * needed before anything is appended, which means iterating over the
+	 * objects twice.
+	 * 
+	 * @param dst
+	 *            the builder to append to
+	 * @param separator
+	 *            the separator to use
+	 * @param args
+	 *            the objects to concatenate
+	 * @return the builder.
+	 */
+	public static StringBuilder concat(final StringBuilder dst, final String separator,
+			final Iterable<? extends CharSequence> args)
+	{
+		dst.ensureCapacity(Strings.capacity(dst.length() + Strings.length(separator, args)));
+
+		boolean first = true;
+
+		for (final CharSequence arg : args)
+		{
+			if (!first)
+			{
+				dst.append(separator);
+			}
+
+			dst.append(arg);
+
+			first = false;
+		}
+
+		return dst;
+	}
+
+	/**
+	 * Trims leading and trailing whitespace. Nothing is copied if there is no
+	 * whitespace to trim and otherwise the result is a
+	 * {@link CharSequence#subSequence(int, int) subsequence} of the value.
+	 * 
+	 * @param value
+	 *            the value to trim.
+	 * @return the trimmed value or null if value was null
+	 */
+	public static CharSequence trim(final CharSequence value)
+	{
+		if (value == null)
+		{
+			return null;
+		}
+
+		final long bounds = Strings.trimBounds(value);
+
+		final int start = (int) (bounds >>> 32);
+		final int end = (int) bounds;
+
+		return start == 0 && end == value.length() ? value : value.subSequence(start, end);
+	}
+
 	/**
 	 * Trims leading and trailing whitespace.
 	 * 
@@ -64,7 +282,9 @@ public class Strings
 	}
 
 	/**
-	 * Trims leading and trailing whitespace.
+	 * Trims leading and trailing whitespace. The whitespace is found in one
+	 * pass from each end and removed with at most one deletion at each end, so
+	 * this is linear in the length of the value.
 	 * 
 	 * @param value
 	 *            the value to trim.
@@ -77,18 +297,110 @@ public class Strings
 			return null;
 		}
 
-		while (value.length() > 0 && Character.isWhitespace(value.charAt(0)))
+		final long bounds = Strings.trimBounds(value);
+
+		value.setLength((int) bounds);
+		value.delete(0, (int) (bounds >>> 32));
+
+		return value;
+	}
+
+	/**
+	 * Find where the value would begin and end if leading and trailing
+	 * whitespace were trimmed, without modifying it or allocating. The bounds
+	 * are packed into a long: the start index is <code>(int) (bounds >>> 32)</code>
+	 * and the end index, exclusive, is <code>(int) bounds</code>. A value that
+	 * is all whitespace has a start equal to its end.
+	 * 
+	 * @param value
+	 *            the value to trim.
+	 * @return the packed bounds of the trimmed value.
+	 */
+	public static long trimBounds(final CharSequence value)
+	{
+		int end = value.length();
+
+		while (end > 0 && Character.isWhitespace(value.charAt(end - 1)))
 		{
-			value.replace(0, 1, "");
+			--end;
 		}
 
-		for (int length = value.length(); length > 0 && Character.isWhitespace(value.charAt(length - 1)); length = value
-				.length())
+		int start = 0;
+
+		while (start < end && Character.isWhitespace(value.charAt(start)))
 		{
-			value.replace(length - 1, length, "");
+			++start;
 		}
 
-		return value;
+		return (long) start << 32 | end;
+	}
+
+	/*
+	 * Clamp a computed length to a capacity a StringBuilder can be given.
+	 */
+	private static int capacity(final long length)
+	{
+		return (int) Math.min(length, Integer.MAX_VALUE - 8);
+	}
+
+	/*
+	 * The length of a sequence once appended, where null is appended as
+	 * "null".
+	 */
+	private static int length(final CharSequence value)
+	{
+		return value == null ? 4 : value.length();
+	}
+
+	/*
+	 * The length of the concatenated sequences.
+	 */
+	private static long length(final String separator, final Iterable<? extends CharSequence> args)
+	{
+		long results = 0;
+		int count = 0;
+
+		for (final CharSequence arg : args)
+		{
+			results += Strings.length(arg);
+
+			++count;
+		}
+
+		return count == 0 ? 0 : results + (long) (count - 1) * Strings.length(separator);
+	}
+
+	/*
+	 * The length of the concatenated objects or -1 if any of them are not
+	 * character sequences, so the length is unknown without calling
+	 * toString().
+	 */
+	private static long length(final String separator, final Object[] args)
+	{
+		if (args.length == 0)
+		{
+			return 0;
+		}
+
+		long results = (long) (args.length - 1) * Strings.length(separator);
+
+		for (final Object arg : args)
+		{
+			if (arg == null)
+			{
+				results += 4;
+			}
+			else if (arg instanceof CharSequence)
+			{
+				results += ((CharSequence) arg).length();
+			}
+			else
+			{
+				return -1;
+			}
+		}
+
+		return results;
 	}
 
 	private Strings()
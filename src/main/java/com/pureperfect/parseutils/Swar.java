@@ -0,0 +1,340 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Byte scanning a word at a time. Eight bytes are read as a long and tested
+ * together with a few arithmetic tricks, so that searching ASCII and UTF-8
+ * text for a delimiter, or for the end of a run of ASCII, takes one branch per
+ * eight bytes instead of one per byte. The buffers can be in either byte order
+ * but are fastest in {@link ByteOrder#nativeOrder() native order}.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+class Swar
+{
+	/**
+	 * The high bit of every byte.
+	 */
+	static final long HIGH_BITS = 0x8080808080808080L;
+
+	/**
+	 * The low bit of every byte.
+	 */
+	static final long LOW_BITS = 0x0101010101010101L;
+
+	/*
+	 * Everything but the high bit of every byte.
+	 */
+	private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+	/**
+	 * Repeat a byte in every byte of a long.
+	 * 
+	 * @param b
+	 *            the byte
+	 * @return the repeated byte
+	 */
+	static long broadcast(final byte b)
+	{
+		return (b & 0xFFL) * Swar.LOW_BITS;
+	}
+
+	/**
+	 * Count the bytes equal to the given byte, for example to count the lines
+	 * in a block of text without decoding it.
+	 * 
+	 * @param buf
+	 *            the buffer to search
+	 * @param from
+	 *            the index to start at
+	 * @param to
+	 *            the index to stop at
+	 * @param b
+	 *            the byte to count
+	 * @return the number of matching bytes
+	 */
+	static int count(final ByteBuffer buf, final int from, final int to, final byte b)
+	{
+		final long pattern = Swar.broadcast(b);
+
+		int count = 0;
+		int i = from;
+
+		for (; i + 8 <= to; i += 8)
+		{
+			count += Long.bitCount(Swar.equalBytes(buf.getLong(i), pattern));
+		}
+
+		for (; i < to; ++i)
+		{
+			if (buf.get(i) == b)
+			{
+				++count;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Count the chars that well formed UTF-8 decodes to without decoding it.
+	 * Every byte but a continuation byte starts a character, and the lead
+	 * bytes of four byte sequences start a surrogate pair.
+	 * 
+	 * @param buf
+	 *            the buffer to count
+	 * @param from
+	 *            the index to start at, which should start a character
+	 * @param to
+	 *            the index to stop at
+	 * @return the number of chars
+	 */
+	static long countUtf8Chars(final ByteBuffer buf, final int from, final int to)
+	{
+		long count = to - from;
+		int i = from;
+
+		for (; i + 8 <= to; i += 8)
+		{
+			final long word = buf.getLong(i);
+
+			if ((word & Swar.HIGH_BITS) != 0)
+			{
+				// 10xxxxxx takes a char away and 11110xxx adds one
+				final long continuation = word & ~(word << 1) & Swar.HIGH_BITS;
+				final long fourByteLead = word & word << 1 & word << 2 & word << 3 & ~(word << 4) & Swar.HIGH_BITS;
+
+				count += Long.bitCount(fourByteLead) - Long.bitCount(continuation);
+			}
+		}
+
+		for (; i < to; ++i)
+		{
+			final int b = buf.get(i) & 0xFF;
+
+			if ((b & 0xC0) == 0x80)
+			{
+				--count;
+			}
+			else if ((b & 0xF8) == 0xF0)
+			{
+				++count;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Find the first byte equal to the given byte.
+	 * 
+	 * @param buf
+	 *            the buffer to search
+	 * @param from
+	 *            the index to start at
+	 * @param to
+	 *            the index to stop at
+	 * @param b
+	 *            the byte to find
+	 * @return the index of the byte, or -1 if it is not found.
+	 */
+	static int indexOf(final ByteBuffer buf, final int from, final int to, final byte b)
+	{
+		return Swar.indexOf(buf, from, to, b, b, b);
+	}
+
+	/**
+	 * Find the first byte equal to any of the given bytes, such as the
+	 * delimiters of a field. The same byte may be given more than once.
+	 * 
+	 * @param buf
+	 *            the buffer to search
+	 * @param from
+	 *            the index to start at
+	 * @param to
+	 *            the index to stop at
+	 * @param first
+	 *            the first byte to find
+	 * @param second
+	 *            the second byte to find
+	 * @param third
+	 *            the third byte to find
+	 * @return the index of the first matching byte, or -1 if there is none.
+	 */
+	static int indexOf(final ByteBuffer buf, final int from, final int to, final byte first, final byte second,
+			final byte third)
+	{
+		final boolean little = buf.order() == ByteOrder.LITTLE_ENDIAN;
+		final long firstPattern = Swar.broadcast(first);
+		final long secondPattern = Swar.broadcast(second);
+		final long thirdPattern = Swar.broadcast(third);
+
+		int i = from;
+
+		for (; i + 8 <= to; i += 8)
+		{
+			final long word = buf.getLong(i);
+			final long found = Swar.equalBytes(word, firstPattern) | Swar.equalBytes(word, secondPattern)
+					| Swar.equalBytes(word, thirdPattern);
+
+			if (found != 0)
+			{
+				return i + Swar.firstByte(found, little);
+			}
+		}
+
+		for (; i < to; ++i)
+		{
+			final byte b = buf.get(i);
+
+			if (b == first || b == second || b == third)
+			{
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Find the first ASCII byte. In UTF-8 every ASCII byte starts a new
+	 * character, so this finds where a run of multibyte characters ends.
+	 * 
+	 * @param buf
+	 *            the buffer to search
+	 * @param from
+	 *            the index to start at
+	 * @param to
+	 *            the index to stop at
+	 * @return the index of the first ASCII byte, or to if there are none.
+	 */
+	static int nextAscii(final ByteBuffer buf, final int from, final int to)
+	{
+		final boolean little = buf.order() == ByteOrder.LITTLE_ENDIAN;
+
+		int i = from;
+
+		for (; i + 8 <= to; i += 8)
+		{
+			final long ascii = ~buf.getLong(i) & Swar.HIGH_BITS;
+
+			if (ascii != 0)
+			{
+				return i + Swar.firstByte(ascii, little);
+			}
+		}
+
+		while (i < to && buf.get(i) < 0)
+		{
+			++i;
+		}
+
+		return i;
+	}
+
+	/**
+	 * Copy a run of ASCII bytes into a char array, widening each byte to a
+	 * char. Eight bytes at a time are checked for a high bit and, when there
+	 * is none, split into chars with shifts.
+	 * 
+	 * @param buf
+	 *            the buffer to copy from
+	 * @param from
+	 *            the index to start at
+	 * @param to
+	 *            the index to stop at
+	 * @param dst
+	 *            the array to copy to
+	 * @param off
+	 *            the index in the array to start copying to
+	 * @return the index of the first byte that is not ASCII, or to if they all
+	 *         are.
+	 */
+	static int widenAscii(final ByteBuffer buf, final int from, final int to, final char[] dst, final int off)
+	{
+		int i = from;
+		int o = off;
+
+		if (buf.order() == ByteOrder.LITTLE_ENDIAN)
+		{
+			for (; i + 8 <= to; i += 8, o += 8)
+			{
+				final long word = buf.getLong(i);
+
+				if ((word & Swar.HIGH_BITS) != 0)
+				{
+					break;
+				}
+
+				dst[o] = (char) (word & 0x7F);
+				dst[o + 1] = (char) (word >>> 8 & 0x7F);
+				dst[o + 2] = (char) (word >>> 16 & 0x7F);
+				dst[o + 3] = (char) (word >>> 24 & 0x7F);
+				dst[o + 4] = (char) (word >>> 32 & 0x7F);
+				dst[o + 5] = (char) (word >>> 40 & 0x7F);
+				dst[o + 6] = (char) (word >>> 48 & 0x7F);
+				dst[o + 7] = (char) (word >>> 56);
+			}
+		}
+
+		for (; i < to; ++i, ++o)
+		{
+			final byte b = buf.get(i);
+
+			if (b < 0)
+			{
+				break;
+			}
+
+			dst[o] = (char) b;
+		}
+
+		return i;
+	}
+
+	/*
+	 * Set the high bit of every byte in word that equals the byte in pattern.
+	 * Masking off the high bits before adding keeps carries from spilling into
+	 * the next byte, so unlike the shorter (x - 0x01..) & ~x & 0x80.. trick
+	 * there are no false positives and the bits can be counted.
+	 */
+	private static long equalBytes(final long word, final long pattern)
+	{
+		final long x = word ^ pattern;
+		final long y = (x & Swar.LOW_SEVEN_BITS) + Swar.LOW_SEVEN_BITS;
+
+		return ~(y | x | Swar.LOW_SEVEN_BITS);
+	}
+
+	/*
+	 * Index of the first byte in memory order with its high bit set.
+	 */
+	private static int firstByte(final long highBits, final boolean little)
+	{
+		return (little ? Long.numberOfTrailingZeros(highBits) : Long.numberOfLeadingZeros(highBits)) >>> 3;
+	}
+
+	private Swar()
+	{
+		// Hide constructor only static methods in this class
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.util.Arrays;
+
+/**
+ * A matcher backed by a bit table with one bit per character. The table only
+ * goes up to the highest character that matches, so matchers over ASCII fit in
+ * two longs while matchers over the rest of the BMP cost at most 8 KB.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+class TableMatch implements Match
+{
+	/**
+	 * Number of longs needed to cover every char.
+	 */
+	static final int FULL_LENGTH = (Character.MAX_VALUE + 1) >>> 6;
+
+	private final long[] bits;
+
+	/**
+	 * Create a matcher from the given table, which must not be changed
+	 * afterwards.
+	 * 
+	 * @param bits
+	 *            one bit per character, with the bit for c at
+	 *            {@code bits[c >>> 6] & (1L << c)}
+	 */
+	TableMatch(final long[] bits)
+	{
+		int length = bits.length;
+
+		while (length > 0 && bits[length - 1] == 0)
+		{
+			length--;
+		}
+
+		this.bits = length == bits.length ? bits : Arrays.copyOf(bits, length);
+	}
+
+	/**
+	 * Build a table from any matcher by asking it about every character.
+	 * 
+	 * @param m
+	 *            the matcher
+	 * @return the table
+	 */
+	static long[] table(final Match m)
+	{
+		final long[] bits = new long[TableMatch.FULL_LENGTH];
+
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; ++c)
+		{
+			if (m.matches((char) c))
+			{
+				bits[c >>> 6] |= 1L << c;
+			}
+		}
+
+		return bits;
+	}
+
+	/**
+	 * Look the character up in the table.
+	 * 
+	 * @return whether or not the character matches.
+	 */
+	@Override
+	public boolean matches(final char c)
+	{
+		final int index = c >>> 6;
+
+		return index < this.bits.length && (this.bits[index] & 1L << c) != 0;
+	}
+
+	/**
+	 * Find the end of the run of characters starting at from that match, or do
+	 * not match, the table. The loop reads the table from a local so that it
+	 * compiles down to a load, a shift and a test per character.
+	 * 
+	 * @param chars
+	 *            the characters to scan
+	 * @param from
+	 *            the index to start at
+	 * @param to
+	 *            the index to stop at
+	 * @param matching
+	 *            whether the run is of matching or non matching characters
+	 * @return the index of the first character that ends the run, or to.
+	 */
+	int scan(final char[] chars, final int from, final int to, final boolean matching)
+	{
+		final long[] bits = this.bits;
+		final int length = bits.length;
+
+		int i = from;
+
+		if (matching)
+		{
+			while (i < to)
+			{
+				final char c = chars[i];
+				final int index = c >>> 6;
+
+				if (index >= length || (bits[index] & 1L << c) == 0)
+				{
+					break;
+				}
+
+				++i;
+			}
+		}
+		else
+		{
+			while (i < to)
+			{
+				final char c = chars[i];
+				final int index = c >>> 6;
+
+				if (index < length && (bits[index] & 1L << c) != 0)
+				{
+					break;
+				}
+
+				++i;
+			}
+		}
+
+		return i;
+	}
+
+	/**
+	 * Get a copy of the table covering every char.
+	 * 
+	 * @return the table
+	 */
+	long[] table()
+	{
+		return Arrays.copyOf(this.bits, TableMatch.FULL_LENGTH);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Scans for delimiters a vector of characters at a time with the incubating
+ * Vector API. Each vector is compared against all three delimiters at once
+ * and the first character that ends the run is found from the mask, so there
+ * is one branch per vector instead of one per character. Whatever is left
+ * over at the end is scanned a character at a time.
+ * <p>
+ * This class is only compiled into the Java 17 part of the multi-release jar
+ * and is loaded by {@link DelimiterScanner#vector()}.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+class VectorDelimiterScanner extends DelimiterScanner
+{
+	/*
+	 * Vectors narrower than this are not worth the setup.
+	 */
+	private static final int MIN_LENGTH = 8;
+
+	private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+	/**
+	 * Create the scanner.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             if the hardware has no useful vectors.
+	 */
+	VectorDelimiterScanner()
+	{
+		if (VectorDelimiterScanner.SPECIES.length() < VectorDelimiterScanner.MIN_LENGTH)
+		{
+			throw new UnsupportedOperationException("Vectors of " + VectorDelimiterScanner.SPECIES.length()
+					+ " chars are too short");
+		}
+	}
+
+	@Override
+	int scan(final char[] chars, final int from, final int to, final char first, final char second,
+			final char third, final boolean matching)
+	{
+		final VectorSpecies<Short> species = VectorDelimiterScanner.SPECIES;
+		final int length = species.length();
+
+		int i = from;
+
+		for (final int bound = to - length; i <= bound; i += length)
+		{
+			final ShortVector v = ShortVector.fromCharArray(species, chars, i);
+
+			VectorMask<Short> ends = v.eq((short) first).or(v.eq((short) second)).or(v.eq((short) third));
+
+			if (matching)
+			{
+				ends = ends.not();
+			}
+
+			if (ends.anyTrue())
+			{
+				return i + ends.firstTrue();
+			}
+		}
+
+		return super.scan(chars, i, to, first, second, third, matching);
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class ByteSourceTest
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	@Test
+	public void byteBufferTooSmall()
+	{
+		try
+		{
+			new ByteSource(new ByteArrayInputStream(new byte[0]), ByteSourceTest.UTF8,
+					ByteSource.MIN_BYTE_BUFFER_SIZE - 1);
+
+			Assert.fail("Should not accept a tiny buffer");
+		}
+		catch (final IllegalArgumentException e)
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void emptyInput() throws IOException
+	{
+		final ByteSource source = new ByteSource(new ByteArrayInputStream(new byte[0]), ByteSourceTest.UTF8, 8);
+
+		Assert.assertEquals(-1, source.read(new char[8], 0, 8));
+		Assert.assertEquals(-1, source.read(new char[8], 0, 8));
+
+		source.close();
+	}
+
+	@Test
+	public void readCharsets() throws IOException
+	{
+		final StringBuilder value = new StringBuilder();
+
+		for (int i = 0; i < 500; ++i)
+		{
+			value.append("line ").append(i).append(i % 7 == 0 ? "\u00e9\u00fc\u00a3" : "").append('\n');
+		}
+
+		for (final String charset : new String[] { "UTF-8", "US-ASCII", "ISO-8859-1", "UTF-16", "windows-1252" })
+		{
+			final byte[] bytes = value.toString().getBytes(charset);
+
+			this.assertDecodes(bytes, Charset.forName(charset));
+		}
+	}
+
+	@Test
+	public void readFromChannel() throws IOException
+	{
+		final String expected = TestSupport.repeat(TestSupport.MIXED + "text", 100);
+
+		final ByteSource source = new ByteSource(Channels.newChannel(new ByteArrayInputStream(expected
+				.getBytes(ByteSourceTest.UTF8))), ByteSourceTest.UTF8, 9);
+
+		Assert.assertEquals(expected, TestSupport.readAll(source, 5));
+
+		source.close();
+	}
+
+	@Test
+	public void readMalformed() throws IOException
+	{
+		final byte[] bytes = { 'a', (byte) 0xE2, (byte) 0x82, 'b', (byte) 0xFF, 'c', (byte) 0x80, (byte) 0x80, 'd',
+				(byte) 0xC0, (byte) 0x80, (byte) 0xED, (byte) 0xA0, (byte) 0x80, (byte) 0xF4, (byte) 0x90, (byte) 0x80,
+				(byte) 0x80, 'e', (byte) 0xE0, (byte) 0x80, (byte) 0x80, 'f', (byte) 0xF0, (byte) 0x9F };
+
+		for (final String charset : new String[] { "UTF-8", "US-ASCII", "ISO-8859-1" })
+		{
+			this.assertDecodes(bytes, Charset.forName(charset));
+		}
+	}
+
+	@Test
+	public void readRandomBytes() throws IOException
+	{
+		final Random random = new Random(16);
+		final byte[] bytes = new byte[5000];
+
+		for (int i = 0; i < bytes.length; ++i)
+		{
+			// Mostly ASCII with lead and continuation bytes mixed in
+			bytes[i] = (byte) (random.nextInt(4) == 0 ? 0x80 + random.nextInt(0x78) : random.nextInt(0x80));
+		}
+
+		this.assertDecodes(bytes, ByteSourceTest.UTF8);
+	}
+
+	@Test
+	public void readWellFormedUtf8() throws IOException
+	{
+		this.assertDecodes(TestSupport.repeat(TestSupport.MIXED, 1000).getBytes(ByteSourceTest.UTF8),
+				ByteSourceTest.UTF8);
+		this.assertDecodes(TestSupport.repeat("\u0080\u07ff\u0800\uffff\udbff\udfff", 100)
+				.getBytes(ByteSourceTest.UTF8), ByteSourceTest.UTF8);
+	}
+
+	/*
+	 * Decode with every combination of a few byte buffer sizes and chunk
+	 * sizes and compare with what an InputStreamReader makes of the bytes.
+	 */
+	private void assertDecodes(final byte[] bytes, final Charset charset) throws IOException
+	{
+		final Reader reader = new InputStreamReader(new ByteArrayInputStream(bytes), charset);
+		final StringBuilder expected = new StringBuilder();
+
+		for (int c = reader.read(); c >= 0; c = reader.read())
+		{
+			expected.append((char) c);
+		}
+
+		for (final int size : new int[] { 8, 9, 13, 8192 })
+		{
+			for (final int chunk : new int[] { 1, 2, 7, 1000 })
+			{
+				final ByteSource source = new ByteSource(new ByteArrayInputStream(bytes), charset, size);
+
+				Assert.assertEquals(charset + " " + size + " " + chunk, expected.toString(),
+						TestSupport.readAll(source, chunk));
+
+				source.close();
+			}
+		}
+	}
+}
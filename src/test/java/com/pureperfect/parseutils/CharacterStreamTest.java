@@ -15,11 +15,19 @@
  */
 package com.pureperfect.parseutils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * 
@@ -29,6 +37,9 @@ import org.junit.Test;
  */
 public class CharacterStreamTest
 {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	public void assertPosition(final Position p, final int positionInStream,
 			final int lineNumber, final int positionInLine)
 	{
@@ -37,6 +48,182 @@ public class CharacterStreamTest
 		Assert.assertEquals(positionInLine, p.getPositionInLine());
 	}
 
+	@Test
+	public void appendWhile() throws IOException
+	{
+		final CharacterStream in = new CharacterStream(new StringReader("  \n  abc"), 2);
+
+		final StringBuilder results = new StringBuilder("x");
+
+		Assert.assertEquals(5, in.appendWhile(Match.WHITESPACE, results));
+		Assert.assertEquals("x  \n  ", results.toString());
+		this.assertPosition(in.getCurrentPosition(), 5, 1, 2);
+
+		Assert.assertEquals(0, in.appendWhile(Match.WHITESPACE, results));
+		Assert.assertEquals("x  \n  ", results.toString());
+
+		Assert.assertEquals('a', in.read());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void bufferSizeMustBePositive()
+	{
+		new CharacterStream(new StringReader("this is a test"), 0);
+	}
+
+	@Test
+	public void charArray() throws IOException
+	{
+		final char[] testData = "this is a test\n string".toCharArray();
+
+		final CharacterStream in = new CharacterStream(testData);
+
+		Assert.assertTrue(in.peekAndMatch("this is a test"));
+		Assert.assertEquals(0, in.skip(Match.WHITESPACE));
+
+		in.skip(5);
+		in.mark(0);
+
+		Assert.assertEquals(2, in.skip(new Match()
+		{
+			@Override
+			public boolean matches(final char c)
+			{
+				return c == 'i' || c == 's';
+			}
+		}));
+
+		this.assertPosition(in.getCurrentPosition(), 7, 0, 7);
+
+		// The whole array is always there so marks never run out
+		in.reset();
+
+		this.assertPosition(in.getCurrentPosition(), 5, 0, 5);
+
+		in.skip(100);
+
+		Assert.assertTrue(in.isAtEOF());
+		this.assertPosition(in.getCurrentPosition(), 22, 1, 7);
+
+		// The array must not be touched
+		Assert.assertEquals("this is a test\n string", String.valueOf(testData));
+	}
+
+	@Test
+	public void charArrayRange() throws IOException
+	{
+		final char[] testData = "this is a test".toCharArray();
+
+		final CharacterStream in = new CharacterStream(testData, 5, 4);
+
+		Assert.assertEquals("is a", String.valueOf(in.peek(10)));
+
+		in.pushMark();
+
+		Assert.assertEquals('i', in.read());
+		Assert.assertEquals('s', in.read());
+
+		this.assertPosition(in.getCurrentPosition(), 2, 0, 2);
+
+		in.popMark();
+
+		this.assertPosition(in.getCurrentPosition(), 0, 0, 0);
+
+		in.skip(4);
+
+		Assert.assertEquals(CharacterStream.EOF, in.peek());
+		Assert.assertEquals(CharacterStream.EOF, in.read());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void charArrayRangeOutOfBounds()
+	{
+		new CharacterStream("this is a test".toCharArray(), 10, 5);
+	}
+
+	@Test
+	public void charSequence() throws IOException
+	{
+		final StringBuilder testData = new StringBuilder();
+
+		for (int i = 0; i < 10000; ++i)
+		{
+			testData.append(i % 10 == 9 ? '\n' : (char) ('a' + i % 10));
+		}
+
+		final CharacterStream in = new CharacterStream(testData);
+
+		in.skip(3);
+		in.mark(1);
+
+		// Far beyond the buffer and the mark limit
+		in.skip(9000);
+
+		this.assertPosition(in.getCurrentPosition(), 9003, 900, 3);
+		Assert.assertTrue(in.peekAndMatch("defghi\nabc"));
+
+		in.reset();
+
+		this.assertPosition(in.getCurrentPosition(), 3, 0, 3);
+		Assert.assertTrue(in.peekAndMatch("defghi\nabc"));
+	}
+
+	@Test
+	public void charSequenceEmpty() throws IOException
+	{
+		final CharacterStream in = new CharacterStream("");
+
+		Assert.assertTrue(in.isAtEOF());
+		Assert.assertEquals(CharacterStream.EOF, in.read());
+		Assert.assertEquals(0, in.peek(5).length);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void commitWithoutMark()
+	{
+		new CharacterStream(new StringReader("this is a test")).commit();
+	}
+
+	@Test
+	public void defaultMarkLimit() throws IOException
+	{
+		final StringReader testData = new StringReader(
+				"this is a test\n string it is awesome because I say so");
+
+		final CharacterStream in = new CharacterStream(testData, 4);
+
+		Assert.assertEquals(Integer.MAX_VALUE, in.getDefaultMarkLimit());
+
+		in.setDefaultMarkLimit(3);
+
+		Assert.assertEquals(3, in.getDefaultMarkLimit());
+
+		in.mark();
+
+		in.skip(3);
+
+		in.reset();
+
+		in.skip(4);
+
+		try
+		{
+			in.reset();
+
+			Assert.fail("Reset should fail after reading past the default mark limit");
+		}
+		catch (final IOException e)
+		{
+			// Expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void defaultMarkLimitMustNotBeNegative()
+	{
+		new CharacterStream(new StringReader("this is a test")).setDefaultMarkLimit(-1);
+	}
+
 	@Test
 	public void getCurrentPosition() throws IOException
 	{
@@ -88,31 +275,117 @@ public class CharacterStreamTest
 	}
 
 	@Test
-	public void getCurrentPositionIsCopy()
+	public void getCurrentPositionIsShared() throws IOException
 	{
 		final StringReader testData = new StringReader("this is a test");
 
 		final CharacterStream in = new CharacterStream(testData);
 
-		Assert.assertEquals(in.getCurrentPosition(), in.getCurrentPosition());
-		Assert.assertFalse(in.getCurrentPosition() == in.getCurrentPosition());
+		// Positions are immutable so the same one is handed out until the stream moves
+		final Position p = in.getCurrentPosition();
+
+		Assert.assertSame(p, in.getCurrentPosition());
 
-		Assert.assertEquals(in.getCurrentPosition(), in.getCurrentPosition());
-		Assert.assertFalse(in.getCurrentPosition() == in.getCurrentPosition());
+		in.read();
+
+		Assert.assertNotSame(p, in.getCurrentPosition());
+		Assert.assertSame(in.getCurrentPosition(), in.getCurrentPosition());
+		this.assertPosition(p, 0, 0, 0);
 	}
 
 	@Test
-	public void getMarkedPositionIsCopy()
+	public void getMarkedPosition() throws IOException
 	{
-		final StringReader testData = new StringReader("this is a test");
+		final StringReader testData = new StringReader("this\nis a test");
 
 		final CharacterStream in = new CharacterStream(testData);
 
 		Assert.assertEquals(in.getMarkedPosition(), in.getMarkedPosition());
-		Assert.assertFalse(in.getMarkedPosition() == in.getMarkedPosition());
 
-		Assert.assertEquals(in.getMarkedPosition(), in.getMarkedPosition());
-		Assert.assertFalse(in.getMarkedPosition() == in.getMarkedPosition());
+		in.skip(7);
+		in.mark();
+		in.skip(2);
+
+		final Position marked = in.getMarkedPosition();
+
+		this.assertPosition(marked, 7, 1, 2);
+
+		in.reset();
+
+		this.assertPosition(in.getCurrentPosition(), 7, 1, 2);
+		this.assertPosition(marked, 7, 1, 2);
+	}
+
+	@Test
+	public void getPositionOfOffset() throws IOException
+	{
+		final CharacterStream in = new CharacterStream(new StringReader("ab\ncd\nef"), 2);
+
+		in.setLazyPositions(true);
+
+		final long start = in.getOffset();
+
+		in.skip(4);
+
+		final long middle = in.getOffset();
+
+		in.readUntil(Matches.anyOf("f"));
+
+		Assert.assertEquals(0, start);
+		Assert.assertEquals(4, middle);
+		Assert.assertEquals(7, in.getOffset());
+
+		this.assertPosition(in.getPosition(start), 0, 0, 0);
+		this.assertPosition(in.getPosition(middle), 4, 1, 1);
+		this.assertPosition(in.getPosition(in.getOffset()), 7, 2, 1);
+		this.assertPosition(in.getPosition(3), 3, 1, 0);
+
+		try
+		{
+			in.getPosition(100);
+
+			Assert.fail("Should not know where an offset that has not been read is");
+		}
+		catch (final IllegalArgumentException e)
+		{
+			// expected
+		}
+
+		final CharacterStream eager = new CharacterStream("ab\ncd");
+
+		eager.skip(4);
+
+		this.assertPosition(eager.getPosition(4), 4, 1, 1);
+		this.assertPosition(eager.getPosition(0), 0, 0, 0);
+
+		try
+		{
+			eager.getPosition(2);
+
+			Assert.fail("Should need lazy positions");
+		}
+		catch (final IllegalArgumentException e)
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void inputStream() throws IOException
+	{
+		final byte[] bytes = "caf\u00e9\nna\u00efve".getBytes("UTF-8");
+
+		final CharacterStream in = new CharacterStream(new ByteArrayInputStream(bytes), Charset.forName("UTF-8"), 4);
+
+		Assert.assertEquals("caf\u00e9", in.readUntil(Matches.anyOf("\n")));
+		Assert.assertTrue(in.isAtNewLine());
+		in.skip(1);
+		Assert.assertEquals("na\u00efve", in.readWhile(Matches.not(Match.WHITESPACE)));
+		Assert.assertTrue(in.isAtEOF());
+
+		this.assertPosition(in.getCurrentPosition(), 10, 1, 5);
+
+		in.close();
 	}
 
 	@Test
@@ -125,6 +398,20 @@ public class CharacterStreamTest
 		Assert.assertTrue(in.isAtNewLine());
 	}
 
+	@Test
+	public void isAtNewLineOnNewlineAtEndOfStream() throws IOException
+	{
+		final StringReader testData = new StringReader("\n");
+
+		final CharacterStream in = new CharacterStream(testData);
+
+		Assert.assertTrue(in.isAtNewLine());
+
+		in.read();
+
+		Assert.assertFalse(in.isAtNewLine());
+	}
+
 	@Test
 	public void isAtNewLineOnNewlineOnly() throws IOException
 	{
@@ -145,6 +432,60 @@ public class CharacterStreamTest
 		Assert.assertFalse(in.isAtNewLine());
 	}
 
+	@Test
+	public void lazyPositions() throws IOException
+	{
+		final StringBuilder value = new StringBuilder();
+
+		for (int i = 0; i < 300; ++i)
+		{
+			value.append("line ").append(i).append(i % 4 == 0 ? "\r\n" : "\n").append(i % 9 == 0 ? "\n\n" : "");
+		}
+
+		final Path file = this.folder.newFile().toPath();
+
+		Files.write(file, value.toString().getBytes("UTF-8"));
+
+		this.assertLazyPositions(new CharacterStream(new StringReader(value.toString()), 7),
+				new CharacterStream(new StringReader(value.toString()), 7));
+		this.assertLazyPositions(new CharacterStream(value), new CharacterStream(value));
+		this.assertLazyPositions(CharacterStream.open(file, Charset.forName("UTF-8")),
+				CharacterStream.open(file, Charset.forName("UTF-8")));
+	}
+
+	@Test
+	public void lazyPositionsAfterReading() throws IOException
+	{
+		final CharacterStream in = new CharacterStream("a\nb");
+
+		Assert.assertFalse(in.isLazyPositions());
+
+		in.peek(2);
+		in.setLazyPositions(true);
+		in.setLazyPositions(false);
+		in.setLazyPositions(true);
+
+		Assert.assertTrue(in.isLazyPositions());
+
+		in.read();
+
+		try
+		{
+			in.setLazyPositions(false);
+
+			Assert.fail("Should not change position tracking after reading");
+		}
+		catch (final IllegalStateException e)
+		{
+			// expected
+		}
+
+		in.read();
+
+		this.assertPosition(in.getCurrentPosition(), 2, 1, 0);
+		this.assertPosition(in.getMarkedPosition(), 0, 0, 0);
+	}
+
 	@Test
 	public void markAgainOverwritesPreviousMark() throws IOException
 	{
@@ -193,6 +534,30 @@ public class CharacterStreamTest
 		Assert.assertTrue(in.peekAndMatch("a test"));
 	}
 
+	@Test
+	public void markAndResetAcrossBufferRefill() throws IOException
+	{
+		final StringReader testData = new StringReader(
+				"this is a test\n string it is awesome because I say so");
+
+		final CharacterStream in = new CharacterStream(testData, 4);
+
+		in.skip(5);
+
+		in.mark();
+
+		// Read well past the size of the buffer
+		in.skip(20);
+
+		this.assertPosition(in.getCurrentPosition(), 25, 1, 10);
+
+		in.reset();
+
+		this.assertPosition(in.getCurrentPosition(), 5, 0, 5);
+
+		Assert.assertTrue(in.peekAndMatch("is a test\n string it is"));
+	}
+
 	@Test
 	public void markResetsToZero() throws IOException
 	{
@@ -300,73 +665,449 @@ public class CharacterStreamTest
 	}
 
 	@Test
-	public void markStartsAtZero() throws IOException
+	public void markStack() throws IOException
 	{
 		final StringReader testData = new StringReader(
 				"this is a test\n string it is awesome because I say so");
 
-		final CharacterStream in = new CharacterStream(testData);
+		final CharacterStream in = new CharacterStream(testData, 4);
 
-		/*
-		 * Start of the stream mark and current positions should be equal.
-		 */
-		Assert.assertEquals(in.getCurrentPosition(), in.getMarkedPosition());
+		Assert.assertEquals(0, in.getMarkDepth());
 
-		/*
-		 * They should not be equal anymore.
-		 */
-		for (int i = 0; i < 5; ++i)
-		{
-			in.read();
-		}
+		in.pushMark();
+		in.skip(5);
 
-		Assert.assertNotSame(in.getCurrentPosition(), in.getMarkedPosition());
+		in.pushMark();
+		in.skip(11);
 
-		// It should still be at zero
-		final Position mark = in.getMarkedPosition();
+		Assert.assertEquals(2, in.getMarkDepth());
+		this.assertPosition(in.getCurrentPosition(), 16, 1, 1);
 
-		Assert.assertEquals(0, mark.getLine());
-		Assert.assertEquals(0, mark.getPositionInLine());
-		Assert.assertEquals(0, mark.getPositionInStream());
+		// Try the inner alternative again
+		in.resetToMark();
+
+		this.assertPosition(in.getCurrentPosition(), 5, 0, 5);
+		Assert.assertEquals(2, in.getMarkDepth());
+
+		in.skip(20);
+
+		// Give up on the inner alternative
+		in.popMark();
+
+		this.assertPosition(in.getCurrentPosition(), 5, 0, 5);
+		Assert.assertEquals(1, in.getMarkDepth());
+		Assert.assertTrue(in.peekAndMatch("is a test"));
+
+		// Give up on the outer alternative too
+		in.skip(30);
+		in.popMark();
+
+		this.assertPosition(in.getCurrentPosition(), 0, 0, 0);
+		Assert.assertEquals(0, in.getMarkDepth());
+		Assert.assertTrue(in.peekAndMatch("this is a test"));
 	}
 
 	@Test
-	public void midStreamMarkAndReset() throws IOException
+	public void markStackCommit() throws IOException
 	{
 		final StringReader testData = new StringReader(
 				"this is a test\n string it is awesome because I say so");
 
-		final CharacterStream in = new CharacterStream(testData);
+		final CharacterStream in = new CharacterStream(testData, 4);
 
-		in.read();
-		in.read();
-		in.read();
-		in.read();
-		in.read();
+		in.pushMark();
+		in.skip(5);
 
-		in.mark();
+		in.pushMark();
+		in.skip(3);
 
-		Assert.assertEquals(5, in.getMarkedPosition().getPositionInStream());
-		Assert.assertEquals(5, in.getCurrentPosition().getPositionInStream());
-		Assert.assertNotSame(in.getCurrentPosition(), in.getMarkedPosition());
+		// The inner alternative matched
+		in.commit();
 
-		in.read();
-		in.read();
-		in.read();
+		this.assertPosition(in.getCurrentPosition(), 8, 0, 8);
+		Assert.assertEquals(1, in.getMarkDepth());
 
-		Assert.assertEquals(5, in.getMarkedPosition().getPositionInStream());
-		Assert.assertEquals(8, in.getCurrentPosition().getPositionInStream());
-		Assert.assertNotSame(in.getCurrentPosition(), in.getMarkedPosition());
+		in.skip(20);
 
-		in.reset();
+		// The outer mark is still there
+		in.resetToMark();
 
-		Assert.assertEquals(5, in.getMarkedPosition().getPositionInStream());
-		Assert.assertEquals(5, in.getCurrentPosition().getPositionInStream());
-		Assert.assertNotSame(in.getCurrentPosition(), in.getMarkedPosition());
+		this.assertPosition(in.getCurrentPosition(), 0, 0, 0);
+
+		in.skip(10);
+		in.commit();
+
+		this.assertPosition(in.getCurrentPosition(), 10, 0, 10);
+		Assert.assertEquals(0, in.getMarkDepth());
+		Assert.assertTrue(in.peekAndMatch("test"));
+	}
+
+	@Test
+	public void markStackDeeperThanInitialCapacity() throws IOException
+	{
+		final StringBuilder data = new StringBuilder();
+
+		for (int i = 0; i < 100; ++i)
+		{
+			data.append((char) ('a' + i % 26));
+		}
+
+		final CharacterStream in = new CharacterStream(new StringReader(data.toString()), 4);
+
+		for (int i = 0; i < 100; ++i)
+		{
+			in.pushMark();
+			in.read();
+		}
+
+		for (int i = 99; i >= 0; --i)
+		{
+			in.popMark();
+
+			Assert.assertEquals(i, in.getCurrentPosition().getPositionInStream());
+			Assert.assertEquals((char) ('a' + i % 26), in.peek());
+		}
+	}
+
+	@Test
+	public void markStackIsIndependentOfMark() throws IOException
+	{
+		final StringReader testData = new StringReader("this is a test");
+
+		final CharacterStream in = new CharacterStream(testData, 4);
+
+		in.skip(2);
+		in.mark();
+
+		in.skip(3);
+		in.pushMark();
+
+		in.skip(4);
+		in.reset();
+
+		this.assertPosition(in.getCurrentPosition(), 2, 0, 2);
+
+		in.skip(1);
+		in.popMark();
+
+		this.assertPosition(in.getCurrentPosition(), 5, 0, 5);
+		this.assertPosition(in.getMarkedPosition(), 2, 0, 2);
+	}
+
+	@Test
+	public void markStartsAtZero() throws IOException
+	{
+		final StringReader testData = new StringReader(
+				"this is a test\n string it is awesome because I say so");
+
+		final CharacterStream in = new CharacterStream(testData);
+
+		/*
+		 * Start of the stream mark and current positions should be equal.
+		 */
+		Assert.assertEquals(in.getCurrentPosition(), in.getMarkedPosition());
+
+		/*
+		 * They should not be equal anymore.
+		 */
+		for (int i = 0; i < 5; ++i)
+		{
+			in.read();
+		}
+
+		Assert.assertNotSame(in.getCurrentPosition(), in.getMarkedPosition());
+
+		// It should still be at zero
+		final Position mark = in.getMarkedPosition();
+
+		Assert.assertEquals(0, mark.getLine());
+		Assert.assertEquals(0, mark.getPositionInLine());
+		Assert.assertEquals(0, mark.getPositionInStream());
+	}
+
+	@Test
+	public void markWithReadAheadLimit() throws IOException
+	{
+		final StringReader testData = new StringReader(
+				"this is a test\n string it is awesome because I say so");
+
+		final CharacterStream in = new CharacterStream(testData, 4);
+
+		in.skip(5);
+
+		in.mark(6);
+
+		in.skip(6);
+
+		in.reset();
+
+		this.assertPosition(in.getCurrentPosition(), 5, 0, 5);
+
+		Assert.assertTrue(in.peekAndMatch("is a t"));
+
+		in.skip(7);
+
+		try
+		{
+			in.reset();
+
+			Assert.fail("Reset should fail after reading past the mark limit");
+		}
+		catch (final IOException e)
+		{
+			Assert.assertTrue(e.getMessage().contains("[5:0:5]"));
+		}
+
+		// A failed reset does not move the stream
+		this.assertPosition(in.getCurrentPosition(), 12, 0, 12);
+		Assert.assertEquals('s', in.read());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void markWithReadAheadLimitMustNotBeNegative() throws IOException
+	{
+		new CharacterStream(new StringReader("this is a test")).mark(-1);
+	}
+
+	@Test
+	public void markWithReadAheadLimitOnLongInput() throws IOException
+	{
+		final StringBuilder data = new StringBuilder();
+
+		for (int i = 0; i < 10000; ++i)
+		{
+			data.append("0123456789");
+		}
+
+		final CharacterStream in = new CharacterStream(new StringReader(data.toString()), 16);
+
+		/*
+		 * Keep marking with a small limit the way a tokenizer would, the stream
+		 * should only hold on to what it needs for each mark.
+		 */
+		for (int i = 0; i < 10000; ++i)
+		{
+			in.mark(10);
+			in.skip(10);
+			in.reset();
+			in.skip(10);
+		}
+
+		Assert.assertTrue(in.isAtEOF());
+		this.assertPosition(in.getCurrentPosition(), 100000, 0, 100000);
+	}
+
+	@Test
+	public void matchLength() throws IOException
+	{
+		final PatternMatch number = new PatternMatch("-?\\d+(\\.\\d+)?");
+
+		final CharacterStream in = new CharacterStream(new StringReader("-12.5e 42. x"), 3);
+
+		Assert.assertEquals(5, in.matchLength(number));
+		this.assertPosition(in.getCurrentPosition(), 0, 0, 0);
+
+		Assert.assertEquals("-12.5", in.read(number));
+		Assert.assertNull(in.read(number));
+		Assert.assertEquals(-1, in.skip(number));
+
+		in.skip(2);
+
+		// The dot is not part of the number without digits after it
+		Assert.assertEquals(2, in.skip(number));
+		Assert.assertEquals('.', in.read());
+
+		this.assertPosition(in.getCurrentPosition(), 10, 0, 10);
+	}
+
+	@Test
+	public void matchLengthOfEmptyMatch() throws IOException
+	{
+		final CharacterStream in = new CharacterStream("abc");
+
+		Assert.assertEquals(0, in.matchLength(new PatternMatch("\\d*")));
+		Assert.assertEquals("", in.read(new PatternMatch("\\d*")));
+		Assert.assertEquals(0, in.skip(new PatternMatch("x?")));
+
+		this.assertPosition(in.getCurrentPosition(), 0, 0, 0);
+	}
+
+	@Test
+	public void matchLongest() throws IOException
+	{
+		final StringMatch keywords = new StringMatch("in", "int", "interface", "if", "=", "==", "===");
+
+		final CharacterStream in = new CharacterStream(new StringReader("interface int inx if == ===="), 4);
+
+		Assert.assertEquals(2, in.matchLongest(keywords));
+		this.assertPosition(in.getCurrentPosition(), 0, 0, 0);
+
+		Assert.assertEquals(2, in.matchLongest(keywords, true));
+		this.assertPosition(in.getCurrentPosition(), 9, 0, 9);
+
+		Assert.assertEquals(-1, in.matchLongest(keywords, true));
+		this.assertPosition(in.getCurrentPosition(), 9, 0, 9);
+
+		in.skip(Match.WHITESPACE);
+
+		Assert.assertEquals(1, in.matchLongest(keywords, true));
+
+		in.skip(Match.WHITESPACE);
+
+		// Falls back to the longest keyword that did match
+		Assert.assertEquals(0, in.matchLongest(keywords, true));
+		Assert.assertEquals('x', in.read());
+
+		in.skip(Match.WHITESPACE);
+
+		Assert.assertEquals("if", keywords.getKeyword(in.matchLongest(keywords, true)));
+
+		in.skip(Match.WHITESPACE);
+
+		Assert.assertEquals(5, in.matchLongest(keywords, true));
+
+		in.skip(Match.WHITESPACE);
+
+		Assert.assertEquals(6, in.matchLongest(keywords, true));
+		Assert.assertEquals(4, in.matchLongest(keywords, true));
+		this.assertPosition(in.getCurrentPosition(), 28, 0, 28);
+
+		// Nothing left to match
+		Assert.assertEquals(-1, in.matchLongest(keywords, true));
+	}
+
+	@Test
+	public void matchLongestAcrossLines() throws IOException
+	{
+		final StringMatch keywords = new StringMatch("\r\n", "\n", "\r");
+
+		final CharacterStream in = new CharacterStream("\r\n\n\ra");
+
+		Assert.assertEquals(0, in.matchLongest(keywords, true));
+		Assert.assertEquals(1, in.matchLongest(keywords, true));
+		Assert.assertEquals(2, in.matchLongest(keywords, true));
+
+		this.assertPosition(in.getCurrentPosition(), 4, 2, 1);
+		Assert.assertEquals('a', in.read());
+	}
+
+	@Test
+	public void midStreamMarkAndReset() throws IOException
+	{
+		final StringReader testData = new StringReader(
+				"this is a test\n string it is awesome because I say so");
+
+		final CharacterStream in = new CharacterStream(testData);
+
+		in.read();
+		in.read();
+		in.read();
+		in.read();
+		in.read();
+
+		in.mark();
+
+		Assert.assertEquals(5, in.getMarkedPosition().getPositionInStream());
+		Assert.assertEquals(5, in.getCurrentPosition().getPositionInStream());
+		Assert.assertNotSame(in.getCurrentPosition(), in.getMarkedPosition());
+
+		in.read();
+		in.read();
+		in.read();
+
+		Assert.assertEquals(5, in.getMarkedPosition().getPositionInStream());
+		Assert.assertEquals(8, in.getCurrentPosition().getPositionInStream());
+		Assert.assertNotSame(in.getCurrentPosition(), in.getMarkedPosition());
+
+		in.reset();
+
+		Assert.assertEquals(5, in.getMarkedPosition().getPositionInStream());
+		Assert.assertEquals(5, in.getCurrentPosition().getPositionInStream());
+		Assert.assertNotSame(in.getCurrentPosition(), in.getMarkedPosition());
 
 		Assert.assertTrue(in.peekAndMatch("is a test"));
 	}
 
+	@Test
+	public void openFile() throws IOException
+	{
+		final Path file = this.folder.newFile().toPath();
+
+		Files.write(file, "this is a test\n string it is awesome because I say so".getBytes("UTF-8"));
+
+		final CharacterStream in = CharacterStream.open(file, Charset.forName("UTF-8"));
+
+		try
+		{
+			Assert.assertTrue(in.peekAndMatch("this is a test"));
+
+			in.skip(16);
+
+			this.assertPosition(in.getCurrentPosition(), 16, 1, 1);
+
+			Assert.assertEquals('s', in.read());
+
+			in.skip(Match.WHITESPACE);
+			in.skip(100);
+
+			Assert.assertTrue(in.isAtEOF());
+
+			in.reset();
+
+			this.assertPosition(in.getCurrentPosition(), 0, 0, 0);
+			Assert.assertEquals('t', in.read());
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	@Test
+	public void openFileResetsPastAnyLimit() throws IOException
+	{
+		final Path file = this.folder.newFile().toPath();
+
+		final StringBuilder data = new StringBuilder();
+
+		for (int i = 0; i < 100000; ++i)
+		{
+			data.append(i % 10 == 9 ? '\n' : (char) ('a' + i % 10));
+		}
+
+		Files.write(file, data.toString().getBytes("UTF-8"));
+
+		final CharacterStream in = CharacterStream.open(file, Charset.forName("UTF-8"));
+
+		try
+		{
+			in.skip(5);
+			in.mark(10);
+
+			in.pushMark();
+
+			// Way past the mark limit and the size of the buffer
+			in.skip(90000);
+
+			this.assertPosition(in.getCurrentPosition(), 90005, 9000, 5);
+
+			in.reset();
+
+			this.assertPosition(in.getCurrentPosition(), 5, 0, 5);
+			Assert.assertTrue(in.peekAndMatch("fghi\nabcd"));
+
+			in.skip(99000);
+			in.popMark();
+
+			this.assertPosition(in.getCurrentPosition(), 5, 0, 5);
+			Assert.assertTrue(in.peekAndMatch("fghi\nabcd"));
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
 	@Test
 	public void peek() throws IOException
 	{
@@ -415,6 +1156,24 @@ public class CharacterStreamTest
 		Assert.assertEquals('t', in.read());
 	}
 
+	@Test
+	public void peekAcrossBufferRefill() throws IOException
+	{
+		final StringReader testData = new StringReader("this is a test");
+
+		final CharacterStream in = new CharacterStream(testData, 4);
+
+		in.skip(3);
+
+		Assert.assertEquals("s is a ", String.valueOf(in.peek(7)));
+		Assert.assertEquals("s is a test", String.valueOf(in.peek(20)));
+
+		this.assertPosition(in.getCurrentPosition(), 3, 0, 3);
+
+		Assert.assertEquals('s', in.read());
+		Assert.assertEquals(' ', in.read());
+	}
+
 	@Test
 	public void peekAndMatch() throws IOException
 	{
@@ -432,102 +1191,381 @@ public class CharacterStreamTest
 
 		in.read();
 
-		Assert.assertFalse(in.peekAndMatch("this is a test"));
-		Assert.assertTrue(in.peekAndMatch("his is a test"));
+		Assert.assertFalse(in.peekAndMatch("this is a test"));
+		Assert.assertTrue(in.peekAndMatch("his is a test"));
+
+		this.assertPosition(in.getCurrentPosition(), 1, 0, 1);
+	}
+
+	@Test
+	public void peekAndMatchBeyondEndOfStream() throws IOException
+	{
+		final StringReader testData = new StringReader("this is a test");
+
+		final CharacterStream in = new CharacterStream(testData);
+
+		for (int i = 0; i < 30; i++)
+		{
+			in.read();
+		}
+
+		Assert.assertFalse(in.peekAndMatch("badtext"));
+		Assert.assertFalse(in.peekAndMatch("this is a test"));
+
+		Assert.assertEquals(CharacterStream.EOF, in.read());
+		Assert.assertEquals(CharacterStream.EOF, in.read());
+		Assert.assertEquals(CharacterStream.EOF, in.read());
+	}
+
+	@Test
+	public void peekAt() throws IOException
+	{
+		final StringReader testData = new StringReader("this is a test");
+
+		final CharacterStream in = new CharacterStream(testData, 4);
+
+		in.read();
+
+		Assert.assertEquals('h', in.peekAt(0));
+		Assert.assertEquals('i', in.peekAt(1));
+		Assert.assertEquals('a', in.peekAt(7));
+		Assert.assertEquals('t', in.peekAt(12));
+		Assert.assertEquals(CharacterStream.EOF, in.peekAt(13));
+		Assert.assertEquals(CharacterStream.EOF, in.peekAt(100));
+
+		this.assertPosition(in.getCurrentPosition(), 1, 0, 1);
+
+		Assert.assertEquals('h', in.read());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void peekAtNegativeOffset() throws IOException
+	{
+		new CharacterStream(new StringReader("this is a test")).peekAt(-1);
+	}
+
+	@Test
+	public void peekInto() throws IOException
+	{
+		final StringReader testData = new StringReader("this is a test");
+
+		final CharacterStream in = new CharacterStream(testData, 4);
+
+		in.skip(5);
+
+		final char[] dst = new char[10];
+
+		Assert.assertEquals(4, in.peekInto(dst, 2, 4));
+		Assert.assertEquals("is a", new String(dst, 2, 4));
+
+		// Should stop at the end of the stream
+		Assert.assertEquals(9, in.peekInto(dst, 0, 10));
+		Assert.assertEquals("is a test", new String(dst, 0, 9));
+
+		this.assertPosition(in.getCurrentPosition(), 5, 0, 5);
+
+		in.skip(9);
+
+		Assert.assertEquals(0, in.peekInto(dst, 0, 10));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void peekIntoOutOfBounds() throws IOException
+	{
+		new CharacterStream(new StringReader("this is a test")).peekInto(new char[4], 2, 3);
+	}
+
+	@Test
+	public void peekMultiplePastEndOfStream() throws IOException
+	{
+		final StringReader testData = new StringReader("this is a test");
+
+		final CharacterStream in = new CharacterStream(testData);
+
+		in.read();
+		in.read();
+		in.read();
+
+		/*
+		 * Make sure peek does not affect current or marked positions
+		 */
+		final Position current = in.getCurrentPosition();
+		final Position mark = in.getMarkedPosition();
+
+		final char[] peek = in.peek(15);
+
+		// Should stop at end of stream and not return a 15 char array
+		Assert.assertEquals(11, peek.length);
+
+		Assert.assertEquals('s', peek[0]);
+		Assert.assertEquals(' ', peek[1]);
+		Assert.assertEquals('i', peek[2]);
+		Assert.assertEquals('s', peek[3]);
+		Assert.assertEquals(' ', peek[4]);
+		Assert.assertEquals('a', peek[5]);
+		Assert.assertEquals(' ', peek[6]);
+		Assert.assertEquals('t', peek[7]);
+		Assert.assertEquals('e', peek[8]);
+		Assert.assertEquals('s', peek[9]);
+		Assert.assertEquals('t', peek[10]);
+
+		Assert.assertEquals(current, in.getCurrentPosition());
+		Assert.assertEquals(mark, in.getMarkedPosition());
+
+		// We should still be able to read those chars
+		Assert.assertEquals('s', in.read());
+		Assert.assertEquals(' ', in.read());
+		Assert.assertEquals('i', in.read());
+		Assert.assertEquals('s', in.read());
+		Assert.assertEquals(' ', in.read());
+		Assert.assertEquals('a', in.read());
+		Assert.assertEquals(' ', in.read());
+		Assert.assertEquals('t', in.read());
+		Assert.assertEquals('e', in.read());
+		Assert.assertEquals('s', in.read());
+		Assert.assertEquals('t', in.read());
+	}
+
+	@Test
+	public void peekSingleReturnsEOFWhenAtEndOfStream() throws IOException
+	{
+		final StringReader testData = new StringReader("");
+
+		final CharacterStream in = new CharacterStream(testData);
+
+		Assert.assertEquals(CharacterStream.EOF, in.peek());
+	}
+
+	@Test
+	public void peekSingleReturnsProperCharWhenNotAtEndOfStream()
+			throws IOException
+	{
+		final StringReader testData = new StringReader("u");
+
+		final CharacterStream in = new CharacterStream(testData);
+
+		Assert.assertEquals('u', in.peek());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void popMarkWithoutMark() throws IOException
+	{
+		new CharacterStream(new StringReader("this is a test")).popMark();
+	}
+
+	@Test
+	public void positionsPastTwoGigabytes() throws IOException
+	{
+		// Lines of 1000 characters and as many of them as needed
+		final char[] lines = new char[65536 + 1000];
+
+		for (int i = 0; i < lines.length; ++i)
+		{
+			lines[i] = (i + 1) % 1000 == 0 ? '\n' : 'x';
+		}
+
+		final CharacterSource source = new CharacterSource()
+		{
+			private long offset;
+
+			@Override
+			void close()
+			{
+				// Nothing to close
+			}
+
+			@Override
+			int read(final char[] dst, final int off, final int len)
+			{
+				final int read = Math.min(len, 65536);
+
+				System.arraycopy(lines, (int) (this.offset % 1000), dst, off, read);
+				this.offset += read;
+
+				return read;
+			}
+		};
+
+		final CharacterStream in = new CharacterStream(source, 65536);
+
+		in.setLazyPositions(true);
+		in.skip(Integer.MAX_VALUE);
+		in.skip(10);
+
+		final long offset = Integer.MAX_VALUE + 10L;
+		final Position p = in.getCurrentPosition();
+
+		Assert.assertEquals(offset, p.getPositionInStreamAsLong());
+		Assert.assertEquals(offset / 1000, p.getLineAsLong());
+		Assert.assertEquals(offset % 1000, p.getPositionInLineAsLong());
+	}
+
+	@Test
+	public void readableByteChannel() throws IOException
+	{
+		final byte[] bytes = "\u00e9t\u00e9 \u00e0 Paris".getBytes("ISO-8859-1");
+
+		final CharacterStream in = new CharacterStream(Channels.newChannel(new ByteArrayInputStream(bytes)),
+				Charset.forName("ISO-8859-1"));
+
+		in.mark();
+
+		Assert.assertEquals("\u00e9t\u00e9", in.readUntil(" "));
+
+		in.reset();
+
+		Assert.assertEquals("\u00e9t\u00e9 \u00e0 Paris", in.readUntil(Matches.anyOf("\n")));
+
+		in.close();
+	}
+
+	@Test
+	public void readDouble() throws IOException
+	{
+		final CharacterStream in = new CharacterStream(
+				"3.25 -0.5 +7 1e3 .5 6. 1.5E-2 12345678901234567890123 0.1234567890123456789012 2.5e 9x");
+
+		final double[] expected = { 3.25, -0.5, 7, 1000, 0.5, 6, 0.015, 12345678901234567890123d,
+				0.1234567890123456789012, 2.5 };
+
+		for (final double d : expected)
+		{
+			Assert.assertEquals(d, in.readDouble(), 0);
+
+			in.skip(Matches.anyOf(" "));
+		}
+
+		Assert.assertEquals('e', in.read());
+		in.read();
+
+		Assert.assertEquals(9, in.readDouble(), 0);
+		Assert.assertEquals('x', in.read());
+	}
+
+	@Test
+	public void readDoubleAcrossBuffers() throws IOException
+	{
+		final Random random = new Random(31);
+
+		final StringBuilder input = new StringBuilder();
+
+		final double[] expected = new double[1000];
+
+		for (int i = 0; i < expected.length; ++i)
+		{
+			expected[i] = Double.longBitsToDouble(random.nextLong());
+
+			if (Double.isNaN(expected[i]) || Double.isInfinite(expected[i]))
+			{
+				expected[i] = random.nextGaussian();
+			}
+
+			input.append(expected[i]).append('\n');
+		}
+
+		final CharacterStream in = new CharacterStream(new StringReader(input.toString()), 7);
+
+		for (int i = 0; i < expected.length; ++i)
+		{
+			Assert.assertEquals(Double.doubleToLongBits(expected[i]), Double.doubleToLongBits(in.readDouble()));
+			Assert.assertEquals('\n', in.read());
+		}
+
+		this.assertPosition(in.getCurrentPosition(), input.length(), expected.length, 0);
+	}
 
-		this.assertPosition(in.getCurrentPosition(), 1, 0, 1);
+	@Test
+	public void readDoubleMalformed() throws IOException
+	{
+		for (final String input : new String[] { "", "-", "+.", ".e5", "x1" })
+		{
+			final CharacterStream in = new CharacterStream(input);
+
+			try
+			{
+				in.readDouble();
+				Assert.fail(input);
+			}
+			catch (final ParseException e)
+			{
+				Assert.assertEquals(0, e.getPosition().getPositionInStreamAsLong());
+				Assert.assertEquals(0, in.getOffset());
+			}
+		}
 	}
 
 	@Test
-	public void peekAndMatchBeyondEndOfStream() throws IOException
+	public void readInt() throws IOException
 	{
-		final StringReader testData = new StringReader("this is a test");
+		final CharacterStream in = new CharacterStream("42,-7,+0,2147483647,-2147483648,12ab");
 
-		final CharacterStream in = new CharacterStream(testData);
+		final int[] expected = { 42, -7, 0, Integer.MAX_VALUE, Integer.MIN_VALUE, 12 };
 
-		for (int i = 0; i < 30; i++)
+		for (final int i : expected)
 		{
+			Assert.assertEquals(i, in.readInt());
+
 			in.read();
 		}
 
-		Assert.assertFalse(in.peekAndMatch("badtext"));
-		Assert.assertFalse(in.peekAndMatch("this is a test"));
-
-		Assert.assertEquals(CharacterStream.EOF, in.read());
-		Assert.assertEquals(CharacterStream.EOF, in.read());
-		Assert.assertEquals(CharacterStream.EOF, in.read());
+		Assert.assertEquals('b', in.read());
 	}
 
 	@Test
-	public void peekMultiplePastEndOfStream() throws IOException
+	public void readIntMalformed() throws IOException
 	{
-		final StringReader testData = new StringReader("this is a test");
-
-		final CharacterStream in = new CharacterStream(testData);
-
-		in.read();
-		in.read();
-		in.read();
-
-		/*
-		 * Make sure peek does not affect current or marked positions
-		 */
-		final Position current = in.getCurrentPosition();
-		final Position mark = in.getMarkedPosition();
+		final CharacterStream in = new CharacterStream("1\n 2147483648");
 
-		final char[] peek = in.peek(15);
+		in.readInt();
+		in.skip(2);
 
-		// Should stop at end of stream and not return a 15 char array
-		Assert.assertEquals(11, peek.length);
+		try
+		{
+			in.readInt();
+			Assert.fail();
+		}
+		catch (final ParseException e)
+		{
+			this.assertPosition(e.getPosition(), 3, 1, 1);
+			Assert.assertEquals("Number too large for an int at line 1, column 1", e.getMessage());
+		}
 
-		Assert.assertEquals('s', peek[0]);
-		Assert.assertEquals(' ', peek[1]);
-		Assert.assertEquals('i', peek[2]);
-		Assert.assertEquals('s', peek[3]);
-		Assert.assertEquals(' ', peek[4]);
-		Assert.assertEquals('a', peek[5]);
-		Assert.assertEquals(' ', peek[6]);
-		Assert.assertEquals('t', peek[7]);
-		Assert.assertEquals('e', peek[8]);
-		Assert.assertEquals('s', peek[9]);
-		Assert.assertEquals('t', peek[10]);
+		Assert.assertEquals(2147483648L, in.readLong());
 
-		Assert.assertEquals(current, in.getCurrentPosition());
-		Assert.assertEquals(mark, in.getMarkedPosition());
+		try
+		{
+			in.readInt();
+			Assert.fail();
+		}
+		catch (final ParseException e)
+		{
+			Assert.assertEquals("Expected an int at line 1, column 11", e.getMessage());
+		}
 
-		// We should still be able to read those chars
-		Assert.assertEquals('s', in.read());
-		Assert.assertEquals(' ', in.read());
-		Assert.assertEquals('i', in.read());
-		Assert.assertEquals('s', in.read());
-		Assert.assertEquals(' ', in.read());
-		Assert.assertEquals('a', in.read());
-		Assert.assertEquals(' ', in.read());
-		Assert.assertEquals('t', in.read());
-		Assert.assertEquals('e', in.read());
-		Assert.assertEquals('s', in.read());
-		Assert.assertEquals('t', in.read());
+		Assert.assertTrue(in.isAtEOF());
 	}
 
 	@Test
-	public void peekSingleReturnsEOFWhenAtEndOfStream() throws IOException
+	public void readLong() throws IOException
 	{
-		final StringReader testData = new StringReader("");
-
-		final CharacterStream in = new CharacterStream(testData);
-
-		Assert.assertEquals(CharacterStream.EOF, in.peek());
-	}
+		final CharacterStream in = new CharacterStream("9223372036854775807 -9223372036854775808 -9223372036854775809");
 
-	@Test
-	public void peekSingleReturnsProperCharWhenNotAtEndOfStream()
-			throws IOException
-	{
-		final StringReader testData = new StringReader("u");
+		Assert.assertEquals(Long.MAX_VALUE, in.readLong());
+		in.read();
+		Assert.assertEquals(Long.MIN_VALUE, in.readLong());
+		in.read();
 
-		final CharacterStream in = new CharacterStream(testData);
+		try
+		{
+			in.readLong();
+			Assert.fail();
+		}
+		catch (final ParseException e)
+		{
+			Assert.assertEquals(41, e.getPosition().getPositionInStreamAsLong());
+		}
 
-		Assert.assertEquals('u', in.peek());
+		Assert.assertEquals('-', in.read());
 	}
 
 	@Test
@@ -571,6 +1609,154 @@ public class CharacterStreamTest
 		Assert.assertEquals(current, in.getCurrentPosition());
 	}
 
+	@Test
+	public void readPatternAcrossLines() throws IOException
+	{
+		final PatternMatch comment = new PatternMatch("/\\*([^*]|\\*+[^*/])*\\*+/");
+
+		final CharacterStream in = new CharacterStream(new StringReader("/* one\n * two **/x"), 4);
+
+		Assert.assertEquals("/* one\n * two **/", in.read(comment));
+		this.assertPosition(in.getCurrentPosition(), 17, 1, 10);
+		Assert.assertEquals('x', in.read());
+	}
+
+	@Test
+	public void readUntilDelimiter() throws IOException
+	{
+		final CharacterStream in = new CharacterStream(new StringReader("a -- b --- c -\n-- d"), 3);
+
+		Assert.assertEquals("a ", in.readUntil("--"));
+		Assert.assertEquals("", in.readUntil("--"));
+
+		in.skip(2);
+
+		Assert.assertEquals(" b ", in.readUntil("---"));
+
+		in.skip(3);
+
+		Assert.assertEquals(" c -\n", in.readUntil("--"));
+		this.assertPosition(in.getCurrentPosition(), 15, 1, 0);
+
+		in.skip(2);
+
+		// Reads to the end if the delimiter is not there
+		Assert.assertEquals(" d", in.readUntil("--"));
+		Assert.assertTrue(in.isAtEOF());
+		Assert.assertEquals("", in.readUntil("--"));
+	}
+
+	@Test
+	public void readUntilDelimiters() throws IOException
+	{
+		final Match delimiters = Matches.anyOf(",\n");
+		final Match notDelimiters = Matches.not(delimiters);
+
+		final CharacterStream in = new CharacterStream(new StringReader("alpha,beta\ngamma,,delta"), 4);
+
+		Assert.assertEquals("alpha", in.readUntil(delimiters));
+		Assert.assertEquals(',', in.read());
+		Assert.assertEquals("beta", in.readUntil(delimiters));
+		Assert.assertEquals(1, in.skip(delimiters));
+		Assert.assertEquals("gamma", in.readWhile(notDelimiters));
+		Assert.assertEquals(2, in.skip(delimiters));
+		Assert.assertEquals("delta", in.sliceUntil(delimiters).toString());
+		Assert.assertTrue(in.isAtEOF());
+
+		this.assertPosition(in.getCurrentPosition(), 23, 1, 12);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void readUntilEmptyDelimiter() throws IOException
+	{
+		new CharacterStream("this is a test").readUntil("");
+	}
+
+	@Test
+	public void readUntilMatch() throws IOException
+	{
+		final CharacterStream in = new CharacterStream(new StringReader("this is\na test"), 3);
+
+		Assert.assertEquals("this", in.readUntil(Match.WHITESPACE));
+		Assert.assertEquals("", in.readUntil(Match.WHITESPACE));
+
+		in.skip(Match.WHITESPACE);
+
+		Assert.assertEquals("is", in.readUntil(Match.WHITESPACE));
+		Assert.assertEquals('\n', in.read());
+
+		in.read();
+		in.read();
+
+		Assert.assertEquals("test", in.readUntil(Match.WHITESPACE));
+		this.assertPosition(in.getCurrentPosition(), 14, 1, 6);
+	}
+
+	@Test
+	public void readWhile() throws IOException
+	{
+		final Match letters = new Match()
+		{
+			@Override
+			public boolean matches(final char c)
+			{
+				return Character.isLetter(c);
+			}
+		};
+
+		final CharacterStream in = new CharacterStream(new StringReader("identifier = value"), 4);
+
+		Assert.assertEquals("identifier", in.readWhile(letters));
+		Assert.assertEquals("", in.readWhile(letters));
+
+		this.assertPosition(in.getCurrentPosition(), 10, 0, 10);
+
+		in.skip(3);
+
+		Assert.assertEquals("value", in.readWhile(letters));
+		Assert.assertEquals("", in.readWhile(letters));
+		Assert.assertTrue(in.isAtEOF());
+	}
+
+	@Test(expected = IOException.class)
+	public void resetFailsOnceStartOfStreamIsDiscarded() throws IOException
+	{
+		final StringReader testData = new StringReader(
+				"this is a test\n string it is awesome because I say so");
+
+		final CharacterStream in = new CharacterStream(testData, 4);
+
+		/*
+		 * Without an explicit mark the start of the stream is only kept for as
+		 * long as it fits in the buffer.
+		 */
+		in.skip(10);
+
+		in.reset();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void resetToMarkWithoutMark() throws IOException
+	{
+		new CharacterStream(new StringReader("this is a test")).resetToMark();
+	}
+
+	@Test
+	public void resetToStartOfStreamWithinBuffer() throws IOException
+	{
+		final StringReader testData = new StringReader("this is a test");
+
+		final CharacterStream in = new CharacterStream(testData, 4);
+
+		in.skip(4);
+
+		in.reset();
+
+		this.assertPosition(in.getCurrentPosition(), 0, 0, 0);
+
+		Assert.assertEquals('t', in.read());
+	}
+
 	@Test
 	public void skip() throws IOException
 	{
@@ -608,6 +1794,20 @@ public class CharacterStreamTest
 		Assert.assertEquals(22, current.getPositionInStream());
 	}
 
+	@Test
+	public void skipAcrossBufferRefill() throws IOException
+	{
+		final StringReader testData = new StringReader(
+				"this is a test\n string it is\n awesome because I say so");
+
+		final CharacterStream in = new CharacterStream(testData, 4);
+
+		in.skip(30);
+
+		this.assertPosition(in.getCurrentPosition(), 30, 2, 1);
+		Assert.assertEquals('a', in.read());
+	}
+
 	@Test
 	public void skipPastEnd() throws IOException
 	{
@@ -638,6 +1838,59 @@ public class CharacterStreamTest
 		Assert.assertEquals(CharacterStream.EOF, in.read());
 	}
 
+	@Test
+	public void skipUntil() throws IOException
+	{
+		final StringBuilder value = new StringBuilder();
+
+		for (int i = 0; i < 20000; ++i)
+		{
+			value.append("line ").append(i).append(i % 7 == 0 ? " \u00e9\u20ac\ud83d\ude00" : "").append('\n');
+
+			if (i % 5000 == 4999)
+			{
+				value.append("field|");
+			}
+		}
+
+		final Path file = this.folder.newFile().toPath();
+
+		Files.write(file, value.toString().getBytes("UTF-8"));
+
+		final CharacterStream expected = new CharacterStream(value);
+		final CharacterStream in = CharacterStream.open(file, Charset.forName("UTF-8"));
+
+		try
+		{
+			in.skip(3);
+			expected.skip(3);
+
+			in.mark();
+
+			for (int i = 0; i < 5; ++i)
+			{
+				Assert.assertEquals(expected.skipUntil(Matches.anyOf("|")), in.skipUntil(Matches.anyOf("|")));
+				Assert.assertEquals(expected.getCurrentPosition(), in.getCurrentPosition());
+				Assert.assertEquals(expected.read(), in.read());
+			}
+
+			Assert.assertTrue(in.isAtEOF());
+			Assert.assertEquals(0, in.skipUntil(Matches.anyOf("|")));
+
+			// The skipped characters can still be read after a reset
+			in.reset();
+
+			Assert.assertEquals(value.substring(3, 5000), new String(in.peek(4997)));
+			Assert.assertEquals(value.indexOf("|") - 3, in.skipUntil(Matches.anyOf(",|;")));
+			Assert.assertEquals(value.indexOf("\u00e9", value.indexOf("|")) - value.indexOf("|"),
+					in.skipUntil(Matches.anyOf("\u00e9")));
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
 	@Test
 	public void skipWhiteSpacePastEndOfStream() throws IOException
 	{
@@ -739,4 +1992,177 @@ public class CharacterStreamTest
 
 		Assert.assertEquals('w', in.read());
 	}
+
+	@Test
+	public void skipWithMatcherAcrossBufferRefill() throws IOException
+	{
+		final StringReader testData = new StringReader("x \n  \t\n\n   \n  y");
+
+		final CharacterStream in = new CharacterStream(testData, 4);
+
+		Assert.assertEquals('x', in.read());
+		Assert.assertEquals(13, in.skip(Match.WHITESPACE));
+
+		this.assertPosition(in.getCurrentPosition(), 14, 4, 2);
+		Assert.assertEquals('y', in.read());
+
+		Assert.assertEquals(0, in.skip(Match.WHITESPACE));
+		this.assertPosition(in.getCurrentPosition(), 15, 4, 3);
+	}
+
+	@Test
+	public void skipWithMatcherStopsAtEndOfStream() throws IOException
+	{
+		final CharacterStream in = new CharacterStream("aaaa");
+
+		// Even a matcher that matches everything stops at the end
+		Assert.assertEquals(4, in.skip(new Match()
+		{
+			@Override
+			public boolean matches(final char c)
+			{
+				return true;
+			}
+		}));
+
+		Assert.assertTrue(in.isAtEOF());
+	}
+
+	@Test
+	public void sliceUntil() throws IOException
+	{
+		final CharacterStream in = new CharacterStream(new StringReader("this is\na test"), 3);
+
+		Assert.assertEquals("this", in.sliceUntil(Match.WHITESPACE).toString());
+		Assert.assertEquals(0, in.sliceUntil(Match.WHITESPACE).length());
+
+		in.skip(Match.WHITESPACE);
+
+		Assert.assertEquals("is", in.sliceUntil(Match.WHITESPACE).toString());
+
+		in.skip(3);
+
+		Assert.assertEquals("test", in.sliceUntil(Match.WHITESPACE).toString());
+		this.assertPosition(in.getCurrentPosition(), 14, 1, 6);
+	}
+
+	@Test
+	public void sliceWhile() throws IOException
+	{
+		final Match letters = new Match()
+		{
+			@Override
+			public boolean matches(final char c)
+			{
+				return Character.isLetter(c);
+			}
+		};
+
+		// The slice runs well past the initial size of the buffer
+		final CharacterStream in = new CharacterStream(new StringReader("identifier = value"), 4);
+
+		final Slice identifier = in.sliceWhile(letters);
+
+		Assert.assertTrue(identifier.contentEquals("identifier"));
+		this.assertPosition(in.getCurrentPosition(), 10, 0, 10);
+
+		in.skip(3);
+
+		Assert.assertTrue(in.sliceWhile(letters).contentEquals("value"));
+		Assert.assertTrue(in.isAtEOF());
+	}
+
+	@Test
+	public void sliceWhileIsInvalidatedByRefill() throws IOException
+	{
+		final CharacterStream in = new CharacterStream(new StringReader("let x = 1"), 4);
+
+		final Slice keyword = in.sliceUntil(Match.WHITESPACE);
+
+		Assert.assertTrue(keyword.isValid());
+		Assert.assertEquals("let", keyword.toString());
+
+		in.skip(100);
+
+		Assert.assertFalse(keyword.isValid());
+	}
+
+	@Test
+	public void sliceWhileOnCharArrayStaysValid() throws IOException
+	{
+		final CharacterStream in = new CharacterStream("let x = 1".toCharArray());
+
+		final Slice keyword = in.sliceUntil(Match.WHITESPACE);
+
+		in.skip(100);
+
+		// Nothing is ever refilled so the slice stays valid
+		Assert.assertTrue(keyword.isValid());
+		Assert.assertTrue(keyword.contentEquals("let"));
+	}
+
+	/*
+	 * Run the same random reads, marks and resets on a stream that tracks
+	 * positions as it reads and one that works them out lazily and check that
+	 * they always agree.
+	 */
+	private void assertLazyPositions(final CharacterStream eager, final CharacterStream lazy) throws IOException
+	{
+		final Random random = new Random(17);
+		final Match newline = Matches.anyOf("\n");
+
+		lazy.setLazyPositions(true);
+
+		while (!eager.isAtEOF())
+		{
+			final int operation = random.nextInt(10);
+			final int count = 1 + random.nextInt(20);
+
+			for (final CharacterStream in : new CharacterStream[] { eager, lazy })
+			{
+				switch (operation)
+				{
+				case 0:
+					in.read();
+					break;
+				case 1:
+					in.skip(count);
+					break;
+				case 2:
+					in.readUntil(newline);
+					break;
+				case 3:
+					in.readWhile(newline);
+					break;
+				case 4:
+					in.mark();
+					break;
+				case 5:
+					in.reset();
+					break;
+				case 6:
+					in.pushMark();
+					break;
+				default:
+					if (in.getMarkDepth() > 0)
+					{
+						in.popMark();
+					}
+					else
+					{
+						in.peek(30);
+						in.skip(5);
+					}
+				}
+			}
+
+			Assert.assertEquals(eager.getCurrentPosition().toString(), lazy.getCurrentPosition().toString());
+			Assert.assertEquals(eager.getMarkedPosition().toString(), lazy.getMarkedPosition().toString());
+		}
+
+		Assert.assertTrue(lazy.isAtEOF());
+
+		eager.close();
+		lazy.close();
+	}
 }
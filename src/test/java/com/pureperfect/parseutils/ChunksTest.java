@@ -0,0 +1,307 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class ChunksTest
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void countMustBePositive() throws IOException
+	{
+		try
+		{
+			Chunks.split(TestSupport.write(this.folder, "a\nb\n", ChunksTest.UTF8), ChunksTest.UTF8, 0, "\n");
+
+			Assert.fail("Should not split into no chunks");
+		}
+		catch (final IllegalArgumentException e)
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void emptyFile() throws IOException
+	{
+		final Path file = TestSupport.write(this.folder, "", ChunksTest.UTF8);
+		final List<Chunk> chunks = Chunks.split(file, ChunksTest.UTF8, 4, "\n");
+
+		Assert.assertEquals(1, chunks.size());
+		Assert.assertEquals(0, chunks.get(0).getStart());
+		Assert.assertEquals(0, chunks.get(0).getEnd());
+		Assert.assertTrue(chunks.get(0).open().isAtEOF());
+	}
+
+	@Test
+	public void fewerRecordsThanChunks() throws IOException
+	{
+		final Path file = TestSupport.write(this.folder, "one record without a separator", ChunksTest.UTF8);
+		final List<Chunk> chunks = Chunks.split(file, ChunksTest.UTF8, 8, "\n");
+
+		Assert.assertEquals(1, chunks.size());
+		Assert.assertEquals(Files.size(file), chunks.get(0).getEnd());
+	}
+
+	@Test
+	public void lazyPositionsInChunk() throws IOException
+	{
+		final Path file = TestSupport.write(this.folder, this.lines(300), ChunksTest.UTF8);
+		final Chunk last = Chunks.split(file, ChunksTest.UTF8, 3, "\n").get(2);
+
+		final CharacterStream eager = last.open();
+		final CharacterStream lazy = last.open();
+
+		lazy.setLazyPositions(true);
+
+		Assert.assertEquals(last.getStartPosition(), lazy.getCurrentPosition());
+		Assert.assertEquals(last.getStartPosition().toString(), lazy.getMarkedPosition().toString());
+
+		while (!eager.isAtEOF())
+		{
+			eager.readUntil(Matches.anyOf("\n"));
+			lazy.readUntil(Matches.anyOf("\n"));
+			eager.skip(3);
+			lazy.skip(3);
+
+			Assert.assertEquals(eager.getCurrentPosition().toString(), lazy.getCurrentPosition().toString());
+		}
+
+		Assert.assertEquals(last.getStartPosition().toString(),
+				lazy.getPosition(last.getStartPosition().getPositionInStreamAsLong()).toString());
+
+		eager.close();
+		lazy.close();
+	}
+
+	@Test
+	public void parseInParallel() throws Exception
+	{
+		final String value = this.lines(20000);
+		final Path file = TestSupport.write(this.folder, value, ChunksTest.UTF8);
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		final List<Chunk> chunks = Chunks.split(file, ChunksTest.UTF8, 8, "\n", executor);
+		final List<Chunk> counted = Chunks.split(file, ChunksTest.UTF8, 8, "\n");
+
+		Assert.assertEquals(8, chunks.size());
+
+		for (int i = 0; i < chunks.size(); ++i)
+		{
+			Assert.assertEquals(counted.get(i).getStart(), chunks.get(i).getStart());
+			Assert.assertEquals(counted.get(i).getStartPosition(), chunks.get(i).getStartPosition());
+		}
+
+		final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+
+		for (final Chunk chunk : chunks)
+		{
+			tasks.add(new Callable<Integer>()
+			{
+				@Override
+				public Integer call() throws IOException
+				{
+					final CharacterStream in = chunk.open();
+
+					int records = 0;
+
+					while (!in.isAtEOF())
+					{
+						in.readUntil(Matches.anyOf("\n"));
+						in.read();
+
+						++records;
+					}
+
+					in.close();
+
+					return records;
+				}
+			});
+		}
+
+		int records = 0;
+
+		for (final Future<Integer> result : executor.invokeAll(tasks))
+		{
+			records += result.get();
+		}
+
+		executor.shutdown();
+
+		Assert.assertEquals(20000, records);
+	}
+
+	@Test
+	public void splitAtMatch() throws IOException
+	{
+		final String value = this.lines(500).replace('\n', ';');
+
+		for (final String charset : new String[] { "UTF-8", "ISO-8859-1" })
+		{
+			this.assertChunks(value, Charset.forName(charset), 5, null, Matches.anyOf(";"));
+		}
+	}
+
+	@Test
+	public void splitAtNewLines() throws IOException
+	{
+		final String value = this.lines(1000);
+
+		for (final int count : new int[] { 1, 2, 3, 7, 64 })
+		{
+			this.assertChunks(value, ChunksTest.UTF8, count, "\n", null);
+		}
+	}
+
+	@Test
+	public void splitAtString() throws IOException
+	{
+		final StringBuilder value = new StringBuilder();
+
+		for (int i = 0; i < 300; ++i)
+		{
+			// Records of several lines with a separator that starts like a record
+			value.append("-record ").append(i).append("\n-\u00e9\u20ac\n").append(i % 3 == 0 ? "x" : "").append(
+					"\n--\n");
+		}
+
+		this.assertChunks(value.toString(), ChunksTest.UTF8, 6, "\n--\n", null);
+		this.assertChunks(value.toString(), Charset.forName("US-ASCII"), 6, "\n--\n", null);
+	}
+
+	@Test
+	public void unsupportedCharset() throws IOException
+	{
+		try
+		{
+			Chunks.split(TestSupport.write(this.folder, "a\nb\n", ChunksTest.UTF8), Charset.forName("UTF-16"), 2,
+					"\n");
+
+			Assert.fail("Should not split UTF-16");
+		}
+		catch (final IllegalArgumentException e)
+		{
+			// expected
+		}
+	}
+
+	/*
+	 * Split the value and check that the chunks cover it in order, that each
+	 * one ends with a separator, and that each one starts at the position a
+	 * stream over the whole file has at that point.
+	 */
+	private void assertChunks(final String value, final Charset charset, final int count, final String separator,
+			final Match match) throws IOException
+	{
+		final Path file = TestSupport.write(this.folder, value, charset);
+		final String decoded = new String(Files.readAllBytes(file), charset);
+
+		final List<Chunk> chunks = separator != null ? Chunks.split(file, charset, count, separator) : Chunks.split(
+				file, charset, count, match);
+
+		Assert.assertTrue(chunks.size() <= count);
+
+		final CharacterStream whole = CharacterStream.open(file, charset);
+		final StringBuilder joined = new StringBuilder();
+
+		long previous = 0;
+
+		for (final Chunk chunk : chunks)
+		{
+			Assert.assertEquals(previous, chunk.getStart());
+			Assert.assertTrue(chunk.getEnd() > chunk.getStart());
+			Assert.assertEquals(whole.getCurrentPosition().toString(), chunk.getStartPosition().toString());
+
+			final CharacterStream in = chunk.open();
+			final String text = in.readUntil(Matches.anyOf("\u0000"));
+
+			Assert.assertEquals(whole.getCurrentPosition().toString(), chunk.getStartPosition().toString());
+
+			whole.skip(text.length());
+
+			Assert.assertEquals(whole.getCurrentPosition().toString(), in.getCurrentPosition().toString());
+
+			if (chunk != chunks.get(chunks.size() - 1))
+			{
+				if (separator != null)
+				{
+					Assert.assertTrue(text, text.endsWith(separator));
+				}
+				else
+				{
+					Assert.assertTrue(text, match.matches(text.charAt(text.length() - 1)));
+				}
+			}
+
+			joined.append(text);
+			previous = chunk.getEnd();
+
+			in.close();
+		}
+
+		Assert.assertEquals(Files.size(file), previous);
+		Assert.assertEquals(decoded, joined.toString());
+
+		whole.close();
+	}
+
+	/*
+	 * Numbered lines of varying length with some multibyte characters.
+	 */
+	private String lines(final int count)
+	{
+		final StringBuilder results = new StringBuilder();
+
+		for (int i = 0; i < count; ++i)
+		{
+			results.append("line ").append(i);
+
+			for (int j = 0; j < i % 13; ++j)
+			{
+				results.append(j % 5 == 0 ? "\u00e9\u20ac" : "ab");
+			}
+
+			results.append('\n');
+		}
+
+		return results.toString();
+	}
+}
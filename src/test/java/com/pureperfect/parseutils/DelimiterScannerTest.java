@@ -0,0 +1,101 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class DelimiterScannerTest
+{
+	/*
+	 * Check a scanner against a plain loop over random text with random
+	 * bounds, so that every alignment and tail length is covered.
+	 */
+	private static void assertScans(final DelimiterScanner scanner)
+	{
+		final Random random = new Random(14);
+
+		final char[] chars = new char[300];
+
+		for (int round = 0; round < 2000; ++round)
+		{
+			final int density = 1 + random.nextInt(100);
+
+			for (int i = 0; i < chars.length; ++i)
+			{
+				chars[i] = random.nextInt(density) == 0 ? ",;\n".charAt(random.nextInt(3)) : (char) ('a' + random
+						.nextInt(26));
+			}
+
+			final int from = random.nextInt(chars.length);
+			final int to = from + random.nextInt(chars.length - from + 1);
+			final boolean matching = random.nextBoolean();
+
+			int expected = from;
+
+			while (expected < to && (chars[expected] == ',' || chars[expected] == '\n') == matching)
+			{
+				++expected;
+			}
+
+			Assert.assertEquals(expected, scanner.scan(chars, from, to, ',', '\n', '\n', matching));
+		}
+	}
+
+	@Test
+	public void scalar()
+	{
+		DelimiterScannerTest.assertScans(new DelimiterScanner());
+	}
+
+	@Test
+	public void vector()
+	{
+		final DelimiterScanner vector = DelimiterScanner.vector();
+
+		// Only there on Java 17 and later with the incubator module added
+		Assume.assumeNotNull(vector);
+
+		Assert.assertEquals("VectorDelimiterScanner", vector.getClass().getSimpleName());
+
+		DelimiterScannerTest.assertScans(vector);
+	}
+
+	@Test
+	public void vectorCanBeTurnedOff()
+	{
+		System.setProperty(DelimiterScanner.VECTOR_PROPERTY, "false");
+
+		try
+		{
+			Assert.assertNull(DelimiterScanner.vector());
+			Assert.assertEquals(DelimiterScanner.class, DelimiterScanner.get().getClass());
+		}
+		finally
+		{
+			System.clearProperty(DelimiterScanner.VECTOR_PROPERTY);
+		}
+	}
+}
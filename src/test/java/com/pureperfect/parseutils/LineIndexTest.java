@@ -0,0 +1,93 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class LineIndexTest
+{
+	@Test
+	public void acrossBlocks()
+	{
+		final long first = 5;
+		final LineIndex index = new LineIndex(first);
+
+		// Lines of one to ten characters over several blocks
+		for (int line = 1; line < LineIndex.BLOCK_SIZE * 5 + 3; ++line)
+		{
+			index.add(LineIndexTest.start(first, line));
+		}
+
+		for (int line = 0; line < LineIndex.BLOCK_SIZE * 5 + 3; ++line)
+		{
+			final long start = LineIndexTest.start(first, line);
+
+			Assert.assertEquals(start, index.startOf(line));
+			Assert.assertEquals(line, index.lineOf(start));
+			Assert.assertEquals(line, index.lineOf(start + line % 10));
+		}
+
+		Assert.assertEquals(LineIndex.BLOCK_SIZE * 5 + 2, index.lineOf(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void longLines()
+	{
+		final long huge = Integer.MAX_VALUE + 10L;
+		final LineIndex index = new LineIndex(0);
+
+		index.add(10);
+		index.add(10 + huge);
+		index.add(11 + huge);
+		index.add(11 + huge * 3);
+
+		Assert.assertEquals(0, index.lineOf(9));
+		Assert.assertEquals(1, index.lineOf(10));
+		Assert.assertEquals(1, index.lineOf(9 + huge));
+		Assert.assertEquals(2, index.lineOf(10 + huge));
+		Assert.assertEquals(3, index.lineOf(11 + huge * 2));
+		Assert.assertEquals(4, index.lineOf(11 + huge * 3));
+		Assert.assertEquals(4, index.lineOf(Long.MAX_VALUE));
+
+		Assert.assertEquals(0, index.startOf(0));
+		Assert.assertEquals(10, index.startOf(1));
+		Assert.assertEquals(10 + huge, index.startOf(2));
+		Assert.assertEquals(11 + huge, index.startOf(3));
+		Assert.assertEquals(11 + huge * 3, index.startOf(4));
+	}
+
+	/*
+	 * Start of a line when line n is n % 10 + 1 characters long.
+	 */
+	private static long start(final long first, final int line)
+	{
+		long start = first;
+
+		for (int i = 0; i < line; ++i)
+		{
+			start += i % 10 + 1;
+		}
+
+		return start;
+	}
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class MappedFileSourceTest
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void emptyFile() throws IOException
+	{
+		final Path file = TestSupport.write(this.folder, "", MappedFileSourceTest.UTF8);
+		final MappedFileSource source = new MappedFileSource(file, MappedFileSourceTest.UTF8);
+
+		Assert.assertEquals(-1, source.read(new char[8], 0, 8));
+		Assert.assertEquals(-1, source.read(new char[8], 0, 8));
+
+		source.close();
+	}
+
+	@Test
+	public void readAcrossWindows() throws IOException
+	{
+		final String expected = TestSupport.repeat(TestSupport.MIXED, 1000);
+
+		final Path file = TestSupport.write(this.folder, expected, MappedFileSourceTest.UTF8);
+
+		// A window of five bytes splits characters all over the place
+		final MappedFileSource source = new MappedFileSource(file, MappedFileSourceTest.UTF8, 5);
+
+		Assert.assertEquals(expected, TestSupport.readAll(source, 7));
+
+		source.close();
+	}
+
+	@Test
+	public void readAsciiWithMultibyteRuns() throws IOException
+	{
+		final StringBuilder value = new StringBuilder();
+
+		for (int i = 0; i < 2000; ++i)
+		{
+			value.append("line ").append(i);
+			value.append(i % 7 == 0 ? TestSupport.MIXED : "");
+			value.append(i % 3 == 0 ? "\r\n" : "\n");
+		}
+
+		final String expected = value.toString();
+
+		for (final int window : new int[] { 5, 13, 4096 })
+		{
+			for (final int chunk : new int[] { 1, 3, 8, 1000 })
+			{
+				final Path file = TestSupport.write(this.folder, expected, MappedFileSourceTest.UTF8);
+				final MappedFileSource source = new MappedFileSource(file, MappedFileSourceTest.UTF8, window);
+
+				Assert.assertEquals(expected, TestSupport.readAll(source, chunk));
+
+				source.close();
+			}
+		}
+	}
+
+	@Test
+	public void readMalformed() throws IOException
+	{
+		final byte[] bytes = { 'a', (byte) 0xE2, (byte) 0x82, 'b', (byte) 0xFF, 'c', (byte) 0x80, (byte) 0x80, 'd',
+				'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', (byte) 0xC3 };
+
+		for (final String charset : new String[] { "UTF-8", "US-ASCII", "ISO-8859-1" })
+		{
+			final Path file = this.folder.newFile().toPath();
+
+			Files.write(file, bytes);
+
+			final MappedFileSource source = new MappedFileSource(file, Charset.forName(charset));
+
+			Assert.assertEquals(new String(bytes, charset), TestSupport.readAll(source, 4));
+
+			source.close();
+		}
+	}
+
+	@Test
+	public void readOneCharacterAtATime() throws IOException
+	{
+		final String expected = TestSupport.repeat(TestSupport.MIXED, 10);
+
+		final Path file = TestSupport.write(this.folder, expected, MappedFileSourceTest.UTF8);
+		final MappedFileSource source = new MappedFileSource(file, MappedFileSourceTest.UTF8, 5);
+
+		// Surrogate pairs have to be split across reads
+		Assert.assertEquals(expected, TestSupport.readAll(source, 1));
+
+		source.close();
+	}
+
+	@Test
+	public void seek() throws IOException
+	{
+		final String expected = TestSupport.repeat(TestSupport.MIXED, 100000);
+
+		final Path file = TestSupport.write(this.folder, expected, MappedFileSourceTest.UTF8);
+		final MappedFileSource source = new MappedFileSource(file, MappedFileSourceTest.UTF8, 4096);
+
+		Assert.assertTrue(source.isSeekable());
+
+		// Read everything so that there are checkpoints to seek back to
+		Assert.assertEquals(expected, TestSupport.readAll(source, 1000));
+
+		final char[] dst = new char[10];
+
+		for (final long offset : new long[] { 0, 3, 4, 250001, 499998, 65536 * 3 + 1, 5 })
+		{
+			source.seek(offset);
+
+			final int read = source.read(dst, 0, dst.length);
+
+			Assert.assertTrue(read > 0);
+			Assert.assertEquals(expected.substring((int) offset, (int) offset + read), new String(dst, 0, read));
+		}
+
+		source.seek(expected.length());
+
+		Assert.assertEquals(-1, source.read(dst, 0, dst.length));
+
+		source.close();
+	}
+
+	@Test
+	public void seekBeforeReading() throws IOException
+	{
+		final String expected = TestSupport.repeat(TestSupport.MIXED, 100);
+
+		final Path file = TestSupport.write(this.folder, expected, MappedFileSourceTest.UTF8);
+		final MappedFileSource source = new MappedFileSource(file, MappedFileSourceTest.UTF8);
+
+		source.seek(101);
+
+		Assert.assertEquals(expected.substring(101), TestSupport.readAll(source, 16));
+
+		source.close();
+	}
+
+	@Test
+	public void skipUntil() throws IOException
+	{
+		final StringBuilder value = new StringBuilder();
+
+		for (int i = 0; i < 30000; ++i)
+		{
+			value.append(i).append(TestSupport.MIXED).append(i % 1000 == 999 ? ",\n" : "\n");
+		}
+
+		final String expected = value.toString();
+
+		final Path file = TestSupport.write(this.folder, expected, MappedFileSourceTest.UTF8);
+
+		// A window of 37 bytes splits characters all over the place
+		final MappedFileSource source = new MappedFileSource(file, MappedFileSourceTest.UTF8, 37);
+		final long[] lines = new long[2];
+
+		int offset = 0;
+
+		for (int found = expected.indexOf(','); found >= 0; found = expected.indexOf(',', offset))
+		{
+			Assert.assertEquals(found - offset, source.skipUntil(',', ',', ',', lines));
+			Assert.assertEquals(found - offset == 0 ? 0 : 999, lines[0]);
+
+			if (lines[0] > 0)
+			{
+				Assert.assertEquals(expected.lastIndexOf('\n', found) + 1, lines[1]);
+			}
+
+			Assert.assertEquals(0, source.skipUntil(',', '|', '|', lines));
+			Assert.assertEquals(0, lines[0]);
+
+			final char[] dst = new char[2];
+
+			Assert.assertEquals(2, source.read(dst, 0, 2));
+			Assert.assertEquals(",\n", new String(dst));
+
+			offset = found + 2;
+		}
+
+		Assert.assertEquals(expected.length() - offset, source.skipUntil(',', ',', ',', lines));
+		Assert.assertEquals(-1, source.read(new char[8], 0, 8));
+
+		// Seeking back into what was skipped decodes from a checkpoint
+		source.seek(200001);
+
+		Assert.assertEquals(expected.substring(200001), TestSupport.readAll(source, 1000));
+		Assert.assertEquals(-1, source.skipUntil('\u00e9', ',', ',', lines));
+
+		source.close();
+	}
+
+	@Test
+	public void windowTooSmall() throws IOException
+	{
+		final String expected = TestSupport.repeat(TestSupport.MIXED, 100) + "," + TestSupport.MIXED;
+		final Path file = TestSupport.write(this.folder, expected, MappedFileSourceTest.UTF8);
+
+		try
+		{
+			new MappedFileSource(file, MappedFileSourceTest.UTF8, MappedFileSource.MIN_WINDOW_SIZE - 1);
+
+			Assert.fail("Should not accept a window smaller than a character");
+		}
+		catch (final IllegalArgumentException e)
+		{
+			// expected
+		}
+
+		final MappedFileSource source = new MappedFileSource(file, MappedFileSourceTest.UTF8,
+				MappedFileSource.MIN_WINDOW_SIZE);
+		final long[] lines = new long[2];
+
+		// The smallest window still moves past every character
+		Assert.assertEquals(expected.indexOf(','), source.skipUntil(',', ',', ',', lines));
+		Assert.assertEquals("," + TestSupport.MIXED, TestSupport.readAll(source, 3));
+
+		source.close();
+	}
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class MatchesTest
+{
+	@Test
+	public void and()
+	{
+		final Match m = Matches.and(Matches.range('a', 'z'), Matches.anyOf("aeiou"), Matches.negate(Matches.anyOf("e")));
+
+		Assert.assertTrue(m instanceof TableMatch);
+
+		Assert.assertTrue(m.matches('a'));
+		Assert.assertTrue(m.matches('u'));
+		Assert.assertFalse(m.matches('e'));
+		Assert.assertFalse(m.matches('b'));
+		Assert.assertFalse(m.matches('A'));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void andWithoutMatchers()
+	{
+		Matches.and();
+	}
+
+	@Test
+	public void andWithUncompiledMatcher()
+	{
+		final Match upper = new Match()
+		{
+			@Override
+			public boolean matches(final char c)
+			{
+				return Character.isUpperCase(c);
+			}
+		};
+
+		final Match m = Matches.and(Matches.range('A', 'Z'), upper, Matches.negate(Matches.anyOf("Q")));
+
+		Assert.assertFalse(m instanceof TableMatch);
+
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; ++c)
+		{
+			Assert.assertEquals(c >= 'A' && c <= 'Z' && c != 'Q', m.matches((char) c));
+		}
+
+		// Compiling the chain folds it into a table
+		final Match compiled = Matches.compile(m);
+
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; ++c)
+		{
+			Assert.assertEquals(m.matches((char) c), compiled.matches((char) c));
+		}
+	}
+
+	@Test
+	public void anyOf()
+	{
+		final Match m = Matches.anyOf("a?\u00e9\u20ac\uffff");
+
+		Assert.assertTrue(m.matches('a'));
+		Assert.assertTrue(m.matches('?'));
+		Assert.assertTrue(m.matches('\u00e9'));
+		Assert.assertTrue(m.matches('\u20ac'));
+		Assert.assertTrue(m.matches('\uffff'));
+
+		Assert.assertFalse(m.matches('b'));
+		Assert.assertFalse(m.matches('\u007f'));
+		Assert.assertFalse(m.matches('\u00e8'));
+		Assert.assertFalse(m.matches('\u20ad'));
+		Assert.assertFalse(m.matches(CharacterStream.NULL));
+	}
+
+	@Test
+	public void anyOfEmpty()
+	{
+		final Match m = Matches.anyOf("");
+
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; ++c)
+		{
+			Assert.assertFalse(m.matches((char) c));
+		}
+	}
+
+	@Test
+	public void anyOfFewCharacters()
+	{
+		for (final String chars : new String[] { "\n", ",\"", ",\"\n", "\u20ac\u20ac" })
+		{
+			final Match m = Matches.anyOf(chars);
+			final Match negated = Matches.negate(m);
+
+			for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; ++c)
+			{
+				Assert.assertEquals(chars.indexOf(c) >= 0, m.matches((char) c));
+				Assert.assertEquals(chars.indexOf(c) < 0, negated.matches((char) c));
+			}
+		}
+
+		final Match folded = Matches.or(Matches.anyOf(",;"), Matches.range('0', '9'));
+
+		Assert.assertTrue(folded instanceof TableMatch);
+		Assert.assertTrue(folded.matches(';'));
+		Assert.assertTrue(folded.matches('5'));
+		Assert.assertFalse(folded.matches(':'));
+	}
+
+	@Test
+	public void compile()
+	{
+		final Match original = new Match()
+		{
+			@Override
+			public boolean matches(final char c)
+			{
+				return Character.isLetterOrDigit(c);
+			}
+		};
+
+		final Match compiled = Matches.compile(original);
+
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; ++c)
+		{
+			Assert.assertEquals(original.matches((char) c), compiled.matches((char) c));
+		}
+
+		// Compiling twice is a no-op
+		Assert.assertSame(compiled, Matches.compile(compiled));
+	}
+
+	@Test
+	public void negate()
+	{
+		final Match m = Matches.negate(Matches.anyOf("ab"));
+
+		Assert.assertTrue(m instanceof TableMatch);
+
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; ++c)
+		{
+			Assert.assertEquals(c != 'a' && c != 'b', m.matches((char) c));
+		}
+	}
+
+	@Test
+	public void negateUncompiledMatcher()
+	{
+		final Match m = Matches.negate(new Match()
+		{
+			@Override
+			public boolean matches(final char c)
+			{
+				return c == 'a';
+			}
+		});
+
+		Assert.assertFalse(m.matches('a'));
+		Assert.assertTrue(m.matches('b'));
+	}
+
+	@Test
+	public void not()
+	{
+		final Match identifier = Matches.or(Matches.range('a', 'z'), Matches.range('0', '9'), Matches.anyOf("_"));
+
+		final Match m = Matches.and(identifier, Matches.not(Matches.anyOf("x"), Matches.range('5', '9')));
+
+		Assert.assertTrue(m instanceof TableMatch);
+
+		Assert.assertTrue(m.matches('a'));
+		Assert.assertTrue(m.matches('_'));
+		Assert.assertTrue(m.matches('4'));
+		Assert.assertFalse(m.matches('x'));
+		Assert.assertFalse(m.matches('7'));
+		Assert.assertFalse(m.matches('-'));
+	}
+
+	@Test
+	public void or()
+	{
+		final Match m = Matches.or(Matches.range('a', 'z'), Matches.range('0', '9'), Matches.anyOf("_\u20ac"));
+
+		Assert.assertTrue(m instanceof TableMatch);
+
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; ++c)
+		{
+			Assert.assertEquals(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_' || c == '\u20ac',
+					m.matches((char) c));
+		}
+	}
+
+	@Test
+	public void orSingleMatcher()
+	{
+		final Match m = Matches.anyOf("ab");
+
+		Assert.assertSame(m, Matches.or(m));
+		Assert.assertSame(m, Matches.and(m));
+	}
+
+	@Test
+	public void orWithUncompiledMatcher()
+	{
+		final Match m = Matches.or(Matches.anyOf("ab"), new Match()
+		{
+			@Override
+			public boolean matches(final char c)
+			{
+				return c == 'z';
+			}
+		});
+
+		Assert.assertTrue(m.matches('a'));
+		Assert.assertTrue(m.matches('b'));
+		Assert.assertTrue(m.matches('z'));
+		Assert.assertFalse(m.matches('c'));
+	}
+
+	@Test
+	public void range()
+	{
+		final Match m = Matches.range('0', '9');
+
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; ++c)
+		{
+			Assert.assertEquals(c >= '0' && c <= '9', m.matches((char) c));
+		}
+	}
+
+	@Test
+	public void rangeAcrossTableWords()
+	{
+		final Match m = Matches.range('0', '\u2000');
+
+		Assert.assertFalse(m.matches('/'));
+		Assert.assertTrue(m.matches('0'));
+		Assert.assertTrue(m.matches('\u007f'));
+		Assert.assertTrue(m.matches('\u0080'));
+		Assert.assertTrue(m.matches('\u2000'));
+		Assert.assertFalse(m.matches('\u2001'));
+		Assert.assertFalse(m.matches(CharacterStream.EOF));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rangeEmpty()
+	{
+		Matches.range('b', 'a');
+	}
+
+	@Test
+	public void whitespace()
+	{
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; ++c)
+		{
+			Assert.assertEquals(Character.isWhitespace(c), Match.WHITESPACE.matches((char) c));
+			Assert.assertEquals(Character.isWhitespace(c) && c != '\n',
+					Match.WHITESPACE_EXCEPT_NEWLINE.matches((char) c));
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class NumbersTest
+{
+	/*
+	 * Check the conversion against Double.parseDouble.
+	 */
+	private static void assertDouble(final boolean negative, final long significand, final int exponent)
+	{
+		final BigInteger unsigned = BigInteger.valueOf(significand >>> 1).shiftLeft(1)
+				.or(BigInteger.valueOf(significand & 1));
+		final String digits = new BigDecimal(unsigned).scaleByPowerOfTen(exponent).toString();
+		final double expected = Double.parseDouble(negative ? "-" + digits : digits);
+
+		Assert.assertEquals(digits, Double.doubleToRawLongBits(expected),
+				Double.doubleToRawLongBits(Numbers.toDouble(negative, significand, exponent)));
+	}
+
+	@Test
+	public void edgeCases()
+	{
+		// Zero, the largest and smallest doubles and just past them
+		NumbersTest.assertDouble(false, 0, 0);
+		NumbersTest.assertDouble(true, 0, 100);
+		NumbersTest.assertDouble(false, 17976931348623157L, 292);
+		NumbersTest.assertDouble(false, 17976931348623159L, 292);
+		NumbersTest.assertDouble(false, 49L, -325);
+		NumbersTest.assertDouble(false, 24703282292062327L, -340);
+		NumbersTest.assertDouble(false, 24703282292062328L, -340);
+		NumbersTest.assertDouble(false, 22250738585072011L, -324);
+		NumbersTest.assertDouble(false, 22250738585072014L, -324);
+		NumbersTest.assertDouble(false, 1, -400);
+		NumbersTest.assertDouble(false, 1, 400);
+
+		// Halfway cases that round to even
+		NumbersTest.assertDouble(false, 9007199254740993L, 0);
+		NumbersTest.assertDouble(false, 9007199254740995L, 0);
+		NumbersTest.assertDouble(false, 90071992547409930L, -1);
+
+		// Nineteen digits, more than fit in a signed long
+		NumbersTest.assertDouble(false, -1L, 0);
+		NumbersTest.assertDouble(true, -1L, -300);
+		NumbersTest.assertDouble(false, 1000000000000000000L, -18);
+	}
+
+	@Test
+	public void exactPowers()
+	{
+		for (int exponent = -22; exponent <= 22; ++exponent)
+		{
+			NumbersTest.assertDouble(false, 1, exponent);
+			NumbersTest.assertDouble(true, 9007199254740992L, exponent);
+		}
+	}
+
+	@Test
+	public void random()
+	{
+		final Random random = new Random(25);
+
+		for (int i = 0; i < 100000; ++i)
+		{
+			final int digits = 1 + random.nextInt(19);
+
+			long significand = 0;
+
+			for (int j = 0; j < digits; ++j)
+			{
+				significand = significand * 10 + random.nextInt(10);
+			}
+
+			NumbersTest.assertDouble(random.nextBoolean(), significand, random.nextInt(700) - 350);
+		}
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class PatternMatchTest
+{
+	@Test
+	public void alternation()
+	{
+		final PatternMatch p = new PatternMatch("cat|category|dog");
+
+		Assert.assertEquals(3, this.longest(p, "cats"));
+		Assert.assertEquals(8, this.longest(p, "category"));
+		Assert.assertEquals(3, this.longest(p, "dog"));
+		Assert.assertEquals(-1, this.longest(p, "cow"));
+	}
+
+	@Test
+	public void characterClasses()
+	{
+		final PatternMatch p = new PatternMatch("[a-zA-Z_][a-zA-Z_0-9]*");
+
+		Assert.assertEquals(10, this.longest(p, "_ident1fer+"));
+		Assert.assertEquals(-1, this.longest(p, "1abc"));
+
+		final PatternMatch string = new PatternMatch("\"([^\"\\\\]|\\\\.)*\"");
+
+		Assert.assertEquals(14, this.longest(string, "\"a \\\"quoted\\\"\" rest"));
+		Assert.assertEquals(-1, this.longest(string, "\"unterminated"));
+
+		final PatternMatch dash = new PatternMatch("[-a]+[a-]+");
+
+		Assert.assertEquals(4, this.longest(dash, "-a-a"));
+	}
+
+	@Test
+	public void dotDoesNotMatchLineTerminators()
+	{
+		final PatternMatch p = new PatternMatch(".*");
+
+		Assert.assertEquals(4, this.longest(p, "line\nnext"));
+		Assert.assertEquals(4, this.longest(p, "line\r\nnext"));
+		Assert.assertEquals(3, this.longest(p, "\u20ac\u00e9x"));
+
+		for (final String terminator : new String[] { "\n", "\r", "\u0085", "\u2028", "\u2029" })
+		{
+			Assert.assertEquals(4, this.longest(p, "line" + terminator + "next"));
+		}
+	}
+
+	@Test
+	public void dotMatchesLikeJavaUtilRegex()
+	{
+		final PatternMatch p = new PatternMatch(".");
+
+		for (char c = 0; c < Character.MAX_VALUE; ++c)
+		{
+			final String s = String.valueOf(c);
+
+			Assert.assertEquals(Integer.toHexString(c), Pattern.matches(".", s), this.longest(p, s) == 1);
+		}
+	}
+
+	@Test
+	public void escapes()
+	{
+		Assert.assertEquals(3, this.longest(new PatternMatch("\\d\\D\\w"), "1a_"));
+		Assert.assertEquals(-1, this.longest(new PatternMatch("\\d\\D\\w"), "12_"));
+		Assert.assertEquals(3, this.longest(new PatternMatch("\\s\\S\\W"), "\ta-"));
+		Assert.assertEquals(4, this.longest(new PatternMatch("\\t\\n\\r\\f"), "\t\n\r\f"));
+		Assert.assertEquals(2, this.longest(new PatternMatch("\\u20ac\\."), "\u20ac."));
+		Assert.assertEquals(-1, this.longest(new PatternMatch("\\."), "x"));
+		Assert.assertEquals(3, this.longest(new PatternMatch("[\\d.]+"), "1.2x"));
+		Assert.assertEquals(2, this.longest(new PatternMatch("[\\]\\\\]+"), "]\\x"));
+	}
+
+	@Test
+	public void getPattern()
+	{
+		Assert.assertEquals("a+", new PatternMatch("a+").getPattern());
+		Assert.assertEquals("a+", new PatternMatch("a+").toString());
+	}
+
+	@Test
+	public void invalidPatterns()
+	{
+		for (final String pattern : new String[] { "(a", "a)", "[a", "*a", "a{", "a{2,1}", "a{x}", "\\", "\\b", "[z-a]",
+				"\\u12", "^a", "a$", "a+?", "a*?", "a{2}?", "a**", "a?+", "a{99999999999}" })
+		{
+			try
+			{
+				new PatternMatch(pattern);
+
+				Assert.fail("Should not compile: " + pattern);
+			}
+			catch (final PatternSyntaxException e)
+			{
+				Assert.assertEquals(pattern, e.getPattern());
+			}
+		}
+	}
+
+	@Test
+	public void longestMatchWins()
+	{
+		final PatternMatch p = new PatternMatch("a|ab|abc");
+
+		Assert.assertEquals(3, this.longest(p, "abcd"));
+		Assert.assertEquals(2, this.longest(p, "abd"));
+	}
+
+	@Test
+	public void quantifiers()
+	{
+		Assert.assertEquals(0, this.longest(new PatternMatch("a*"), "bbb"));
+		Assert.assertEquals(3, this.longest(new PatternMatch("a*"), "aaab"));
+		Assert.assertEquals(-1, this.longest(new PatternMatch("a+"), "bbb"));
+		Assert.assertEquals(2, this.longest(new PatternMatch("a+"), "aab"));
+		Assert.assertEquals(1, this.longest(new PatternMatch("ab?"), "ac"));
+		Assert.assertEquals(2, this.longest(new PatternMatch("ab?"), "ab"));
+		Assert.assertEquals(-1, this.longest(new PatternMatch("\\d{4}"), "123"));
+		Assert.assertEquals(4, this.longest(new PatternMatch("\\d{4}"), "12345"));
+		Assert.assertEquals(5, this.longest(new PatternMatch("\\d{2,}"), "12345"));
+		Assert.assertEquals(-1, this.longest(new PatternMatch("\\d{2,}"), "1"));
+		Assert.assertEquals(3, this.longest(new PatternMatch("\\d{1,3}"), "12345"));
+		Assert.assertEquals(4, this.longest(new PatternMatch("(ab){1,2}"), "ababab"));
+		Assert.assertEquals(6, this.longest(new PatternMatch("(a|b)*c?d"), "abbacd"));
+	}
+
+	@Test
+	public void tooManyStates()
+	{
+		try
+		{
+			// The classic exponential blow up
+			new PatternMatch("(a|b)*a(a|b){20}");
+
+			Assert.fail("Should need too many states");
+		}
+		catch (final PatternSyntaxException e)
+		{
+			Assert.assertTrue(e.getDescription().contains(String.valueOf(PatternMatch.MAX_STATES)));
+		}
+	}
+
+	/*
+	 * Run the DFA over the whole value and return the longest match.
+	 */
+	private int longest(final PatternMatch p, final String value)
+	{
+		int state = 0;
+		int longest = p.isAccepting(state) ? 0 : -1;
+
+		for (int i = 0; i < value.length(); ++i)
+		{
+			state = p.next(state, value.charAt(i));
+
+			if (state < 0)
+			{
+				break;
+			}
+
+			if (p.isAccepting(state))
+			{
+				longest = i + 1;
+			}
+		}
+
+		return longest;
+	}
+}
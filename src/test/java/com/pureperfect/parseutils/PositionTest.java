@@ -15,6 +15,11 @@
  */
 package com.pureperfect.parseutils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import junit.framework.Assert;
 
 import org.junit.Test;
@@ -35,112 +40,105 @@ public class PositionTest
 		Assert.assertEquals(0, p.getLine());
 		Assert.assertEquals(0, p.getPositionInLine());
 		Assert.assertEquals(0, p.getPositionInStream());
+
+		final Position q = new Position(1, 2, 4);
+
+		Assert.assertEquals(1, q.getLine());
+		Assert.assertEquals(2, q.getPositionInLine());
+		Assert.assertEquals(4, q.getPositionInStream());
 	}
 
+	@SuppressWarnings("deprecation")
 	@Test
 	public void testCopy()
 	{
-		final Position p = new Position();
-
-		p.incrementPositionInLine();
-		p.incrementLine();
-		p.incrementPositionInLine();
-		p.incrementPositionInLine();
-
-		Assert.assertEquals(1, p.getLine());
-		Assert.assertEquals(2, p.getPositionInLine());
-		Assert.assertEquals(4, p.getPositionInStream());
-
-		final Position copy = p.copy();
+		final Position p = new Position(1, 2, 4);
 
-		Assert.assertEquals(1, copy.getLine());
-		Assert.assertEquals(2, copy.getPositionInLine());
-		Assert.assertEquals(4, copy.getPositionInStream());
-
-		Assert.assertEquals(p.hashCode(), copy.hashCode());
-		Assert.assertEquals(p, copy);
-		Assert.assertFalse(p == copy);
+		// Positions are immutable so a copy is the same position
+		Assert.assertSame(p, p.copy());
 	}
 
 	@Test
 	public void testEquals()
 	{
 		// Same position in stream
-		final Position p = new Position();
-
-		p.incrementPositionInLine();
-		p.incrementLine();
-		p.incrementPositionInLine();
-		p.incrementPositionInLine();
-
-		final Position p2 = new Position();
-
-		p2.incrementPositionInLine();
-		p2.incrementLine();
-		p2.incrementPositionInLine();
-		p2.incrementPositionInLine();
+		final Position p = new Position(1, 2, 4);
+		final Position p2 = new Position(1, 2, 4);
 
 		Assert.assertEquals(p, p2);
 
 		// Different position in stream
-		p2.incrementLine();
-
-		Assert.assertNotSame(p, p2);
+		Assert.assertFalse(p.equals(new Position(2, 0, 5)));
 	}
 
 	@Test
 	public void testHashCode()
 	{
-		final Position p = new Position();
-
-		p.incrementPositionInLine();
-		p.incrementLine();
-		p.incrementPositionInLine();
-		p.incrementPositionInLine();
+		final Position p = new Position(1, 2, 4);
 
 		Assert.assertEquals(4, p.hashCode());
 	}
 
 	@Test
-	public void testIncrementLine()
+	public void testLargePositions()
 	{
-		final Position p = new Position();
-
-		p.incrementPositionInLine();
-		p.incrementPositionInLine();
-		p.incrementPositionInLine();
-
-		Assert.assertEquals(3, p.getPositionInStream());
-
-		p.incrementLine();
-
-		Assert.assertEquals(4, p.getPositionInStream());
-		Assert.assertEquals(1, p.getLine());
-		Assert.assertEquals(0, p.getPositionInLine());
+		final Position p = new Position(3, 8, 2L * Integer.MAX_VALUE + 1);
+
+		Assert.assertEquals(3L, p.getLineAsLong());
+		Assert.assertEquals(8L, p.getPositionInLineAsLong());
+		Assert.assertEquals(2L * Integer.MAX_VALUE + 1, p.getPositionInStreamAsLong());
+		Assert.assertEquals(3, p.getLine());
+		Assert.assertEquals(8, p.getPositionInLine());
+		Assert.assertEquals("[4294967295:3:8]", p.toString());
+
+		try
+		{
+			p.getPositionInStream();
+
+			Assert.fail("Should not wrap around");
+		}
+		catch (final ArithmeticException e)
+		{
+			// expected
+		}
+
+		// Offsets a multiple of 2^32 apart used to collide
+		final Position q = new Position(0, 0, 4294967296L + 4);
+		final Position r = new Position(0, 0, 4);
+
+		Assert.assertFalse(q.equals(r));
+		Assert.assertFalse(r.equals(q));
+		Assert.assertEquals(q, new Position(0, 0, 4294967296L + 4));
+		Assert.assertEquals(q.hashCode(), new Position(0, 0, 4294967296L + 4).hashCode());
+		Assert.assertFalse(r.equals("x"));
+		Assert.assertFalse(r.equals(null));
 	}
 
 	@Test
-	public void testIncrementPositionInLine()
+	public void testSerialization() throws Exception
 	{
-		final Position p = new Position();
+		final ParseException e = new ParseException("Expected int", new Position(3, 4, 40));
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
 
-		p.incrementPositionInLine();
-		p.incrementPositionInLine();
+		out.writeObject(e);
+		out.close();
 
-		Assert.assertEquals(0, p.getLine());
-		Assert.assertEquals(2, p.getPositionInLine());
-		Assert.assertEquals(2, p.getPositionInStream());
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		final ParseException copy = (ParseException) in.readObject();
+
+		in.close();
+
+		Assert.assertEquals(e.getMessage(), copy.getMessage());
+		Assert.assertEquals(3, copy.getPosition().getLine());
+		Assert.assertEquals(4, copy.getPosition().getPositionInLine());
+		Assert.assertEquals(40, copy.getPosition().getPositionInStream());
 	}
 
 	@Test
 	public void testToString()
 	{
-		final Position p = new Position();
-
-		p.incrementPositionInLine();
-		p.incrementLine();
-		p.incrementPositionInLine();
-		p.incrementPositionInLine();
+		final Position p = new Position(1, 2, 4);
 
 		Assert.assertEquals("[4:1:2]", p.toString());
 	}
@@ -0,0 +1,116 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class SliceTest
+{
+	private static final Match NOT_SPACE = new Match()
+	{
+		@Override
+		public boolean matches(final char c)
+		{
+			return c != ' ';
+		}
+	};
+
+	@Test
+	public void charAt() throws IOException
+	{
+		final Slice slice = this.slice("keyword rest");
+
+		Assert.assertEquals(7, slice.length());
+		Assert.assertEquals('k', slice.charAt(0));
+		Assert.assertEquals('d', slice.charAt(6));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void charAtOutOfBounds() throws IOException
+	{
+		this.slice("keyword rest").charAt(7);
+	}
+
+	@Test
+	public void contentEquals() throws IOException
+	{
+		final Slice slice = this.slice("keyword rest");
+
+		Assert.assertTrue(slice.contentEquals("keyword"));
+		Assert.assertTrue(slice.contentEquals(new StringBuilder("keyword")));
+		Assert.assertFalse(slice.contentEquals("keywork"));
+		Assert.assertFalse(slice.contentEquals("key"));
+		Assert.assertFalse(slice.contentEquals("keywords"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void invalidSlice() throws IOException
+	{
+		final CharacterStream in = new CharacterStream(new StringReader("keyword rest of the stream"), 8);
+
+		final Slice slice = in.sliceWhile(SliceTest.NOT_SPACE);
+
+		in.skip(Match.WHITESPACE);
+		in.skip(SliceTest.NOT_SPACE);
+
+		Assert.assertFalse(slice.isValid());
+
+		slice.toString();
+	}
+
+	@Test
+	public void subSequence() throws IOException
+	{
+		final Slice slice = this.slice("keyword rest");
+
+		Assert.assertEquals("word", slice.subSequence(3, 7).toString());
+		Assert.assertEquals("", slice.subSequence(2, 2).toString());
+		Assert.assertTrue(slice.subSequence(0, 3).contentEquals("key"));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void subSequenceOutOfBounds() throws IOException
+	{
+		this.slice("keyword rest").subSequence(3, 8);
+	}
+
+	@Test
+	public void toStringCopies() throws IOException
+	{
+		final CharacterStream in = new CharacterStream(new StringReader("keyword rest of the stream"), 8);
+
+		final String keyword = in.sliceWhile(SliceTest.NOT_SPACE).toString();
+
+		in.skip(100);
+
+		Assert.assertEquals("keyword", keyword);
+	}
+
+	private Slice slice(final String value) throws IOException
+	{
+		return new CharacterStream(value).sliceWhile(SliceTest.NOT_SPACE);
+	}
+}
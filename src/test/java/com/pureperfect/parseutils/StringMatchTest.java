@@ -0,0 +1,113 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class StringMatchTest
+{
+	@Test
+	public void duplicateKeywordsUseFirstIndex()
+	{
+		final StringMatch m = new StringMatch("if", "else", "if");
+
+		Assert.assertEquals(0, this.match(m, "if"));
+		Assert.assertEquals(3, m.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void emptyKeyword()
+	{
+		new StringMatch("if", "");
+	}
+
+	@Test
+	public void getKeyword()
+	{
+		final StringMatch m = new StringMatch("if", "else");
+
+		Assert.assertEquals("if", m.getKeyword(0));
+		Assert.assertEquals("else", m.getKeyword(1));
+	}
+
+	@Test
+	public void keywordsAreCopied()
+	{
+		final String[] keywords = { "if", "else" };
+
+		final StringMatch m = new StringMatch(keywords);
+
+		keywords[0] = "while";
+
+		Assert.assertEquals("if", m.getKeyword(0));
+	}
+
+	@Test
+	public void noKeywords()
+	{
+		final StringMatch m = new StringMatch();
+
+		Assert.assertEquals(0, m.size());
+		Assert.assertEquals(-1, m.next(0, 'a'));
+	}
+
+	@Test
+	public void walk()
+	{
+		final StringMatch m = new StringMatch("for", "foreach", "fo\u20ac", "do");
+
+		Assert.assertEquals(0, this.match(m, "for"));
+		Assert.assertEquals(1, this.match(m, "foreach"));
+		Assert.assertEquals(2, this.match(m, "fo\u20ac"));
+		Assert.assertEquals(3, this.match(m, "do"));
+
+		// Prefixes of keywords are not keywords
+		Assert.assertEquals(-1, this.match(m, "fore"));
+		Assert.assertEquals(-1, this.match(m, "f"));
+
+		// Neither is anything else
+		Assert.assertEquals(-2, this.match(m, "while"));
+		Assert.assertEquals(-2, this.match(m, "forx"));
+	}
+
+	/*
+	 * Walk the whole value returning the keyword it ends on, -1 if it ends
+	 * between keywords or -2 if it falls off the trie.
+	 */
+	private int match(final StringMatch m, final String value)
+	{
+		int state = 0;
+
+		for (int i = 0; i < value.length(); ++i)
+		{
+			state = m.next(state, value.charAt(i));
+
+			if (state < 0)
+			{
+				return -2;
+			}
+		}
+
+		return m.keywordAt(state);
+	}
+}
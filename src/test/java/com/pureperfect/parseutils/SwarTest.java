@@ -0,0 +1,187 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+public class SwarTest
+{
+	private static final ByteOrder[] ORDERS = { ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN };
+
+	@Test
+	public void broadcast()
+	{
+		Assert.assertEquals(0x0A0A0A0A0A0A0A0AL, Swar.broadcast((byte) '\n'));
+		Assert.assertEquals(-1L, Swar.broadcast((byte) 0xFF));
+		Assert.assertEquals(0L, Swar.broadcast((byte) 0));
+	}
+
+	@Test
+	public void count()
+	{
+		for (final ByteOrder order : SwarTest.ORDERS)
+		{
+			final ByteBuffer buf = this.buffer("a\nb\n\n\u0001\n\u0080\n\u00ff\n0123456789\n\n", order);
+
+			Assert.assertEquals(8, Swar.count(buf, 0, buf.limit(), (byte) '\n'));
+			Assert.assertEquals(5, Swar.count(buf, 2, 12, (byte) '\n'));
+			Assert.assertEquals(1, Swar.count(buf, 0, buf.limit(), (byte) 0xFF));
+			Assert.assertEquals(1, Swar.count(buf, 0, buf.limit(), (byte) 0x80));
+			Assert.assertEquals(0, Swar.count(buf, 0, buf.limit(), (byte) 0));
+			Assert.assertEquals(0, Swar.count(buf, 5, 5, (byte) '\n'));
+		}
+	}
+
+	@Test
+	public void countEveryByte()
+	{
+		final byte[] bytes = new byte[256 * 3];
+
+		for (int i = 0; i < bytes.length; ++i)
+		{
+			bytes[i] = (byte) i;
+		}
+
+		for (final ByteOrder order : SwarTest.ORDERS)
+		{
+			final ByteBuffer buf = ByteBuffer.wrap(bytes).order(order);
+
+			for (int b = 0; b < 256; ++b)
+			{
+				Assert.assertEquals(3, Swar.count(buf, 0, bytes.length, (byte) b));
+				Assert.assertEquals(b, Swar.indexOf(buf, 0, bytes.length, (byte) b));
+				Assert.assertEquals(b + 256, Swar.indexOf(buf, b + 1, bytes.length, (byte) b));
+			}
+		}
+	}
+
+	@Test
+	public void countUtf8Chars()
+	{
+		final String value = "plain ascii text, then \u00e9\u20ac\ud83d\ude00 and more \u00fc\u00fc\u00fc\u00fc text \ud83d\ude00";
+		final byte[] bytes = value.getBytes(Charset.forName("UTF-8"));
+
+		for (final ByteOrder order : SwarTest.ORDERS)
+		{
+			final ByteBuffer buf = ByteBuffer.wrap(bytes).order(order);
+
+			Assert.assertEquals(value.length(), Swar.countUtf8Chars(buf, 0, bytes.length));
+			Assert.assertEquals(0, Swar.countUtf8Chars(buf, 3, 3));
+
+			for (int i = 0; i <= bytes.length; ++i)
+			{
+				// Count from every character boundary
+				if (i == bytes.length || (bytes[i] & 0xC0) != 0x80)
+				{
+					Assert.assertEquals(new String(bytes, i, bytes.length - i, Charset.forName("UTF-8")).length(),
+							Swar.countUtf8Chars(buf, i, bytes.length));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void indexOf()
+	{
+		for (final ByteOrder order : SwarTest.ORDERS)
+		{
+			final ByteBuffer buf = this.buffer("field one,field two,x,\"quoted\"", order);
+
+			Assert.assertEquals(9, Swar.indexOf(buf, 0, buf.limit(), (byte) ','));
+			Assert.assertEquals(19, Swar.indexOf(buf, 10, buf.limit(), (byte) ','));
+			Assert.assertEquals(21, Swar.indexOf(buf, 20, buf.limit(), (byte) ','));
+			Assert.assertEquals(-1, Swar.indexOf(buf, 22, buf.limit(), (byte) ','));
+			Assert.assertEquals(-1, Swar.indexOf(buf, 0, 9, (byte) ','));
+			Assert.assertEquals(22, Swar.indexOf(buf, 0, buf.limit(), (byte) '"'));
+		}
+	}
+
+	@Test
+	public void indexOfAny()
+	{
+		for (final ByteOrder order : SwarTest.ORDERS)
+		{
+			final ByteBuffer buf = this.buffer("field one,field two\n\"quoted\"", order);
+
+			Assert.assertEquals(9, Swar.indexOf(buf, 0, buf.limit(), (byte) '"', (byte) '\n', (byte) ','));
+			Assert.assertEquals(19, Swar.indexOf(buf, 10, buf.limit(), (byte) '"', (byte) '\n', (byte) ','));
+			Assert.assertEquals(20, Swar.indexOf(buf, 20, buf.limit(), (byte) '"', (byte) '\n', (byte) ','));
+			Assert.assertEquals(-1, Swar.indexOf(buf, 0, 9, (byte) '"', (byte) '\n', (byte) ','));
+			Assert.assertEquals(-1, Swar.indexOf(buf, 0, buf.limit(), (byte) ';', (byte) ';', (byte) ';'));
+		}
+	}
+
+	@Test
+	public void nextAscii()
+	{
+		for (final ByteOrder order : SwarTest.ORDERS)
+		{
+			final ByteBuffer buf = this.buffer("ab\u0080\u0081\u0082\u0083\u0084\u0085\u0086\u0087\u0088\u0089c\u0090",
+					order);
+
+			Assert.assertEquals(0, Swar.nextAscii(buf, 0, buf.limit()));
+			Assert.assertEquals(12, Swar.nextAscii(buf, 2, buf.limit()));
+			Assert.assertEquals(14, Swar.nextAscii(buf, 13, buf.limit()));
+			Assert.assertEquals(10, Swar.nextAscii(buf, 3, 10));
+		}
+	}
+
+	@Test
+	public void widenAscii()
+	{
+		final String ascii = "The quick brown fox jumps over the lazy dog\t\r\n\u0000\u007f";
+
+		for (final ByteOrder order : SwarTest.ORDERS)
+		{
+			final ByteBuffer buf = this.buffer(ascii + "\u00e9 tail", order);
+			final char[] dst = new char[buf.limit() + 2];
+
+			Assert.assertEquals(ascii.length(), Swar.widenAscii(buf, 0, buf.limit(), dst, 2));
+			Assert.assertEquals(ascii, new String(dst, 2, ascii.length()));
+
+			Assert.assertEquals(10, Swar.widenAscii(buf, 0, 10, dst, 0));
+			Assert.assertEquals(ascii.substring(0, 10), new String(dst, 0, 10));
+
+			Assert.assertEquals(ascii.length(), Swar.widenAscii(buf, ascii.length(), buf.limit(), dst, 0));
+		}
+	}
+
+	/*
+	 * Each char becomes one byte.
+	 */
+	private ByteBuffer buffer(final String value, final ByteOrder order)
+	{
+		final ByteBuffer buf = ByteBuffer.allocate(value.length()).order(order);
+
+		for (int i = 0; i < value.length(); ++i)
+		{
+			buf.put(i, (byte) value.charAt(i));
+		}
+
+		return buf;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright [2014] PurePerfect.com Licensed under the Apache License, Version
+ * 2.0 (the "License"); you may not use this file except in compliance with the
+ * License.
+ * 
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * 
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pureperfect.parseutils;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Helpers shared by the tests of the character sources.
+ * 
+ * @author J. Chris Folsom
+ * @version 0.1
+ * @since 0.1
+ */
+class TestSupport
+{
+	/**
+	 * One, two, three and four byte characters in UTF-8, the last being a
+	 * surrogate pair.
+	 */
+	static final String MIXED = "a\u00e9\u20ac\ud83d\ude00";
+
+	/**
+	 * Read everything left in a source.
+	 * 
+	 * @param source
+	 *            the source to read
+	 * @param chunk
+	 *            the most characters to read at once
+	 * @return what was read.
+	 * @throws IOException
+	 *             if there is an error reading.
+	 */
+	static String readAll(final CharacterSource source, final int chunk) throws IOException
+	{
+		final StringBuilder results = new StringBuilder();
+		final char[] dst = new char[chunk];
+
+		for (int read = source.read(dst, 0, chunk); read >= 0; read = source.read(dst, 0, chunk))
+		{
+			results.append(dst, 0, read);
+		}
+
+		return results.toString();
+	}
+
+	/**
+	 * Repeat a string.
+	 * 
+	 * @param value
+	 *            the string to repeat
+	 * @param count
+	 *            the number of times to repeat it
+	 * @return the repeated string.
+	 */
+	static String repeat(final String value, final int count)
+	{
+		final StringBuilder results = new StringBuilder(value.length() * count);
+
+		for (int i = 0; i < count; ++i)
+		{
+			results.append(value);
+		}
+
+		return results.toString();
+	}
+
+	/**
+	 * Write a string to a new file.
+	 * 
+	 * @param folder
+	 *            the folder to create the file in
+	 * @param value
+	 *            the string to write
+	 * @param charset
+	 *            the charset to encode it with
+	 * @return the file.
+	 * @throws IOException
+	 *             if there is an error writing.
+	 */
+	static Path write(final TemporaryFolder folder, final String value, final Charset charset) throws IOException
+	{
+		final Path file = folder.newFile().toPath();
+
+		Files.write(file, value.getBytes(charset));
+
+		return file;
+	}
+
+	private TestSupport()
+	{
+		// Hide constructor only static methods in this class
+	}
+}
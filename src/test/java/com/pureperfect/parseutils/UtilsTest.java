@@ -17,6 +17,12 @@ package com.pureperfect.parseutils;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.junit.Test;
 
@@ -35,6 +41,70 @@ public class UtilsTest
 				Strings.concat("", "one", "two", "three").toString());
 	}
 
+	@Test
+	public void concatAppendable() throws IOException
+	{
+		final StringWriter dst = new StringWriter();
+
+		dst.write("[");
+
+		assertSame(dst, Strings.concat(dst, ", ", "one", new StringBuilder("two"), null));
+		assertEquals("[one, two, null", dst.toString());
+
+		assertSame(dst, Strings.concat(dst, "|", Arrays.asList("a", "b")));
+		assertEquals("[one, two, nulla|b", dst.toString());
+
+		final Appendable builder = new StringBuilder("x");
+
+		assertSame(builder, Strings.concat(builder, "-", "y", "z"));
+		assertEquals("xy-z", builder.toString());
+	}
+
+	@Test
+	public void concatCharSequences()
+	{
+		final StringBuilder results = Strings.concat(", ", "one", new StringBuilder("two"), null);
+
+		assertEquals("one, two, null", results.toString());
+		assertEquals(results.length(), results.capacity());
+
+		assertEquals("", Strings.concat(", ", new CharSequence[0]).toString());
+	}
+
+	@Test
+	public void concatIterable()
+	{
+		final StringBuilder results = Strings.concat("; ", Arrays.asList("one", "two", "three"));
+
+		assertEquals("one; two; three", results.toString());
+		assertEquals(results.length(), results.capacity());
+
+		assertEquals("", Strings.concat("; ", new ArrayList<String>()).toString());
+	}
+
+	@Test
+	public void concatObjects()
+	{
+		final StringBuilder results = Strings.concat(", ", "one", new StringBuilder("two"), null);
+
+		assertEquals(results.length(), results.capacity());
+
+		assertEquals("one, 2, null", Strings.concat(", ", "one", 2, null).toString());
+		assertEquals("", Strings.concat(", ", new Object[0]).toString());
+	}
+
+	@Test
+	public void concatStringBuilder()
+	{
+		final StringBuilder dst = new StringBuilder("numbers: ");
+
+		assertSame(dst, Strings.concat(dst, ", ", "one", "two", "three"));
+		assertEquals("numbers: one, two, three", dst.toString());
+
+		assertSame(dst, Strings.concat(dst, "", Arrays.asList("!", "!")));
+		assertEquals("numbers: one, two, three!!", dst.toString());
+	}
+
 	@Test
 	public void concatWithSeparator()
 	{
@@ -42,6 +112,30 @@ public class UtilsTest
 				Strings.concat(", ", "one", "two", "three").toString());
 	}
 
+	@Test
+	public void trimBounds()
+	{
+		assertEquals(0L << 32 | 4, Strings.trimBounds("asdf"));
+		assertEquals(2L << 32 | 6, Strings.trimBounds("\t asdf\n "));
+		assertEquals(0L << 32 | 0, Strings.trimBounds(""));
+		assertEquals(0L << 32 | 0, Strings.trimBounds("   "));
+	}
+
+	@Test
+	public void trimCharSequence()
+	{
+		final CharSequence untrimmed = new StringBuilder("asdf");
+
+		assertSame(untrimmed, Strings.trim(untrimmed));
+		assertEquals("as df", Strings.trim((CharSequence) new StringBuilder("\t as df\r\n")).toString());
+		assertEquals("", Strings.trim((CharSequence) new StringBuilder(" \n ")).toString());
+
+		// Need this reference to make sure trim char sequence method is called
+		final CharSequence s = null;
+
+		assertNull(Strings.trim(s));
+	}
+
 	@Test
 	public void trimString()
 	{
@@ -68,4 +162,24 @@ public class UtilsTest
 		
 		assertEquals("", Strings.trim(new StringBuilder("   ")).toString());
 	}
+
+	@Test
+	public void trimStringBuilderWithLotsOfWhitespace()
+	{
+		final StringBuilder value = new StringBuilder();
+
+		for (int i = 0; i < 1 << 20; ++i)
+		{
+			value.append(' ');
+		}
+
+		value.append("asdf");
+
+		for (int i = 0; i < 1 << 20; ++i)
+		{
+			value.append('\n');
+		}
+
+		assertEquals("asdf", Strings.trim(value).toString());
+	}
 }